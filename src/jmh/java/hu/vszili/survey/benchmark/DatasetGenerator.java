@@ -0,0 +1,176 @@
+package hu.vszili.survey.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Writes {@code Members.csv}, {@code Statuses.csv}, {@code Surveys.csv} and {@code Participation.csv} of a random
+ * dataset shaped by a {@link DatasetSpec}, with the same layout as {@code src/main/resources/csv}.
+ * The same spec always produces the same files.
+ * <p>
+ * Also runnable from the command line, every {@link DatasetSpec} property can be set as {@code --name=value}:
+ * <pre>
+ * ./mvnw -Pbenchmark -DskipTests test-compile exec:exec@generate-dataset \
+ *     -Ddataset.args="--out=/tmp/survey --members=1000000 --participations=50000000 --memberSkew=0.8"
+ * </pre>
+ */
+public final class DatasetGenerator {
+
+    private static final String[] STATUSES = {"Not asked", "Rejected", "Filtered", "Completed"};
+    private static final int COMPLETED = 4;
+
+    private final DatasetSpec spec;
+    private final Random random;
+
+    private DatasetGenerator(DatasetSpec spec) {
+        this.spec = spec;
+        this.random = new Random(spec.getSeed());
+    }
+
+    public static void write(Path directory, DatasetSpec spec) throws IOException {
+        Files.createDirectories(directory);
+        new DatasetGenerator(spec).writeAll(directory);
+    }
+
+    public static void main(String[] args) throws IOException {
+        DatasetSpec.DatasetSpecBuilder spec = DatasetSpec.builder();
+        Path directory = null;
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String value = option[1];
+            switch (option[0]) {
+                case "out" -> directory = Path.of(value);
+                case "members" -> spec.members(Integer.parseInt(value));
+                case "surveys" -> spec.surveys(Integer.parseInt(value));
+                case "participations" -> spec.participations(Integer.parseInt(value));
+                case "activeRatio" -> spec.activeRatio(Double.parseDouble(value));
+                case "statusWeights" -> spec.statusWeights(
+                        Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray());
+                case "memberSkew" -> spec.memberSkew(Double.parseDouble(value));
+                case "surveySkew" -> spec.surveySkew(Double.parseDouble(value));
+                case "missingLengthRatio" -> spec.missingLengthRatio(Double.parseDouble(value));
+                case "minLength" -> spec.minLength(Integer.parseInt(value));
+                case "maxLength" -> spec.maxLength(Integer.parseInt(value));
+                case "seed" -> spec.seed(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (directory == null) {
+            throw new IllegalArgumentException("--out=<directory> is required");
+        }
+        long start = System.nanoTime();
+        write(directory, spec.build());
+        System.out.printf("Dataset written to %s in %d ms%n", directory.toAbsolutePath(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void writeAll(Path directory) throws IOException {
+        if (spec.getStatusWeights().length != STATUSES.length) {
+            throw new IllegalArgumentException("Expected " + STATUSES.length + " status weights");
+        }
+        this.writeStatuses(directory.resolve("Statuses.csv"));
+        this.writeMembers(directory.resolve("Members.csv"));
+        this.writeSurveys(directory.resolve("Surveys.csv"));
+        this.writeParticipation(directory.resolve("Participation.csv"));
+    }
+
+    private void writeStatuses(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Status Id,Name\n");
+            for (int i = 0; i < STATUSES.length; i++) {
+                writer.write((i + 1) + "," + STATUSES[i] + "\n");
+            }
+        }
+    }
+
+    private void writeMembers(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Member Id,Full name,E-mail address,Is Active\n");
+            for (int id = 1; id <= spec.getMembers(); id++) {
+                int active = random.nextDouble() < spec.getActiveRatio() ? 1 : 0;
+                writer.write(id + ",Member " + id + ",member" + id + "@example.com," + active + "\n");
+            }
+        }
+    }
+
+    private void writeSurveys(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Survey Id,Name,Expected completes,Completion points,Filtered points\n");
+            for (int id = 1; id <= spec.getSurveys(); id++) {
+                writer.write(id + ",Survey " + id + "," + (10 + random.nextInt(200)) + ","
+                        + (5 + random.nextInt(26)) + "," + (1 + random.nextInt(5)) + "\n");
+            }
+        }
+    }
+
+    private void writeParticipation(Path file) throws IOException {
+        IntSupplier members = this.ids(spec.getMembers(), spec.getMemberSkew());
+        IntSupplier surveys = this.ids(spec.getSurveys(), spec.getSurveySkew());
+        double[] statusCdf = cumulative(spec.getStatusWeights());
+        int lengthRange = spec.getMaxLength() - spec.getMinLength() + 1;
+        StringBuilder row = new StringBuilder(32);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Member Id,Survey Id,Status,Length\n");
+            for (int i = 0; i < spec.getParticipations(); i++) {
+                int status = search(statusCdf, random.nextDouble()) + 1;
+                row.setLength(0);
+                row.append(members.getAsInt()).append(',').append(surveys.getAsInt()).append(',').append(status)
+                        .append(',');
+                if (status == COMPLETED && random.nextDouble() >= spec.getMissingLengthRatio()) {
+                    row.append(spec.getMinLength() + random.nextInt(lengthRange));
+                }
+                writer.append(row).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Returns a supplier of ids in {@code 1..count}. With a positive skew ids follow a Zipf distribution over a
+     * shuffled order, so the hot ids are spread over the id range instead of being the lowest ones.
+     */
+    private IntSupplier ids(int count, double skew) {
+        if (skew <= 0) {
+            return () -> 1 + random.nextInt(count);
+        }
+        double[] weights = new double[count];
+        for (int rank = 0; rank < count; rank++) {
+            weights[rank] = 1 / Math.pow(rank + 1, skew);
+        }
+        double[] cdf = cumulative(weights);
+        int[] idByRank = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = random.nextInt(i + 1);
+            idByRank[i] = idByRank[j];
+            idByRank[j] = i + 1;
+        }
+        return () -> idByRank[search(cdf, random.nextDouble())];
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cdf = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < cdf.length; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int search(double[] cdf, double value) {
+        int index = Arrays.binarySearch(cdf, value);
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+
+}
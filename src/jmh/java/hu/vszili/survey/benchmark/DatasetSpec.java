@@ -0,0 +1,69 @@
+package hu.vszili.survey.benchmark;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Shape of a generated dataset. The defaults follow the bundled sample data: about 74% active members, 10 rows per
+ * member and only completed participations having a length.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class DatasetSpec {
+
+    @Builder.Default
+    private final int members = 300;
+
+    @Builder.Default
+    private final int surveys = 100;
+
+    @Builder.Default
+    private final int participations = 3000;
+
+    @Builder.Default
+    private final double activeRatio = 0.74;
+
+    /**
+     * Relative weights of the statuses "Not asked", "Rejected", "Filtered" and "Completed".
+     */
+    @Builder.Default
+    private final double[] statusWeights = {0.05, 0.10, 0.20, 0.65};
+
+    /**
+     * Zipf exponent of member popularity, {@code 0} picks members uniformly, {@code 1} makes a few members hot.
+     */
+    @Builder.Default
+    private final double memberSkew = 0.0;
+
+    /**
+     * Zipf exponent of survey popularity, {@code 0} picks surveys uniformly.
+     */
+    @Builder.Default
+    private final double surveySkew = 0.0;
+
+    /**
+     * Share of completed participations whose length is left empty.
+     */
+    @Builder.Default
+    private final double missingLengthRatio = 0.0;
+
+    @Builder.Default
+    private final int minLength = 5;
+
+    @Builder.Default
+    private final int maxLength = 30;
+
+    @Builder.Default
+    private final long seed = 42L;
+
+    /**
+     * Spec with ten participations per member and the remaining defaults.
+     */
+    public static DatasetSpec ofParticipations(int participations) {
+        return DatasetSpec.builder()
+                .participations(participations)
+                .members(Math.max(300, participations / 10))
+                .build();
+    }
+
+}
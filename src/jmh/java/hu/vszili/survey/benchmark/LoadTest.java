@@ -0,0 +1,250 @@
+package hu.vszili.survey.benchmark;
+
+import hu.vszili.survey.SurveyApplication;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * HTTP load test comparing request execution on platform threads with virtual threads
+ * ({@code spring.threads.virtual.enabled}).
+ * <p>
+ * One dataset is generated, then for each mode the application is started in-process on a random port and
+ * {@code --concurrency} clients poll a mix of {@code SurveyController} and {@code MemberController} endpoints with
+ * random ids, back to back or with {@code --thinkMillis} between polls. After {@code --warmup} seconds the next
+ * {@code --duration} seconds are measured, and throughput and latency percentiles are printed per endpoint.
+ * Clients share the machine with the server, so compare modes with each other rather than with production numbers.
+ * Virtual threads need Java 21; on older runtimes that mode is skipped.
+ * <pre>
+ * ./mvnw -Pbenchmark -DskipTests test-compile exec:exec@load-test \
+ *     -Dload.args="--participations=1000000 --concurrency=400 --duration=30"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final List<Endpoint> ENDPOINTS = List.of(
+            new Endpoint("members/{id}/surveys/completed", spec -> "/api/members/%d/surveys/completed"
+                    .formatted(randomId(spec.getMembers()))),
+            new Endpoint("members/{id}/points", spec -> "/api/members/%d/points"
+                    .formatted(randomId(spec.getMembers()))),
+            new Endpoint("surveys/{id}/members/completed", spec -> "/api/surveys/%d/members/completed?limit=50"
+                    .formatted(randomId(spec.getSurveys()))),
+            new Endpoint("surveys/{id}/eligible-members", spec -> "/api/surveys/%d/eligible-members?limit=50"
+                    .formatted(randomId(spec.getSurveys()))),
+            new Endpoint("surveys/statistics", spec -> "/api/surveys/statistics"));
+
+    private final DatasetSpec spec;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final long thinkMillis;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private LoadTest(DatasetSpec spec, int concurrency, Duration warmup, Duration duration, long thinkMillis) {
+        this.spec = spec;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.thinkMillis = thinkMillis;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int participations = 1_000_000;
+        int concurrency = 200;
+        int warmupSeconds = 10;
+        int durationSeconds = 30;
+        long thinkMillis = 0;
+        List<String> modes = List.of("platform", "virtual");
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String value = option[1];
+            switch (option[0]) {
+                case "participations" -> participations = Integer.parseInt(value);
+                case "concurrency" -> concurrency = Integer.parseInt(value);
+                case "warmup" -> warmupSeconds = Integer.parseInt(value);
+                case "duration" -> durationSeconds = Integer.parseInt(value);
+                case "thinkMillis" -> thinkMillis = Long.parseLong(value);
+                case "modes" -> modes = Arrays.asList(value.split(","));
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        DatasetSpec spec = DatasetSpec.ofParticipations(participations);
+        Path directory = Files.createTempDirectory("survey-load-test");
+        try {
+            DatasetGenerator.write(directory, spec);
+            LoadTest loadTest = new LoadTest(spec, concurrency, Duration.ofSeconds(warmupSeconds),
+                    Duration.ofSeconds(durationSeconds), thinkMillis);
+            for (String mode : modes) {
+                if ("virtual".equals(mode) && Runtime.version().feature() < 21) {
+                    System.out.printf("Skipping virtual threads: Java %d does not support them%n",
+                            Runtime.version().feature());
+                    continue;
+                }
+                loadTest.run(mode, directory);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private void run(String mode, Path directory) throws InterruptedException, ExecutionException {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SurveyApplication.class)
+                .logStartupInfo(false)
+                .run("--server.port=0",
+                        "--csv.base-path=" + directory + "/",
+                        "--spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                        "--logging.level.root=WARN")) {
+            URI base = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+            this.poll(base, warmup);
+            Recorder total = this.poll(base, duration);
+            this.print(mode, total);
+        }
+    }
+
+    /**
+     * Runs {@link #concurrency} clients against the server for the given time and merges what they recorded.
+     */
+    private Recorder poll(URI base, Duration time) throws InterruptedException, ExecutionException {
+        long end = System.nanoTime() + time.toNanos();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Recorder>> results = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                results.add(clients.submit(() -> this.client(base, end)));
+            }
+            Recorder total = new Recorder();
+            for (Future<Recorder> result : results) {
+                total.addAll(result.get());
+            }
+            return total;
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private Recorder client(URI base, long end) throws InterruptedException {
+        Recorder recorder = new Recorder();
+        while (System.nanoTime() < end) {
+            int endpoint = ThreadLocalRandom.current().nextInt(ENDPOINTS.size());
+            HttpRequest request = HttpRequest.newBuilder(base.resolve(ENDPOINTS.get(endpoint).path().apply(spec)))
+                    .GET()
+                    .build();
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 500;
+            } catch (IOException e) {
+                ok = false;
+            }
+            recorder.record(endpoint, System.nanoTime() - start, ok);
+            if (thinkMillis > 0) {
+                Thread.sleep(thinkMillis);
+            }
+        }
+        return recorder;
+    }
+
+    private void print(String mode, Recorder recorder) {
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("%n%s threads, %d clients, %d s%n", mode, concurrency, duration.toSeconds());
+        System.out.printf("%-32s %10s %10s %9s %9s %9s %7s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        long requests = 0;
+        for (int endpoint = 0; endpoint < ENDPOINTS.size(); endpoint++) {
+            long[] latencies = recorder.latencies[endpoint].toLongArray();
+            Arrays.sort(latencies);
+            requests += latencies.length;
+            System.out.printf("%-32s %10d %10.1f %9.2f %9.2f %9.2f %7d%n",
+                    ENDPOINTS.get(endpoint).name(), latencies.length, latencies.length / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0),
+                    recorder.errors[endpoint]);
+        }
+        long[] all = Arrays.stream(recorder.latencies).flatMapToLong(list -> Arrays.stream(list.toLongArray()))
+                .sorted()
+                .toArray();
+        System.out.printf("%-32s %10d %10.1f %9.2f %9.2f %9.2f %7d%n", "all", requests, requests / seconds,
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 1.0),
+                Arrays.stream(recorder.errors).sum());
+    }
+
+    /**
+     * Returns the given percentile of sorted nanosecond latencies in milliseconds.
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static long randomId(int count) {
+        return ThreadLocalRandom.current().nextInt(count) + 1;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private record Endpoint(String name, Function<DatasetSpec, String> path) {
+    }
+
+    /**
+     * Latencies in nanoseconds and error counts per endpoint, recorded by one client.
+     */
+    private static final class Recorder {
+
+        private final LongArrayList[] latencies = new LongArrayList[ENDPOINTS.size()];
+        private final long[] errors = new long[ENDPOINTS.size()];
+
+        private Recorder() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LongArrayList();
+            }
+        }
+
+        private void record(int endpoint, long nanos, boolean ok) {
+            latencies[endpoint].add(nanos);
+            if (!ok) {
+                errors[endpoint]++;
+            }
+        }
+
+        private void addAll(Recorder other) {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].addAll(other.latencies[i]);
+                errors[i] += other.errors[i];
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package hu.vszili.survey.benchmark;
+
+import hu.vszili.survey.data.Survey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the member endpoints' service calls, cycling through all member ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberServiceBenchmark {
+
+    private long nextMemberId;
+
+    @Benchmark
+    public Integer getPoints(SurveyDataState state) {
+        return state.memberService.getPoints(this.nextMemberId(state));
+    }
+
+    @Benchmark
+    public List<Survey> getCompletedSurveys(SurveyDataState state) {
+        return state.memberService.getCompletedSurveys(this.nextMemberId(state));
+    }
+
+    private long nextMemberId(SurveyDataState state) {
+        nextMemberId = nextMemberId % state.spec.getMembers() + 1;
+        return nextMemberId;
+    }
+
+}
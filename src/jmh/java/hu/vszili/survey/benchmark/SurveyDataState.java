@@ -0,0 +1,74 @@
+package hu.vszili.survey.benchmark;
+
+import hu.vszili.survey.SurveyApplication;
+import hu.vszili.survey.loader.DataLoader;
+import hu.vszili.survey.service.MemberService;
+import hu.vszili.survey.service.SurveyService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generates a dataset of {@link #participations} rows and starts the application context on it, without
+ * the web server. Shared by all benchmark threads of a trial.
+ */
+@State(Scope.Benchmark)
+public class SurveyDataState {
+
+    @Param({"10000", "1000000"})
+    public int participations;
+
+    /**
+     * Zipf exponent of both member and survey popularity, see {@link DatasetSpec#getMemberSkew()}.
+     */
+    @Param({"0.0"})
+    public double skew;
+
+    MemberService memberService;
+    SurveyService surveyService;
+    DataLoader dataLoader;
+    DatasetSpec spec;
+
+    private Path directory;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("survey-benchmark");
+        spec = DatasetSpec.ofParticipations(participations).toBuilder()
+                .memberSkew(skew)
+                .surveySkew(skew)
+                .build();
+        DatasetGenerator.write(directory, spec);
+        context = new SpringApplicationBuilder(SurveyApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--csv.base-path=" + directory + "/", "--logging.level.root=WARN");
+        memberService = context.getBean(MemberService.class);
+        surveyService = context.getBean(SurveyService.class);
+        dataLoader = context.getBean(DataLoader.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package hu.vszili.survey.benchmark;
+
+import hu.vszili.survey.data.Member;
+import hu.vszili.survey.data.SurveyStatistic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the survey endpoints' service calls, cycling through all survey ids.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SurveyServiceBenchmark {
+
+    private long nextSurveyId;
+
+    @Benchmark
+    public List<Member> getMembersCompleted(SurveyDataState state) {
+        return state.surveyService.getMembersCompleted(this.nextSurveyId(state));
+    }
+
+    @Benchmark
+    public List<Member> getEligibleMembers(SurveyDataState state) {
+        return state.surveyService.getEligibleMembers(this.nextSurveyId(state));
+    }
+
+    @Benchmark
+    public List<SurveyStatistic> getStatistics(SurveyDataState state) {
+        return state.surveyService.getStatistics();
+    }
+
+    private long nextSurveyId(SurveyDataState state) {
+        nextSurveyId = nextSurveyId % state.spec.getSurveys() + 1;
+        return nextSurveyId;
+    }
+
+}
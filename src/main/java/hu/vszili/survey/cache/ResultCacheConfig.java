@@ -0,0 +1,125 @@
+package hu.vszili.survey.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import hu.vszili.survey.data.CursorPage;
+import hu.vszili.survey.store.Dataset;
+import hu.vszili.survey.store.DatasetHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Caches of service results. Results only change when a new dataset is published, so every key starts with the
+ * version of the load the dataset comes from: after a reload no old entry is looked up again, and old entries age out
+ * of the caches instead of having to be cleared.
+ * <p>
+ * Appending participations publishes a new dataset without a reload. Results of one member or one survey are keyed
+ * by the version at which that member or survey last changed, so an append only misses the entries of the members
+ * and surveys it touched, and the replaced entries age out like the others. Statistics cover every survey and are
+ * keyed by the version of the dataset itself, so they are computed again after each append.
+ * <p>
+ * The caches are Caffeine caches, which admit a new entry only if it is used more often than the entry it would
+ * evict, so a scan over rarely requested ids does not push out hot surveys. Each cache is bounded by
+ * {@code survey.cache.maximum-weight}, where the weight of an entry is the number of rows it holds. Hits, misses and
+ * evictions are published by Spring Boot as the {@code cache.*} metrics of the caches in
+ * {@code spring.cache.cache-names}.
+ */
+@Configuration
+@EnableCaching
+public class ResultCacheConfig {
+
+    public static final String COMPLETED_MEMBERS = "completedMembers";
+    public static final String ELIGIBLE_MEMBERS = "eligibleMembers";
+    public static final String COMPLETED_SURVEYS = "completedSurveys";
+    public static final String STATISTICS = "statistics";
+
+    public static final String KEY_GENERATOR = "datasetVersionKeyGenerator";
+    public static final String MEMBER_KEY_GENERATOR = "memberVersionKeyGenerator";
+    public static final String SURVEY_KEY_GENERATOR = "surveyVersionKeyGenerator";
+
+    @Bean
+    public Caffeine<Object, Object> caffeine(@Value("${survey.cache.maximum-weight:250000}") long maximumWeight) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(ResultCacheConfig::weigh)
+                .recordStats();
+    }
+
+    /**
+     * Keys a result by the dataset version and the method arguments. The cached services are
+     * {@link hu.vszili.survey.store.PinnedDataset}, so the version is that of the dataset the method reads.
+     */
+    @Bean(KEY_GENERATOR)
+    public KeyGenerator datasetVersionKeyGenerator(DatasetHolder datasetHolder) {
+        return (target, method, params) -> key(datasetHolder.get().getVersion(), null, params);
+    }
+
+    /**
+     * Keys a result of the member given as first argument by the load version, the version at which the member last
+     * changed and the method arguments.
+     */
+    @Bean(MEMBER_KEY_GENERATOR)
+    public KeyGenerator memberVersionKeyGenerator(DatasetHolder datasetHolder) {
+        return (target, method, params) -> {
+            Dataset dataset = datasetHolder.get();
+            long changed = dataset.getChanges().ofMember((Long) params[0], dataset.getBaseVersion());
+            return key(dataset.getBaseVersion(), changeKey(dataset, changed), params);
+        };
+    }
+
+    /**
+     * Keys a result of the survey given as first argument by the load version, the version at which the survey last
+     * changed and the method arguments.
+     */
+    @Bean(SURVEY_KEY_GENERATOR)
+    public KeyGenerator surveyVersionKeyGenerator(DatasetHolder datasetHolder) {
+        return (target, method, params) -> {
+            Dataset dataset = datasetHolder.get();
+            long changed = dataset.getChanges().ofSurvey((Long) params[0], dataset.getBaseVersion());
+            return key(dataset.getBaseVersion(), changeKey(dataset, changed), params);
+        };
+    }
+
+    /**
+     * Returns the change version to key on. A change is recorded before its dataset is published, so a method still
+     * reading an older dataset may see a change newer than its data: it gets a key of its own, the negated version of
+     * its dataset, which no up-to-date reader looks up.
+     */
+    private static long changeKey(Dataset dataset, long changed) {
+        return changed > dataset.getVersion() ? -dataset.getVersion() : changed;
+    }
+
+    private static SimpleKey key(long version, Long changed, Object[] params) {
+        int prefix = changed == null ? 1 : 2;
+        Object[] elements = new Object[params.length + prefix];
+        elements[0] = version;
+        if (changed != null) {
+            elements[1] = changed;
+        }
+        System.arraycopy(params, 0, elements, prefix, params.length);
+        return new SimpleKey(elements);
+    }
+
+    /**
+     * Returns the number of rows in a cached result, at least 1.
+     */
+    static int weigh(Object key, Object value) {
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (value instanceof Map<?, ?> map) {
+            return Math.max(1, map.size());
+        }
+        if (value instanceof CursorPage<?> page) {
+            return Math.max(1, page.getItems().size());
+        }
+        return 1;
+    }
+
+}
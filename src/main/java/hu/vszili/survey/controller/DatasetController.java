@@ -0,0 +1,48 @@
+package hu.vszili.survey.controller;
+
+import hu.vszili.survey.data.LoadReport;
+import hu.vszili.survey.service.DatasetService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/dataset")
+public class DatasetController {
+
+    private final DatasetService datasetService;
+
+    /**
+     * Retrieves the load report of the dataset that is currently served.
+     *
+     * @return the {@code LoadReport} with the dataset version and per-file load statistics
+     */
+    @GetMapping
+    public LoadReport getLoadReport() {
+        return datasetService.getLoadReport();
+    }
+
+    /**
+     * Reloads the CSV files and atomically replaces the served dataset once the new one is fully built.
+     *
+     * @return the {@code LoadReport} of the new dataset
+     */
+    @PostMapping("/reload")
+    public LoadReport reload() {
+        return datasetService.reload();
+    }
+
+    /**
+     * Compacts the log of appended participations into the participation CSV file.
+     *
+     * @return the {@code LoadReport} of the dataset that is currently served
+     */
+    @PostMapping("/compact")
+    public LoadReport compact() {
+        return datasetService.compact();
+    }
+
+}
@@ -0,0 +1,38 @@
+package hu.vszili.survey.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Applies the conditional GET of {@link DatasetETagInterceptor} to the bodies the read endpoints return, once the
+ * handler has succeeded and the media type of the body is selected. A body that is not modified is not written.
+ */
+@ControllerAdvice(assignableTypes = {MemberController.class, SurveyController.class})
+public class DatasetETagAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && response instanceof ServletServerHttpResponse servletResponse
+                && DatasetETagInterceptor.checkNotModified(servletRequest.getServletRequest(),
+                servletResponse.getServletResponse(), selectedContentType)) {
+            return null;
+        }
+        return body;
+    }
+
+}
@@ -0,0 +1,84 @@
+package hu.vszili.survey.controller;
+
+import hu.vszili.survey.service.DatasetService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Conditional GET for the read endpoints. A response about a member or a survey only changes when that member or
+ * survey is appended to or the dataset is reloaded, and any other response when a new dataset is published, so the
+ * {@code ETag} is derived from the matching version of {@link DatasetService#getChangeVersion(Long, Long)}. The tag
+ * also carries the startup time of this instance, because versions start again from 1 after a restart, and the
+ * media type of the body, because JSON and NDJSON bodies of the same data differ; {@code Vary: Accept} says so.
+ * <p>
+ * The version is read here, before the handler, and compared only once the handler has produced a successful body:
+ * in {@link DatasetETagAdvice}, or in the controller for streamed bodies. So a missing member or an invalid page
+ * request still fails instead of being answered with 304. A reload in between may send a newer body under the older
+ * tag; the next request then simply gets a full response again.
+ */
+@Component
+@RequiredArgsConstructor
+public class DatasetETagInterceptor implements HandlerInterceptor {
+
+    private static final String ETAG_PREFIX_ATTRIBUTE = DatasetETagInterceptor.class.getName() + ".eTagPrefix";
+
+    private final String instance = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final DatasetService datasetService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> variables =
+                    (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            String version = datasetService.getChangeVersion(id(variables, "memberId"), id(variables, "surveyId"));
+            request.setAttribute(ETAG_PREFIX_ATTRIBUTE, instance + "-" + version);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the {@code ETag} of a successful response of the current request with a body of {@code mediaType}, and
+     * turns the response into 304 if the request's {@code If-None-Match} matches it.
+     *
+     * @return whether the response is 304 and its body must not be written
+     */
+    static boolean checkNotModified(MediaType mediaType) {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        return checkNotModified(attributes.getRequest(), attributes.getResponse(), mediaType);
+    }
+
+    static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, MediaType mediaType) {
+        Object prefix = request.getAttribute(ETAG_PREFIX_ATTRIBUTE);
+        if (prefix == null || response == null || mediaType == null) {
+            return false;
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        // only a 200 response is tagged and turned into 304
+        return new ServletWebRequest(request, response).checkNotModified(prefix + "-" + mediaType.getSubtype());
+    }
+
+    private static Long id(Map<String, String> variables, String name) {
+        String value = variables == null ? null : variables.get(name);
+        try {
+            return value == null ? null : Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            // the handler rejects the request, any tag will do
+            return null;
+        }
+    }
+
+}
@@ -1,14 +1,27 @@
 package hu.vszili.survey.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.vszili.survey.data.CursorPage;
+import hu.vszili.survey.data.MemberPoints;
 import hu.vszili.survey.data.Survey;
 import hu.vszili.survey.service.MemberService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
@@ -16,6 +29,7 @@ import java.util.List;
 public class MemberController {
 
     private final MemberService memberService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Retrieves the list of surveys that have been completed by a specific member.
@@ -29,6 +43,22 @@ public class MemberController {
         return memberService.getCompletedSurveys(memberId);
     }
 
+    /**
+     * Retrieves one page of the surveys completed by a specific member. Used instead of the full list when
+     * the {@code limit} parameter is present.
+     *
+     * @param memberId the unique identifier of the member whose completed surveys are to be retrieved
+     * @param limit    the maximum number of surveys on the page, at most 1000
+     * @param cursor   the {@code nextCursor} of the previous page, omitted for the first page
+     * @return a {@code CursorPage} of {@code Survey} objects and the cursor of the next page
+     * @throws MemberNotFoundException if no member exists with the provided {@code memberId}
+     */
+    @GetMapping(value = "/{memberId}/surveys/completed", params = "limit")
+    public CursorPage<Survey> getCompletedSurveysPage(@PathVariable Long memberId, @RequestParam int limit,
+                                                      @RequestParam(required = false) String cursor) {
+        return memberService.getCompletedSurveys(memberId, cursor, limit);
+    }
+
     /**
      * Retrieves the total points accumulated by a specific member based on completed and filtered surveys.
      *
@@ -41,4 +71,59 @@ public class MemberController {
         return memberService.getPoints(memberId);
     }
 
+    /**
+     * Retrieves the points of many members in one call, e.g. for a reward run.
+     *
+     * @param memberIds the unique identifiers of the members whose points are to be retrieved
+     * @return the points by member id; members that do not exist are left out
+     */
+    @PostMapping("/points")
+    public Map<Long, Integer> getPoints(@RequestBody List<Long> memberIds) {
+        return memberService.getPoints(memberIds);
+    }
+
+    /**
+     * Retrieves the points of every member, including members without any points. The object is written member
+     * by member as the points are looked up, so memory use does not grow with the number of members.
+     *
+     * @return the response body writing the points by member id, in member id order
+     */
+    @GetMapping("/points")
+    public ResponseEntity<StreamingResponseBody> getAllPoints() {
+        Stream<MemberPoints> points = memberService.streamAllPoints();
+        if (DatasetETagInterceptor.checkNotModified(MediaType.APPLICATION_JSON)) {
+            points.close();
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> {
+            try (points) {
+                JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+                generator.writeStartObject();
+                for (Iterator<MemberPoints> iterator = points.iterator(); iterator.hasNext(); ) {
+                    MemberPoints member = iterator.next();
+                    generator.writeNumberField(member.getMemberId().toString(), member.getPoints());
+                }
+                generator.writeEndObject();
+                generator.flush();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Retrieves one page of the points of every member, in member id order. Used instead of the whole object
+     * when the {@code limit} parameter is present.
+     *
+     * @param limit  the maximum number of members on the page, at most 1000
+     * @param cursor the {@code nextCursor} of the previous page, omitted for the first page
+     * @return a {@code CursorPage} of {@code MemberPoints} objects and the cursor of the next page
+     */
+    @GetMapping(value = "/points", params = "limit")
+    public CursorPage<MemberPoints> getAllPointsPage(@RequestParam int limit,
+                                                     @RequestParam(required = false) String cursor) {
+        return memberService.getAllPoints(cursor, limit);
+    }
+
 }
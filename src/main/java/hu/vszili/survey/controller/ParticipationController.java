@@ -0,0 +1,54 @@
+package hu.vszili.survey.controller;
+
+import hu.vszili.survey.data.AppendResult;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.service.ParticipationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/participations")
+public class ParticipationController {
+
+    private final ParticipationService participationService;
+
+    /**
+     * Adds one participation, e.g. a status change reported by the survey router. It replaces the participation
+     * of the same member and survey, if there is one.
+     *
+     * @param participation the member, survey, status id and optional length of the participation
+     * @return the {@code AppendResult} with the dataset version that contains the participation
+     * @throws InvalidParticipationException if a field is missing or the status id is unknown
+     * @throws MemberNotFoundException       if no member exists with the participation's member ID
+     * @throws SurveyNotFoundException       if no survey exists with the participation's survey ID
+     */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public AppendResult add(@RequestBody Participation participation) {
+        return participationService.add(List.of(participation));
+    }
+
+    /**
+     * Adds many participations in one call, in order. Either all of them are added or none.
+     *
+     * @param participations the participations to add
+     * @return the {@code AppendResult} with the dataset version that contains the participations
+     * @throws InvalidParticipationException if the list is empty, a field is missing or a status id is unknown
+     * @throws MemberNotFoundException       if no member exists with a participation's member ID
+     * @throws SurveyNotFoundException       if no survey exists with a participation's survey ID
+     */
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public AppendResult addAll(@RequestBody List<Participation> participations) {
+        return participationService.add(participations);
+    }
+
+}
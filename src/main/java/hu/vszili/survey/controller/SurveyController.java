@@ -1,15 +1,24 @@
 package hu.vszili.survey.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import hu.vszili.survey.data.CursorPage;
 import hu.vszili.survey.data.Member;
 import hu.vszili.survey.data.SurveyStatistic;
 import hu.vszili.survey.service.SurveyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
@@ -17,6 +26,7 @@ import java.util.List;
 public class SurveyController {
 
     private final SurveyService surveyService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Retrieves a list of members who have completed the specified survey.
@@ -30,6 +40,36 @@ public class SurveyController {
         return surveyService.getMembersCompleted(surveyId);
     }
 
+    /**
+     * Retrieves one page of the members who have completed the specified survey. Used instead of the full list
+     * when the {@code limit} parameter is present.
+     *
+     * @param surveyId the unique identifier of the survey for which completed members are to be retrieved
+     * @param limit    the maximum number of members on the page, at most 1000
+     * @param cursor   the {@code nextCursor} of the previous page, omitted for the first page
+     * @return a {@code CursorPage} of {@code Member} objects and the cursor of the next page
+     * @throws SurveyNotFoundException if no survey exists with the provided {@code surveyId}
+     */
+    @GetMapping(value = "/{surveyId}/members/completed", params = "limit")
+    public CursorPage<Member> getCompletedMembersPage(@PathVariable Long surveyId, @RequestParam int limit,
+                                                      @RequestParam(required = false) String cursor) {
+        return surveyService.getMembersCompleted(surveyId, cursor, limit);
+    }
+
+    /**
+     * Streams the members who have completed the specified survey as newline-delimited JSON, one member per line,
+     * when the client accepts {@code application/x-ndjson}. Members are written as they are looked up, so memory
+     * use does not grow with the size of the result.
+     *
+     * @param surveyId the unique identifier of the survey for which completed members are to be retrieved
+     * @return the response body writing one {@code Member} per line
+     * @throws SurveyNotFoundException if no survey exists with the provided {@code surveyId}
+     */
+    @GetMapping(value = "/{surveyId}/members/completed", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCompletedMembers(@PathVariable Long surveyId) {
+        return this.ndjson(surveyService.streamMembersCompleted(surveyId));
+    }
+
     /**
      * Retrieves a list of eligible members for a specific survey. A member is considered eligible if
      * they have not participated in the given survey and their status for the survey is "Not asked".
@@ -43,10 +83,37 @@ public class SurveyController {
         return surveyService.getEligibleMembers(surveyId);
     }
 
+    /**
+     * Retrieves one page of the eligible members of the specified survey, in member id order. Used instead of
+     * the full list when the {@code limit} parameter is present.
+     *
+     * @param surveyId the unique identifier of the survey for which eligible members are to be retrieved
+     * @param limit    the maximum number of members on the page, at most 1000
+     * @param cursor   the {@code nextCursor} of the previous page, omitted for the first page
+     * @return a {@code CursorPage} of {@code Member} objects and the cursor of the next page
+     */
+    @GetMapping(value = "/{surveyId}/eligible-members", params = "limit")
+    public CursorPage<Member> getEligibleMembersPage(@PathVariable Long surveyId, @RequestParam int limit,
+                                                     @RequestParam(required = false) String cursor) {
+        return surveyService.getEligibleMembers(surveyId, cursor, limit);
+    }
+
+    /**
+     * Streams the eligible members of the specified survey as newline-delimited JSON, one member per line,
+     * when the client accepts {@code application/x-ndjson}.
+     *
+     * @param surveyId the unique identifier of the survey for which eligible members are to be retrieved
+     * @return the response body writing one {@code Member} per line
+     */
+    @GetMapping(value = "/{surveyId}/eligible-members", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamEligibleMembers(@PathVariable Long surveyId) {
+        return this.ndjson(surveyService.streamEligibleMembers(surveyId));
+    }
+
     /**
      * Retrieves statistical information about all surveys. The statistics include details such as the number
      * of completed, filtered, and rejected participations for each survey, as well as the average length
-     * of participations.
+     * of participations and its 50th, 90th and 99th percentile.
      *
      * @return a list of {@code SurveyStatistic} objects where each object contains statistical data for a survey
      */
@@ -55,4 +122,23 @@ public class SurveyController {
         return surveyService.getStatistics();
     }
 
+    private ResponseEntity<StreamingResponseBody> ndjson(Stream<?> items) {
+        if (DatasetETagInterceptor.checkNotModified(MediaType.APPLICATION_NDJSON)) {
+            items.close();
+            return null;
+        }
+        ObjectWriter writer = objectMapper.writer();
+        StreamingResponseBody body = outputStream -> {
+            try (items) {
+                for (Iterator<?> iterator = items.iterator(); iterator.hasNext(); ) {
+                    outputStream.write(writer.writeValueAsBytes(iterator.next()));
+                    outputStream.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
 }
@@ -0,0 +1,460 @@
+package hu.vszili.survey.csv;
+
+import hu.vszili.survey.exception.CsvReadingException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Forward-only CSV reader over a memory-mapped file.
+ * <p>
+ * The file is mapped in windows of at most {@link #WINDOW_SIZE} bytes; when a row crosses the end of a window
+ * the next window is mapped from the start of that row. Rows are split into fields in place and only
+ * string columns are decoded, numeric columns are parsed straight from the mapped bytes.
+ * The first row is the header. Fields may be quoted with {@code "}, a doubled quote escapes a quote.
+ * <p>
+ * For parallel parsing the data rows can be {@link #split(int) split} into newline-aligned byte ranges, each read
+ * by its own {@link #range(long, long) range reader}. Splitting assumes that quoted fields contain no line breaks.
+ * A range reader reports the same line numbers as a reader over the whole file; the lines before its range are only
+ * counted when a line number is asked for, which is normally only to report an error.
+ * Instances are not thread-safe, use one reader per thread.
+ */
+public final class MappedCsvReader implements Closeable {
+
+    static final long WINDOW_SIZE = 1L << 30;
+
+    private static final byte COMMA = ',';
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final Path path;
+    private final FileChannel channel;
+    private final String fileName;
+    private final long end;
+    private final long windowSize;
+    private final String[] header;
+    private final long dataOffset;
+
+    private MappedByteBuffer buffer;
+    private long windowStart;
+    private int position;
+    private long lineNumber;
+    private long rowStart;
+    /**
+     * Number of lines before {@link #dataOffset} not counted in {@link #lineNumber}, {@code -1} until counted.
+     */
+    private long linesBefore;
+
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private boolean[] fieldQuoted = new boolean[16];
+    private byte[] scratch = new byte[64];
+
+    private MappedCsvReader(Path path, long windowSize) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileName = String.valueOf(path.getFileName());
+        this.end = channel.size();
+        this.windowSize = windowSize;
+        this.map(0);
+        this.skipByteOrderMark();
+        if (!this.next()) {
+            channel.close();
+            throw new CsvReadingException(fileName + " has no header row");
+        }
+        this.header = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            header[i] = this.getString(i).trim();
+        }
+        this.dataOffset = windowStart + position;
+        this.lineNumber = 1;
+    }
+
+    private MappedCsvReader(MappedCsvReader source, long from, long to) throws IOException {
+        this.path = source.path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileName = source.fileName;
+        this.end = to;
+        this.windowSize = source.windowSize;
+        this.header = source.header;
+        this.dataOffset = from;
+        this.linesBefore = -1;
+        this.map(from);
+    }
+
+    public static MappedCsvReader open(Path path) throws IOException {
+        return new MappedCsvReader(path, WINDOW_SIZE);
+    }
+
+    static MappedCsvReader open(Path path, long windowSize) throws IOException {
+        return new MappedCsvReader(path, windowSize);
+    }
+
+    /**
+     * Returns the index of the named header column.
+     *
+     * @throws CsvReadingException if the header has no such column
+     */
+    public int columnIndex(String name) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new CsvReadingException(String.format("%s has no column '%s'", fileName, name));
+    }
+
+    /**
+     * Returns the number of columns in the header.
+     */
+    public int getColumnCount() {
+        return header.length;
+    }
+
+    /**
+     * Advances to the next non-blank row.
+     *
+     * @return {@code false} once the end of the file is reached
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            long rowStart = windowStart + position;
+            if (rowStart >= end) {
+                return false;
+            }
+            if (!this.splitRow()) {
+                // the row runs past the mapped window: remap from its first byte and split it again
+                this.map(rowStart);
+                if (!this.splitRow()) {
+                    throw new CsvReadingException(
+                            String.format("%s line %d is longer than %d bytes", fileName, this.getLineNumber() + 1, windowSize));
+                }
+            }
+            lineNumber++;
+            if (fieldCount > 1 || fieldEnds[0] > fieldStarts[0] || fieldQuoted[0]) {
+                this.rowStart = rowStart;
+                return true;
+            }
+        }
+    }
+
+    public boolean isEmpty(int column) {
+        this.checkColumn(column);
+        return fieldEnds[column] == fieldStarts[column];
+    }
+
+    public long getLong(int column) {
+        this.checkColumn(column);
+        int from = fieldStarts[column];
+        int to = fieldEnds[column];
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        boolean negative = from < to && buffer.get(from) == '-';
+        if (negative) {
+            from++;
+        }
+        if (from == to) {
+            throw this.invalid(column, "number");
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw this.invalid(column, "number");
+            }
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                throw this.invalid(column, "long");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    public int getInt(int column) {
+        long value = this.getLong(column);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw this.invalid(column, "int");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Returns the column as an int, or {@code emptyValue} when the field is empty.
+     */
+    public int getInt(int column, int emptyValue) {
+        return this.isEmpty(column) ? emptyValue : this.getInt(column);
+    }
+
+    /**
+     * Returns the column as an int that must not be negative, or {@code emptyValue} when the field is empty.
+     */
+    public int getNonNegativeInt(int column, int emptyValue) {
+        if (this.isEmpty(column)) {
+            return emptyValue;
+        }
+        int value = this.getInt(column);
+        if (value < 0) {
+            throw this.invalid(column, "non-negative int");
+        }
+        return value;
+    }
+
+    /**
+     * Returns the column as an {@code Integer}, or {@code null} when the field is empty.
+     */
+    public Integer getInteger(int column) {
+        return this.isEmpty(column) ? null : this.getInt(column);
+    }
+
+    /**
+     * Returns {@code true} for {@code 1} and {@code true} (any case), {@code false} for anything else.
+     */
+    public boolean getBoolean(int column) {
+        String value = this.getString(column).trim();
+        return "1".equals(value) || "true".equalsIgnoreCase(value);
+    }
+
+    public String getString(int column) {
+        this.checkColumn(column);
+        int from = fieldStarts[column];
+        int length = fieldEnds[column] - from;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(from, scratch, 0, length);
+        if (!fieldQuoted[column]) {
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        int unescaped = 0;
+        for (int i = 0; i < length; i++) {
+            scratch[unescaped++] = scratch[i];
+            if (scratch[i] == QUOTE) {
+                i++;
+            }
+        }
+        return new String(scratch, 0, unescaped, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the line number of the current row in the file, counting the header as line 1.
+     */
+    public long getLineNumber() {
+        if (linesBefore < 0) {
+            linesBefore = this.countLines(dataOffset);
+        }
+        return linesBefore + lineNumber;
+    }
+
+    /**
+     * Returns the byte offset of the first byte of the current row.
+     */
+    public long getRowStart() {
+        return rowStart;
+    }
+
+    /**
+     * Returns the byte offset right after the current row and its line break.
+     */
+    public long getRowEnd() {
+        return windowStart + position;
+    }
+
+    /**
+     * Returns the byte offset of the first data row, right after the header.
+     */
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * Splits the data rows into at most {@code parts} byte ranges that each start at the beginning of a line.
+     *
+     * @return {@code parts + 1} ascending offsets; range {@code i} is {@code [offsets[i], offsets[i + 1])}
+     */
+    public long[] split(int parts) throws IOException {
+        long[] offsets = new long[parts + 1];
+        offsets[0] = dataOffset;
+        offsets[parts] = end;
+        long size = end - dataOffset;
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        for (int i = 1; i < parts; i++) {
+            long nominal = dataOffset + size / parts * i;
+            offsets[i] = Math.max(offsets[i - 1], this.nextLineStart(nominal, probe));
+        }
+        return offsets;
+    }
+
+    /**
+     * Opens a reader over the data rows starting in {@code [from, to)}. Both offsets must be line starts,
+     * as returned by {@link #split(int)}. The range reader shares this reader's header but not its position.
+     */
+    public MappedCsvReader range(long from, long to) throws IOException {
+        return new MappedCsvReader(this, from, to);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Splits the row at the current position into fields.
+     *
+     * @return {@code false} if the mapped window ends before the row does and more of the file remains
+     */
+    private boolean splitRow() {
+        int limit = buffer.limit();
+        boolean windowIsLast = windowStart + limit >= end;
+        int i = position;
+        fieldCount = 0;
+        while (true) {
+            int start = i;
+            boolean quoted = i < limit && buffer.get(i) == QUOTE;
+            int fieldEnd;
+            if (quoted) {
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (!windowIsLast) {
+                            return false;
+                        }
+                        throw new CsvReadingException(
+                                String.format("%s line %d has an unterminated quote", fileName, this.getLineNumber() + 1));
+                    }
+                    if (buffer.get(i) == QUOTE) {
+                        if (i + 1 < limit && buffer.get(i + 1) == QUOTE) {
+                            i += 2;
+                            continue;
+                        }
+                        if (i + 1 >= limit && !windowIsLast) {
+                            return false;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fieldEnd = i++;
+                while (i < limit && buffer.get(i) != COMMA && buffer.get(i) != LF) {
+                    i++;
+                }
+            } else {
+                while (i < limit && buffer.get(i) != COMMA && buffer.get(i) != LF) {
+                    i++;
+                }
+                fieldEnd = i;
+            }
+            if (i >= limit && !windowIsLast) {
+                return false;
+            }
+            boolean lastField = i >= limit || buffer.get(i) != COMMA;
+            if (lastField && !quoted && fieldEnd > start && buffer.get(fieldEnd - 1) == CR) {
+                fieldEnd--;
+            }
+            this.addField(start, fieldEnd, quoted);
+            if (lastField) {
+                while (i < limit && buffer.get(i) != LF) {
+                    i++;
+                }
+                position = Math.min(i + 1, limit);
+                return true;
+            }
+            i++;
+        }
+    }
+
+    private void addField(int start, int fieldEnd, boolean quoted) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = fieldEnd;
+        fieldQuoted[fieldCount] = quoted;
+        fieldCount++;
+    }
+
+    private long nextLineStart(long offset, ByteBuffer probe) throws IOException {
+        long position = offset - 1;
+        while (position < end) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == LF) {
+                    return Math.min(position + i + 1, end);
+                }
+            }
+            position += read;
+        }
+        return end;
+    }
+
+    private long countLines(long to) {
+        ByteBuffer probe = ByteBuffer.allocate(1 << 16);
+        long lines = 0;
+        try {
+            for (long position = 0; position < to; ) {
+                probe.clear();
+                if (to - position < probe.capacity()) {
+                    probe.limit((int) (to - position));
+                }
+                int read = channel.read(probe, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == LF) {
+                        lines++;
+                    }
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new CsvReadingException(String.format("Error reading %s: %s", fileName, e.getMessage()));
+        }
+        return lines;
+    }
+
+    private void map(long offset) throws IOException {
+        long size = Math.min(windowSize, end - offset);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        windowStart = offset;
+        position = 0;
+    }
+
+    private void skipByteOrderMark() {
+        if (buffer.limit() >= 3
+                && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+            position = 3;
+        }
+    }
+
+    private void checkColumn(int column) {
+        if (column >= fieldCount) {
+            throw new CsvReadingException(String.format("%s line %d has %d columns, expected at least %d",
+                    fileName, this.getLineNumber(), fieldCount, column + 1));
+        }
+    }
+
+    private CsvReadingException invalid(int column, String type) {
+        return new CsvReadingException(String.format("%s line %d: '%s' in column '%s' is not a valid %s",
+                fileName, this.getLineNumber(), this.getString(column), header == null ? column : header[column], type));
+    }
+
+}
@@ -0,0 +1,13 @@
+package hu.vszili.survey.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class AppendResult {
+
+    private Long datasetVersion;
+    private Integer rows;
+
+}
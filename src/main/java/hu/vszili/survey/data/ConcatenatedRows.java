@@ -0,0 +1,67 @@
+package hu.vszili.survey.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows of several non-empty views one after the other, e.g. the answers of several shards. A position is resolved
+ * to its view by a binary search over the positions the views start at.
+ */
+final class ConcatenatedRows implements ParticipationRows {
+
+    private final ParticipationRows[] parts;
+    private final int[] starts;
+    private final int size;
+
+    ConcatenatedRows(List<? extends ParticipationRows> parts) {
+        this.parts = parts.toArray(new ParticipationRows[0]);
+        this.starts = new int[this.parts.length];
+        int position = 0;
+        for (int i = 0; i < this.parts.length; i++) {
+            starts[i] = position;
+            position += this.parts[i].size();
+        }
+        this.size = position;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memberId(int position) {
+        int part = this.part(position);
+        return parts[part].memberId(position - starts[part]);
+    }
+
+    @Override
+    public long surveyId(int position) {
+        int part = this.part(position);
+        return parts[part].surveyId(position - starts[part]);
+    }
+
+    @Override
+    public byte status(int position) {
+        int part = this.part(position);
+        return parts[part].status(position - starts[part]);
+    }
+
+    @Override
+    public boolean hasLength(int position) {
+        int part = this.part(position);
+        return parts[part].hasLength(position - starts[part]);
+    }
+
+    @Override
+    public int length(int position) {
+        int part = this.part(position);
+        return parts[part].length(position - starts[part]);
+    }
+
+    private int part(int position) {
+        int part = Arrays.binarySearch(starts, position);
+        return part >= 0 ? part : -part - 2;
+    }
+
+}
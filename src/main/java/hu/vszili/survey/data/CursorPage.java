@@ -0,0 +1,19 @@
+package hu.vszili.survey.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a list endpoint. {@code nextCursor} is passed back as the {@code cursor} parameter to get the
+ * next page and is {@code null} on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+
+}
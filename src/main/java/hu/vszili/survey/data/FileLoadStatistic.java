@@ -0,0 +1,15 @@
+package hu.vszili.survey.data;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class FileLoadStatistic {
+
+    private String fileName;
+    private Long rows;
+    private Long bytes;
+    private Long durationMillis;
+
+}
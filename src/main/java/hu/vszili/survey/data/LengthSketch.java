@@ -0,0 +1,188 @@
+package hu.vszili.survey.data;
+
+/**
+ * Mergeable quantile sketch of interview lengths. A positive length falls into the bucket of the power of
+ * {@code gamma = (1 + a) / (1 - a)} just above it, with {@code a} the {@link #RELATIVE_ACCURACY}, and lengths up to 0
+ * are counted together as 0. Every quantile is then known to within {@code a} of its true value, with about a
+ * thousand buckets for any int length and one pass over the rows. Sketches of disjoint rows merge by adding
+ * bucket counts, so the result does not depend on how the rows were split or in which order they were added.
+ * <p>
+ * Buckets are kept in an array covering the keys seen so far. Not thread-safe; a sketch is only added to and removed
+ * from while its {@link SurveyAggregate} is built.
+ */
+public final class LengthSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int MAX_KEY = key(Integer.MAX_VALUE);
+    private static final long[] NO_COUNTS = new long[0];
+    /**
+     * Keys of the lengths below 4096, which covers nearly every interview, so adding one is a table lookup.
+     */
+    private static final int[] SMALL_KEYS = new int[1 << 12];
+
+    static {
+        for (int length = 1; length < SMALL_KEYS.length; length++) {
+            SMALL_KEYS[length] = key(length);
+        }
+    }
+
+    private long zeroCount;
+    /**
+     * Key of the bucket counted in {@code counts[0]}.
+     */
+    private int offset;
+    private long[] counts = NO_COUNTS;
+    private long count;
+
+    public LengthSketch() {
+    }
+
+    /**
+     * Restores a sketch from its buckets, e.g. from a snapshot.
+     *
+     * @param zeroCount the number of lengths up to 0
+     * @param offset    the key of the first bucket in {@code counts}
+     * @param counts    the number of lengths per bucket, from key {@code offset} on
+     */
+    public LengthSketch(long zeroCount, int offset, long[] counts) {
+        if (offset < 0 || offset + counts.length > MAX_KEY + 1) {
+            throw new IllegalArgumentException("Buckets out of range: " + offset + " + " + counts.length);
+        }
+        this.zeroCount = zeroCount;
+        this.offset = offset;
+        this.counts = counts.length == 0 ? NO_COUNTS : counts.clone();
+        this.count = zeroCount;
+        for (long bucket : counts) {
+            this.count += bucket;
+        }
+    }
+
+    public void add(int length) {
+        count++;
+        if (length <= 0) {
+            zeroCount++;
+            return;
+        }
+        int key = length < SMALL_KEYS.length ? SMALL_KEYS[length] : key(length);
+        if (key < offset || key >= offset + counts.length) {
+            this.grow(key);
+        }
+        counts[key - offset]++;
+    }
+
+    /**
+     * Takes back a length added before.
+     */
+    public void remove(int length) {
+        count--;
+        if (length <= 0) {
+            zeroCount--;
+            return;
+        }
+        int key = length < SMALL_KEYS.length ? SMALL_KEYS[length] : key(length);
+        counts[key - offset]--;
+    }
+
+    /**
+     * Returns a sketch of the lengths of this sketch and {@code other}, without changing either of them.
+     */
+    public LengthSketch plus(LengthSketch other) {
+        if (other.counts.length == 0 || counts.length == 0) {
+            LengthSketch buckets = counts.length == 0 ? other : this;
+            return new LengthSketch(zeroCount + other.zeroCount, buckets.offset, buckets.counts);
+        }
+        int from = Math.min(offset, other.offset);
+        long[] merged = new long[Math.max(offset + counts.length, other.offset + other.counts.length) - from];
+        for (int i = 0; i < counts.length; i++) {
+            merged[offset - from + i] += counts[i];
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            merged[other.offset - from + i] += other.counts[i];
+        }
+        return new LengthSketch(zeroCount + other.zeroCount, from, merged);
+    }
+
+    /**
+     * Returns the length at quantile {@code q}, i.e. the lower of the two lengths around rank {@code q * (n - 1)}
+     * of the {@code n} sketched lengths, to within {@link #RELATIVE_ACCURACY}.
+     *
+     * @param q the quantile, from 0 to 1
+     * @return the estimated length, {@code 0.0} if no length was added
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = (long) (q * (count - 1));
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0.0;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                return value(offset + i);
+            }
+        }
+        throw new IllegalStateException("Sketch holds fewer than " + count + " lengths");
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getZeroCount() {
+        return zeroCount;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    public LengthSketch copy() {
+        return new LengthSketch(zeroCount, offset, counts);
+    }
+
+    /**
+     * Widens the bucket array to hold {@code key}, by at least half its size in that direction, so lengths spreading
+     * out one bucket at a time do not copy it every time.
+     */
+    private void grow(int key) {
+        if (counts.length == 0) {
+            offset = key;
+            counts = new long[1];
+            return;
+        }
+        int slack = Math.max(1, counts.length / 2);
+        int from = key < offset ? Math.max(0, Math.min(key, offset - slack)) : offset;
+        int to = key < offset
+                ? offset + counts.length
+                : Math.min(MAX_KEY + 1, Math.max(key + 1, offset + counts.length + slack));
+        long[] grown = new long[to - from];
+        System.arraycopy(counts, 0, grown, offset - from, counts.length);
+        offset = from;
+        counts = grown;
+    }
+
+    private static int key(int length) {
+        return (int) Math.ceil(Math.log(length) / LOG_GAMMA);
+    }
+
+    /**
+     * Returns the length the bucket stands for: within {@link #RELATIVE_ACCURACY} of every length in it.
+     */
+    private static double value(int key) {
+        return 2 * Math.pow(GAMMA, key) / (GAMMA + 1);
+    }
+
+}
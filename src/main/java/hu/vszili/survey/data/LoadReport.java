@@ -0,0 +1,29 @@
+package hu.vszili.survey.data;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder(toBuilder = true)
+public class LoadReport {
+
+    private Long datasetVersion;
+    private Source source;
+    private List<FileLoadStatistic> files;
+    private Long indexDurationMillis;
+    private Long totalDurationMillis;
+    private LocalDateTime loadedAt;
+    /**
+     * Participations appended through the API since the load; their appends also advance {@code datasetVersion}.
+     */
+    private Long appendedRows;
+
+    public enum Source {
+        CSV,
+        SNAPSHOT
+    }
+
+}
@@ -0,0 +1,16 @@
+package hu.vszili.survey.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The points of one member, as listed by the pages of every member's points.
+ */
+@Data
+@AllArgsConstructor
+public class MemberPoints {
+
+    private Long memberId;
+    private Integer points;
+
+}
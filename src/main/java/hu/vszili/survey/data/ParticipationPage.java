@@ -0,0 +1,32 @@
+package hu.vszili.survey.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Rows of one page read from a per-key participation index, the index position the next page starts at and the
+ * number of index rows the page read.
+ */
+@Getter
+@AllArgsConstructor
+public class ParticipationPage {
+
+    public static final long END = -1;
+
+    private final ParticipationRows rows;
+
+    /**
+     * Position in the index to continue from, or {@link #END} if the index has no more rows.
+     */
+    private final long nextPosition;
+
+    /**
+     * Index rows read for the page: the rows returned and the rows with other statuses skipped in between.
+     */
+    private final int scannedRows;
+
+    public boolean hasNext() {
+        return nextPosition != END;
+    }
+
+}
@@ -0,0 +1,44 @@
+package hu.vszili.survey.data;
+
+import java.util.List;
+
+/**
+ * Read-only view over participation rows addressed by position ({@code 0..size()-1}).
+ * Values are exposed as primitives so callers can iterate without boxing.
+ */
+public interface ParticipationRows {
+
+    ParticipationRows EMPTY = new ParticipationTable(0);
+
+    int size();
+
+    long memberId(int position);
+
+    long surveyId(int position);
+
+    /**
+     * Returns the dictionary code of the row's status, see {@link StatusCodes}.
+     */
+    byte status(int position);
+
+    boolean hasLength(int position);
+
+    int length(int position);
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a view over the rows of {@code parts} one after the other, in the order of the list.
+     */
+    static ParticipationRows concat(List<? extends ParticipationRows> parts) {
+        List<? extends ParticipationRows> nonEmpty = parts.stream().filter(rows -> !rows.isEmpty()).toList();
+        return switch (nonEmpty.size()) {
+            case 0 -> EMPTY;
+            case 1 -> nonEmpty.get(0);
+            default -> new ConcatenatedRows(nonEmpty);
+        };
+    }
+
+}
@@ -0,0 +1,179 @@
+package hu.vszili.survey.data;
+
+import java.util.Arrays;
+
+/**
+ * Columnar participation store: one primitive array per CSV column instead of one object per row.
+ * Statuses are stored as their dictionary code (see {@link StatusCodes}), a missing length as {@link #NO_LENGTH}.
+ */
+public class ParticipationTable implements ParticipationRows {
+
+    public static final int NO_LENGTH = -1;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int[] memberIds;
+    private int[] surveyIds;
+    private byte[] statuses;
+    private int[] lengths;
+    private int size;
+
+    public ParticipationTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ParticipationTable(int capacity) {
+        memberIds = new int[capacity];
+        surveyIds = new int[capacity];
+        statuses = new byte[capacity];
+        lengths = new int[capacity];
+    }
+
+    /**
+     * Wraps existing columns of equal length without copying them, e.g. ones read from a snapshot.
+     */
+    public ParticipationTable(int[] memberIds, int[] surveyIds, byte[] statuses, int[] lengths) {
+        this(memberIds, surveyIds, statuses, lengths, memberIds.length);
+        if (surveyIds.length != memberIds.length || statuses.length != memberIds.length
+                || lengths.length != memberIds.length) {
+            throw new IllegalArgumentException("Columns differ in length");
+        }
+    }
+
+    private ParticipationTable(int[] memberIds, int[] surveyIds, byte[] statuses, int[] lengths, int size) {
+        this.memberIds = memberIds;
+        this.surveyIds = surveyIds;
+        this.statuses = statuses;
+        this.lengths = lengths;
+        this.size = size;
+    }
+
+    /**
+     * Returns a table with the same rows that shares this table's columns. Adding to the fork only writes past
+     * this table's last row or into copied columns, so this table can still be read, without locking, while the
+     * fork is added to. Only the newest fork may be added to, and this table must not be added to any more.
+     */
+    public ParticipationTable fork() {
+        return new ParticipationTable(memberIds, surveyIds, statuses, lengths, size);
+    }
+
+    public void add(long memberId, long surveyId, byte status, int length) {
+        if (status < 0) {
+            throw new IllegalArgumentException("Invalid status code: " + status);
+        }
+        if (length < 0 && length != NO_LENGTH) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        if (size == memberIds.length) {
+            grow();
+        }
+        memberIds[size] = Math.toIntExact(memberId);
+        surveyIds[size] = Math.toIntExact(surveyId);
+        statuses[size] = status;
+        lengths[size] = length;
+        size++;
+    }
+
+    /**
+     * Appends all rows of {@code other} to this table, keeping their order.
+     */
+    public void addAll(ParticipationTable other) {
+        if (size + other.size > memberIds.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.memberIds, 0, memberIds, size, other.size);
+        System.arraycopy(other.surveyIds, 0, surveyIds, size, other.size);
+        System.arraycopy(other.statuses, 0, statuses, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        size += other.size;
+    }
+
+    private void grow() {
+        grow(Math.max(DEFAULT_CAPACITY, memberIds.length + (memberIds.length >> 1)));
+    }
+
+    private void grow(int capacity) {
+        memberIds = Arrays.copyOf(memberIds, capacity);
+        surveyIds = Arrays.copyOf(surveyIds, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    /**
+     * Returns a view over the given rows of this table, in the order of {@code rowIds}.
+     */
+    public ParticipationRows select(int[] rowIds) {
+        return new Selection(rowIds);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memberId(int row) {
+        return memberIds[row];
+    }
+
+    @Override
+    public long surveyId(int row) {
+        return surveyIds[row];
+    }
+
+    @Override
+    public byte status(int row) {
+        return statuses[row];
+    }
+
+    @Override
+    public boolean hasLength(int row) {
+        return lengths[row] != NO_LENGTH;
+    }
+
+    @Override
+    public int length(int row) {
+        return lengths[row];
+    }
+
+    private final class Selection implements ParticipationRows {
+
+        private final int[] rowIds;
+
+        private Selection(int[] rowIds) {
+            this.rowIds = rowIds;
+        }
+
+        @Override
+        public int size() {
+            return rowIds.length;
+        }
+
+        @Override
+        public long memberId(int position) {
+            return memberIds[rowIds[position]];
+        }
+
+        @Override
+        public long surveyId(int position) {
+            return surveyIds[rowIds[position]];
+        }
+
+        @Override
+        public byte status(int position) {
+            return statuses[rowIds[position]];
+        }
+
+        @Override
+        public boolean hasLength(int position) {
+            return lengths[rowIds[position]] != NO_LENGTH;
+        }
+
+        @Override
+        public int length(int position) {
+            return lengths[rowIds[position]];
+        }
+
+    }
+
+}
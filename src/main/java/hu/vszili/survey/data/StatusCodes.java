@@ -0,0 +1,27 @@
+package hu.vszili.survey.data;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Codes of the well-known statuses in one dataset, resolved once when its statuses are loaded. Participation rows
+ * store statuses as these codes, so a status check is a comparison of two bytes. A status missing from the dataset
+ * has the code {@link #NO_CODE}, which no row has.
+ */
+@Getter
+@AllArgsConstructor
+public class StatusCodes {
+
+    public static final byte NO_CODE = -1;
+
+    public static final String NOT_ASKED = "Not asked";
+    public static final String REJECTED = "Rejected";
+    public static final String FILTERED = "Filtered";
+    public static final String COMPLETED = "Completed";
+
+    private final byte notAsked;
+    private final byte rejected;
+    private final byte filtered;
+    private final byte completed;
+
+}
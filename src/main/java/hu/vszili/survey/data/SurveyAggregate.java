@@ -0,0 +1,109 @@
+package hu.vszili.survey.data;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Running totals of one survey's participations: row count per status code plus the sum, count and
+ * {@link LengthSketch} of known lengths. Updated once per added or removed row, so statistics never need to rescan
+ * participations.
+ */
+public class SurveyAggregate {
+
+    @Getter
+    private final long surveyId;
+
+    private long[] countsByStatus = new long[8];
+    @Getter
+    private long lengthSum;
+    @Getter
+    private long lengthCount;
+    private final LengthSketch lengths;
+
+    public SurveyAggregate(long surveyId) {
+        this.surveyId = surveyId;
+        this.lengths = new LengthSketch();
+    }
+
+    /**
+     * Restores previously computed totals, e.g. from a snapshot.
+     */
+    public SurveyAggregate(long surveyId, long[] countsByStatus, long lengthSum, long lengthCount,
+                           LengthSketch lengths) {
+        this.surveyId = surveyId;
+        this.countsByStatus = countsByStatus.clone();
+        this.lengthSum = lengthSum;
+        this.lengthCount = lengthCount;
+        this.lengths = lengths.copy();
+    }
+
+    public void add(byte status, int length) {
+        int index = status;
+        if (index >= countsByStatus.length) {
+            countsByStatus = Arrays.copyOf(countsByStatus, index + 1);
+        }
+        countsByStatus[index]++;
+        if (length != ParticipationTable.NO_LENGTH) {
+            lengthSum += length;
+            lengthCount++;
+            lengths.add(length);
+        }
+    }
+
+    /**
+     * Takes back a row added before, e.g. one replaced by a newer row of the same member.
+     */
+    public void remove(byte status, int length) {
+        countsByStatus[status]--;
+        if (length != ParticipationTable.NO_LENGTH) {
+            lengthSum -= length;
+            lengthCount--;
+            lengths.remove(length);
+        }
+    }
+
+    /**
+     * Returns the totals of this aggregate and {@code other}, which holds other rows of the same survey, without
+     * changing either of them.
+     */
+    public SurveyAggregate plus(SurveyAggregate other) {
+        long[] counts = Arrays.copyOf(countsByStatus, Math.max(countsByStatus.length, other.countsByStatus.length));
+        for (int status = 0; status < other.countsByStatus.length; status++) {
+            counts[status] += other.countsByStatus[status];
+        }
+        return new SurveyAggregate(surveyId, counts, lengthSum + other.lengthSum, lengthCount + other.lengthCount,
+                lengths.plus(other.lengths));
+    }
+
+    /**
+     * Returns a copy that can be added to without changing this aggregate.
+     */
+    public SurveyAggregate copy() {
+        return new SurveyAggregate(surveyId, countsByStatus, lengthSum, lengthCount, lengths);
+    }
+
+    public long count(byte status) {
+        return status >= 0 && status < countsByStatus.length ? countsByStatus[status] : 0L;
+    }
+
+    public long[] getCountsByStatus() {
+        return countsByStatus.clone();
+    }
+
+    public LengthSketch getLengths() {
+        return lengths.copy();
+    }
+
+    public double averageLength() {
+        return lengthCount == 0 ? 0.0 : (double) lengthSum / lengthCount;
+    }
+
+    /**
+     * Returns the known length at quantile {@code q}, see {@link LengthSketch#quantile(double)}.
+     */
+    public double lengthQuantile(double q) {
+        return lengths.quantile(q);
+    }
+
+}
@@ -13,5 +13,8 @@ public class SurveyStatistic {
     private Long filteredCount;
     private Long rejectedCount;
     private Double averageLength;
+    private Double p50Length;
+    private Double p90Length;
+    private Double p99Length;
 
 }
@@ -2,8 +2,9 @@ package hu.vszili.survey.exception;
 
 import hu.vszili.survey.data.ErrorResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.time.LocalDateTime;
@@ -11,10 +12,21 @@ import java.time.LocalDateTime;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
-    @ResponseStatus(HttpStatus.NOT_FOUND)
+    /**
+     * The content type is set explicitly, so the error is rendered as JSON for streaming (NDJSON) requests too.
+     */
     @ExceptionHandler(value = {SurveyNotFoundException.class, MemberNotFoundException.class})
-    public ErrorResponse handleNotFoundException(Exception ex) {
-        return new ErrorResponse(HttpStatus.NOT_FOUND.value(), ex.getMessage(), LocalDateTime.now());
+    public ResponseEntity<ErrorResponse> handleNotFoundException(Exception ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ErrorResponse(HttpStatus.NOT_FOUND.value(), ex.getMessage(), LocalDateTime.now()));
+    }
+
+    @ExceptionHandler(value = {InvalidPageRequestException.class, InvalidParticipationException.class})
+    public ResponseEntity<ErrorResponse> handleBadRequestException(Exception ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ErrorResponse(HttpStatus.BAD_REQUEST.value(), ex.getMessage(), LocalDateTime.now()));
     }
 
 }
@@ -0,0 +1,7 @@
+package hu.vszili.survey.exception;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
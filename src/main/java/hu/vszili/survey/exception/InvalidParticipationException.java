@@ -0,0 +1,7 @@
+package hu.vszili.survey.exception;
+
+public class InvalidParticipationException extends RuntimeException {
+    public InvalidParticipationException(String message) {
+        super(message);
+    }
+}
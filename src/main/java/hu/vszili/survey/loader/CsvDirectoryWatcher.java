@@ -0,0 +1,99 @@
+package hu.vszili.survey.loader;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the dataset when a CSV file in {@code csv.base-path} is created or modified. Exports usually
+ * replace several files, so the reload waits until no change has been seen for {@code csv.watch.quiet-period-ms}.
+ * Enabled with {@code csv.watch.enabled=true}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "csv.watch.enabled", havingValue = "true")
+public class CsvDirectoryWatcher {
+
+    private final DataLoader dataLoader;
+
+    @Value("${csv.base-path}")
+    private String csvBasePath;
+
+    @Value("${csv.watch.quiet-period-ms:2000}")
+    private long quietPeriodMillis;
+
+    private WatchService watchService;
+
+    @PostConstruct
+    private void start() throws IOException {
+        Path directory = Path.of(csvBasePath).toAbsolutePath();
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(this::watch, "csv-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} for CSV changes", directory);
+    }
+
+    @PreDestroy
+    private void stop() throws IOException {
+        watchService.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (this.csvChanged(watchService.take())) {
+                    this.awaitQuietPeriod();
+                    this.reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("CSV watcher stopped");
+        }
+    }
+
+    private void awaitQuietPeriod() throws InterruptedException {
+        WatchKey key;
+        while ((key = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS)) != null) {
+            this.csvChanged(key);
+        }
+    }
+
+    private boolean csvChanged(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path file && file.toString().endsWith(".csv")) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            dataLoader.reload();
+        } catch (RuntimeException e) {
+            log.error("Reload after CSV change failed, keeping the current dataset", e);
+        }
+    }
+
+}
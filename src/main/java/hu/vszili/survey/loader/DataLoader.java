@@ -0,0 +1,628 @@
+package hu.vszili.survey.loader;
+
+import hu.vszili.survey.data.FileLoadStatistic;
+import hu.vszili.survey.data.LoadReport;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.exception.CsvReadingException;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import hu.vszili.survey.exception.MemberNotFoundException;
+import hu.vszili.survey.exception.SurveyNotFoundException;
+import hu.vszili.survey.store.Dataset;
+import hu.vszili.survey.store.DatasetHolder;
+import hu.vszili.survey.store.DatasetSnapshot;
+import hu.vszili.survey.store.MemberStore;
+import hu.vszili.survey.store.ParticipationShards;
+import hu.vszili.survey.store.ParticipationStore;
+import hu.vszili.survey.store.StatusStore;
+import hu.vszili.survey.store.SurveyStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Builds a complete {@link Dataset} from the CSV files in {@code csv.base-path} and publishes it through the
+ * {@link DatasetHolder}. The files are read concurrently, one thread per file, except that participations wait for
+ * the (small) status dictionary their status ids are encoded with; then the indexes that combine several files are
+ * built. Requests keep being served from the previous dataset until the new one is swapped in; if loading fails
+ * the previous dataset stays in place.
+ * <p>
+ * Participations are split into {@code csv.participation.shards} {@link ParticipationShards} by member.
+ * <p>
+ * When {@code csv.snapshot.path} is set, every load from CSV also writes a {@link DatasetSnapshot}, and startup
+ * restores the dataset from that snapshot instead while the CSV files are unchanged and it has as many shards.
+ * <p>
+ * Participations can also be appended to the dataset served, each append publishing a new version. Appends and
+ * loads are serialized, so the {@link DatasetHolder} has a single writer.
+ * <p>
+ * When {@code csv.participation.log.path} is set, appends are made durable in a {@link ParticipationLog} first and
+ * every load replays the log on top of the CSV files or the snapshot. Appends are then queued and committed in
+ * groups by one thread: whatever queued up while the previous group was being forced to disk is written as one frame
+ * with one fsync and appended to the dataset as one new version. Once the log outgrows
+ * {@code csv.participation.log.compact-bytes} it is compacted into {@code Participation.csv}.
+ */
+@Slf4j
+@Component
+public class DataLoader {
+
+    static final String LOAD_TIMER = "survey.dataset.load";
+    static final String FILE_LOAD_TIMER = "survey.dataset.file.load";
+    static final String INDEX_BUILD_TIMER = "survey.dataset.index.build";
+    static final String APPENDED_COUNTER = "survey.participation.appended";
+    static final String LOG_COMMIT_SUMMARY = "survey.participation.log.commit";
+
+    private static final List<String> SOURCE_FILES = List.of(
+            MemberStore.FILE_NAME, StatusStore.FILE_NAME, SurveyStore.FILE_NAME, ParticipationStore.FILE_NAME);
+
+    /**
+     * Queued by {@link #close()} to stop the committer after the appends queued before it.
+     */
+    private static final PendingAppend STOP = new PendingAppend(List.of(), new CompletableFuture<>());
+
+    private final DatasetHolder datasetHolder;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter appendedRows;
+
+    private final DistributionSummary logCommitRows;
+
+    private final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("csv-loader-");
+
+    private final BlockingQueue<PendingAppend> pendingAppends = new LinkedBlockingQueue<>();
+
+    @Value("${csv.base-path}")
+    private String csvBasePath;
+
+    @Value("${csv.participation.parallelism:0}")
+    private int parallelism;
+
+    @Value("${csv.participation.shards:1}")
+    private int shards;
+
+    @Value("${csv.snapshot.path:}")
+    private String snapshotPath;
+
+    @Value("${csv.participation.log.path:}")
+    private String participationLogPath;
+
+    @Value("${csv.participation.log.compact-bytes:67108864}")
+    private long compactBytes;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ParticipationLog participationLog;
+
+    private Thread committer;
+
+    private volatile boolean closed;
+
+    public DataLoader(DatasetHolder datasetHolder, MeterRegistry meterRegistry) {
+        this.datasetHolder = datasetHolder;
+        this.meterRegistry = meterRegistry;
+        this.appendedRows = Counter.builder(APPENDED_COUNTER)
+                .description("Participations appended to the dataset served")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        this.logCommitRows = DistributionSummary.builder(LOG_COMMIT_SUMMARY)
+                .description("Participations written to the log per fsync")
+                .baseUnit("rows")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    private void init() {
+        // file loads mostly wait for I/O; the participation parse keeps its own pool of platform threads
+        executor.setVirtualThreads(virtualThreads);
+        if (!participationLogPath.isBlank()) {
+            this.openParticipationLog();
+        }
+        if (this.restore().isEmpty()) {
+            this.reload();
+        }
+    }
+
+    /**
+     * Commits the appends queued so far, fails the ones queued later and closes the participation log. The
+     * committer is stopped by a queued marker rather than interrupted, since an interrupt during a write would
+     * close the log's channel.
+     */
+    @PreDestroy
+    void close() throws InterruptedException, IOException {
+        if (committer == null) {
+            return;
+        }
+        closed = true;
+        pendingAppends.add(STOP);
+        committer.join();
+        committer = null;
+        List<PendingAppend> pending = new ArrayList<>();
+        pendingAppends.drainTo(pending);
+        failClosed(pending);
+        participationLog.close();
+    }
+
+    /**
+     * Publishes the dataset stored in the snapshot, if snapshots are enabled and the snapshot matches the CSV files.
+     *
+     * @return the report of the load, or empty if the CSV files have to be read
+     */
+    synchronized Optional<LoadReport> restore() {
+        if (snapshotPath.isBlank()) {
+            return Optional.empty();
+        }
+        Path file = Path.of(snapshotPath);
+        long start = System.nanoTime();
+        Optional<DatasetSnapshot> snapshot;
+        try {
+            snapshot = DatasetSnapshot.read(file, this.fingerprintSources());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot restore snapshot {}, reading CSV files instead: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+        if (snapshot.isEmpty()) {
+            return Optional.empty();
+        }
+        if (snapshot.get().getParticipation().count() != shards) {
+            log.info("Ignoring snapshot {}: {} participation shards instead of {}", file,
+                    snapshot.get().getParticipation().count(), shards);
+            return Optional.empty();
+        }
+
+        long durationMillis = this.millisSince(start);
+        List<Participation> logged = this.readParticipationLog(snapshot.get().getStatuses());
+        ParticipationShards participation = this.replay(snapshot.get().getParticipation(),
+                snapshot.get().getStatuses(), snapshot.get().getSurveys(), logged);
+
+        long version = datasetHolder.nextVersion();
+        LoadReport report = LoadReport.builder()
+                .datasetVersion(version)
+                .source(LoadReport.Source.SNAPSHOT)
+                .files(List.of(FileLoadStatistic.builder()
+                        .fileName(String.valueOf(file.getFileName()))
+                        .rows((long) snapshot.get().getParticipation().size())
+                        .bytes(this.sizeOf(file))
+                        .durationMillis(durationMillis)
+                        .build()))
+                .indexDurationMillis(0L)
+                .totalDurationMillis(this.millisSince(start))
+                .appendedRows((long) logged.size())
+                .loadedAt(LocalDateTime.now())
+                .build();
+        datasetHolder.swap(new Dataset(version, snapshot.get().getMembers(), snapshot.get().getStatuses(),
+                snapshot.get().getSurveys(), participation, report));
+        this.recordMetrics(report);
+        log.info("Dataset {} restored from snapshot {} in {} ms", version, file, report.getTotalDurationMillis());
+        return Optional.of(report);
+    }
+
+    /**
+     * Loads the CSV files into a new dataset and swaps it in. Concurrent calls are serialized.
+     *
+     * @return the report of the load
+     */
+    public synchronized LoadReport reload() {
+        long start = System.nanoTime();
+        List<DatasetSnapshot.Source> sources = snapshotPath.isBlank() ? List.of() : this.fingerprintSourcesOrFail();
+        CompletableFuture<Loaded<MemberStore>> members =
+                this.loadAsync(MemberStore.FILE_NAME, MemberStore::read, MemberStore::size);
+        CompletableFuture<Loaded<StatusStore>> statuses =
+                this.loadAsync(StatusStore.FILE_NAME, StatusStore::read, StatusStore::size);
+        CompletableFuture<Loaded<SurveyStore>> surveys =
+                this.loadAsync(SurveyStore.FILE_NAME, SurveyStore::read, SurveyStore::size);
+        CompletableFuture<Loaded<ParticipationShards>> participation = statuses.thenApplyAsync(
+                loaded -> this.load(ParticipationStore.FILE_NAME,
+                        file -> ParticipationShards.read(file, loaded.store(), parallelism, shards),
+                        ParticipationShards::size),
+                executor);
+        List<FileLoadStatistic> files = List.of(
+                this.join(members).statistic(),
+                this.join(statuses).statistic(),
+                this.join(surveys).statistic(),
+                this.join(participation).statistic());
+
+        long indexStart = System.nanoTime();
+        participation.join().store().buildDerivedIndexes(statuses.join().store(), surveys.join().store());
+        long indexDurationMillis = this.millisSince(indexStart);
+        log.info("Built participation indexes in {} ms", indexDurationMillis);
+        List<Participation> logged = this.readParticipationLog(statuses.join().store());
+        ParticipationShards replayed = this.replay(participation.join().store(), statuses.join().store(),
+                surveys.join().store(), logged);
+
+        long version = datasetHolder.nextVersion();
+        LoadReport report = LoadReport.builder()
+                .datasetVersion(version)
+                .source(LoadReport.Source.CSV)
+                .files(files)
+                .indexDurationMillis(indexDurationMillis)
+                .totalDurationMillis(this.millisSince(start))
+                .appendedRows((long) logged.size())
+                .loadedAt(LocalDateTime.now())
+                .build();
+        datasetHolder.swap(new Dataset(version, members.join().store(), statuses.join().store(),
+                surveys.join().store(), replayed, report));
+        this.recordMetrics(report);
+        log.info("Dataset {} loaded in {} ms", version, report.getTotalDurationMillis());
+        if (!snapshotPath.isBlank()) {
+            // the snapshot holds the CSV files only, the log is replayed on top of it
+            this.writeSnapshot(new Dataset(version, members.join().store(), statuses.join().store(),
+                    surveys.join().store(), participation.join().store(), report), sources);
+        }
+        return report;
+    }
+
+    /**
+     * Appends participations to the dataset currently served and publishes the result as a new version. A
+     * participation replaces the one of the same member and survey, see {@link ParticipationShards#append}. Rows
+     * appended while a reload runs wait for it and are appended to the reloaded dataset. Without a participation
+     * log appended rows are only kept in memory and the next reload reads the CSV files without them; with one
+     * this returns once the rows are on disk, and the dataset returned may hold rows of concurrent appends too.
+     *
+     * @param participations the participations to append, in order
+     * @return the new dataset
+     * @throws InvalidParticipationException if a participation has an unknown status id, an id out of range or a
+     *                                       negative length
+     * @throws MemberNotFoundException       if a participation's member is not in the dataset appended to
+     * @throws SurveyNotFoundException       if a participation's survey is not in the dataset appended to
+     * @throws UncheckedIOException if the participation log cannot be written
+     */
+    public Dataset append(List<Participation> participations) {
+        if (participationLog == null) {
+            return this.appendToDataset(participations);
+        }
+        PendingAppend pending = new PendingAppend(participations, new CompletableFuture<>());
+        pendingAppends.add(pending);
+        if (closed && pendingAppends.remove(pending)) {
+            // queued after the committer stopped and the queue was drained, nobody else will complete it
+            failClosed(List.of(pending));
+        }
+        try {
+            return pending.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the participation log");
+        } catch (ExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Compacts the participation log into {@code Participation.csv}, so the rows appended so far become part of
+     * the CSV files, and writes a fresh snapshot if snapshots are enabled. The dataset served does not change.
+     *
+     * @return the report of the dataset currently served
+     * @throws CsvReadingException if {@code Participation.csv} cannot be replaced; the log is kept then
+     */
+    public synchronized LoadReport compact() {
+        if (participationLog != null) {
+            Path baseFile = Path.of(csvBasePath + ParticipationStore.FILE_NAME);
+            long start = System.nanoTime();
+            int rows;
+            try {
+                StatusStore statuses = datasetHolder.get().getStatuses();
+                rows = participationLog.compactInto(baseFile,
+                        participation -> this.isAppendable(participation, statuses));
+            } catch (IOException e) {
+                throw new CsvReadingException("Error compacting participation log: " + e.getMessage());
+            }
+            if (rows > 0) {
+                log.info("Compacted {} participations from the log into {} in {} ms", rows, baseFile,
+                        this.millisSince(start));
+                if (!snapshotPath.isBlank()) {
+                    this.writeSnapshot(datasetHolder.get(), this.fingerprintSourcesOrFail());
+                }
+            }
+        }
+        return datasetHolder.get().getReport();
+    }
+
+    private synchronized Dataset appendToDataset(List<Participation> participations) {
+        Dataset current = datasetHolder.get();
+        validate(participations, current);
+        return this.publishAppended(current, current.getParticipation()
+                .append(participations, current.getStatuses(), current.getSurveys()), participations);
+    }
+
+    /**
+     * Publishes {@code participation}, the participations of {@code current} with {@code participations} appended,
+     * as the next version. Called under the lock, so {@code current} is still the dataset served.
+     */
+    private Dataset publishAppended(Dataset current, ParticipationShards participation,
+                                    List<Participation> participations) {
+        long version = datasetHolder.nextVersion();
+        LoadReport report = current.getReport().toBuilder()
+                .datasetVersion(version)
+                .appendedRows(current.getReport().getAppendedRows() + participations.size())
+                .build();
+        Dataset dataset = current.appended(version, participation, report);
+        current.getChanges().record(participations, version);
+        datasetHolder.swap(dataset);
+        appendedRows.increment(participations.size());
+        return dataset;
+    }
+
+    private void openParticipationLog() {
+        Path directory = Path.of(participationLogPath);
+        try {
+            participationLog = ParticipationLog.open(directory, Path.of(csvBasePath + ParticipationStore.FILE_NAME));
+        } catch (IOException e) {
+            throw new CsvReadingException("Error opening participation log: " + e.getMessage());
+        }
+        committer = new Thread(this::commitAppends, "participation-log");
+        committer.setDaemon(true);
+        committer.start();
+        log.info("Logging appended participations to {}", directory);
+    }
+
+    /**
+     * Reads the logged participations that can be appended to a dataset with {@code statuses}. A logged row that
+     * cannot, e.g. one whose status was removed from the dictionary since, is skipped with a warning instead of
+     * failing the load; compaction drops it as well.
+     */
+    private List<Participation> readParticipationLog(StatusStore statuses) {
+        if (participationLog == null) {
+            return List.of();
+        }
+        List<Participation> logged;
+        try {
+            logged = participationLog.read();
+        } catch (IOException e) {
+            throw new CsvReadingException("Error reading participation log: " + e.getMessage());
+        }
+        List<Participation> accepted = new ArrayList<>(logged.size());
+        for (Participation participation : logged) {
+            if (this.isAppendable(participation, statuses)) {
+                accepted.add(participation);
+            }
+        }
+        return accepted;
+    }
+
+    private boolean isAppendable(Participation participation, StatusStore statuses) {
+        try {
+            ParticipationStore.validate(participation, statuses);
+            return true;
+        } catch (InvalidParticipationException e) {
+            log.warn("Skipping logged participation {}: {}", participation, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Checks that participations can be appended to {@code dataset}, the one they are appended to under the lock:
+     * each passes {@link ParticipationStore#validate(Participation, StatusStore)} and its member and survey exist.
+     */
+    private static void validate(List<Participation> participations, Dataset dataset) {
+        for (Participation participation : participations) {
+            ParticipationStore.validate(participation, dataset.getStatuses());
+            if (!dataset.getMembers().existsById(participation.getMemberId())) {
+                throw new MemberNotFoundException(participation.getMemberId());
+            }
+            if (!dataset.getSurveys().existsById(participation.getSurveyId())) {
+                throw new SurveyNotFoundException(participation.getSurveyId());
+            }
+        }
+    }
+
+    /**
+     * Appends the logged participations to a freshly loaded store.
+     */
+    private ParticipationShards replay(ParticipationShards participation, StatusStore statuses, SurveyStore surveys,
+                                       List<Participation> logged) {
+        if (logged.isEmpty()) {
+            return participation;
+        }
+        long start = System.nanoTime();
+        ParticipationShards replayed = participation.append(logged, statuses, surveys);
+        log.info("Replayed {} participations from the log in {} ms", logged.size(), this.millisSince(start));
+        return replayed;
+    }
+
+    /**
+     * Runs on the committer thread: takes the appends queued so far and commits them as one group, until it takes
+     * {@link #STOP}. Appends queued after it are failed.
+     */
+    private void commitAppends() {
+        List<PendingAppend> group = new ArrayList<>();
+        try {
+            while (true) {
+                group.add(pendingAppends.take());
+                pendingAppends.drainTo(group);
+                int stop = group.indexOf(STOP);
+                if (stop >= 0) {
+                    this.commit(group.subList(0, stop));
+                    failClosed(group.subList(stop + 1, group.size()));
+                    return;
+                }
+                this.commit(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void failClosed(List<PendingAppend> pending) {
+        pending.forEach(append -> append.result().completeExceptionally(
+                new IllegalStateException("Participation log closed before the append was committed")));
+    }
+
+    /**
+     * Writes a group of appends to the log with one fsync and appends them to the dataset as one version. Appends
+     * that cannot be appended are rejected alone, so they do not fail the rest of the group. The appended store is
+     * built before the log is written, so a row the dataset cannot take never becomes durable.
+     */
+    private synchronized void commit(List<PendingAppend> group) {
+        Dataset current = datasetHolder.get();
+        List<PendingAppend> accepted = new ArrayList<>(group.size());
+        List<Participation> participations = new ArrayList<>();
+        for (PendingAppend pending : group) {
+            try {
+                validate(pending.participations(), current);
+                accepted.add(pending);
+                participations.addAll(pending.participations());
+            } catch (InvalidParticipationException | MemberNotFoundException | SurveyNotFoundException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+        if (participations.isEmpty()) {
+            return;
+        }
+
+        Dataset dataset;
+        try {
+            ParticipationShards participation = current.getParticipation()
+                    .append(participations, current.getStatuses(), current.getSurveys());
+            participationLog.append(participations);
+            dataset = this.publishAppended(current, participation, participations);
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("Error writing participation log", e);
+            accepted.forEach(pending -> pending.result().completeExceptionally(failure));
+            return;
+        } catch (RuntimeException e) {
+            accepted.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+        accepted.forEach(pending -> pending.result().complete(dataset));
+        logCommitRows.record(participations.size());
+
+        try {
+            if (participationLog.size() > compactBytes) {
+                this.compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot compact participation log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the snapshot of a freshly loaded or compacted dataset. A failure only costs the next start its shortcut,
+     * so it is logged instead of failing the load.
+     */
+    private void writeSnapshot(Dataset dataset, List<DatasetSnapshot.Source> sources) {
+        Path file = Path.of(snapshotPath);
+        long start = System.nanoTime();
+        try {
+            DatasetSnapshot.write(dataset, sources, file);
+            log.info("Wrote snapshot {} of dataset {} in {} ms", file, dataset.getVersion(), this.millisSince(start));
+        } catch (IOException e) {
+            log.warn("Cannot write snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+    private List<DatasetSnapshot.Source> fingerprintSources() throws IOException {
+        List<DatasetSnapshot.Source> sources = new ArrayList<>();
+        for (String fileName : SOURCE_FILES) {
+            sources.add(DatasetSnapshot.Source.of(Path.of(csvBasePath + fileName)));
+        }
+        return sources;
+    }
+
+    private List<DatasetSnapshot.Source> fingerprintSourcesOrFail() {
+        try {
+            return this.fingerprintSources();
+        } catch (IOException e) {
+            throw new CsvReadingException("Error loading data: " + e.getMessage());
+        }
+    }
+
+    private <T> CompletableFuture<Loaded<T>> loadAsync(String fileName, Function<Path, T> reader,
+                                                       ToIntFunction<T> rows) {
+        return CompletableFuture.supplyAsync(() -> this.load(fileName, reader, rows), executor);
+    }
+
+    private <T> Loaded<T> load(String fileName, Function<Path, T> reader, ToIntFunction<T> rows) {
+        Path file = Path.of(csvBasePath + fileName);
+        long start = System.nanoTime();
+        T store = reader.apply(file);
+        FileLoadStatistic statistic = FileLoadStatistic.builder()
+                .fileName(fileName)
+                .rows((long) rows.applyAsInt(store))
+                .bytes(this.sizeOf(file))
+                .durationMillis(this.millisSince(start))
+                .build();
+        log.info("Loaded {}: {} rows, {} bytes in {} ms", statistic.getFileName(), statistic.getRows(),
+                statistic.getBytes(), statistic.getDurationMillis());
+        return new Loaded<>(store, statistic);
+    }
+
+    private <T> Loaded<T> join(CompletableFuture<Loaded<T>> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CsvReadingException("Error loading data: " + e.getCause().getMessage());
+        }
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Records the durations of a published load: the whole load per source, each file and the index build.
+     */
+    private void recordMetrics(LoadReport report) {
+        Timer.builder(LOAD_TIMER)
+                .description("Duration of loading a dataset")
+                .tag("source", report.getSource().name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .record(Duration.ofMillis(report.getTotalDurationMillis()));
+        for (FileLoadStatistic file : report.getFiles()) {
+            Timer.builder(FILE_LOAD_TIMER)
+                    .description("Duration of reading one file of a dataset")
+                    .tag("file", file.getFileName())
+                    .register(meterRegistry)
+                    .record(Duration.ofMillis(file.getDurationMillis()));
+        }
+        if (report.getSource() == LoadReport.Source.CSV) {
+            Timer.builder(INDEX_BUILD_TIMER)
+                    .description("Duration of building the indexes that combine several files")
+                    .register(meterRegistry)
+                    .record(Duration.ofMillis(report.getIndexDurationMillis()));
+        }
+    }
+
+    private long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private record Loaded<T>(T store, FileLoadStatistic statistic) {
+    }
+
+    private record PendingAppend(List<Participation> participations, CompletableFuture<Dataset> result) {
+    }
+
+}
@@ -0,0 +1,403 @@
+package hu.vszili.survey.loader;
+
+import hu.vszili.survey.csv.MappedCsvReader;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.exception.CsvReadingException;
+import hu.vszili.survey.store.DatasetSnapshot;
+import hu.vszili.survey.store.ParticipationStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, append-only log of the participations added at runtime, kept in {@value #LOG_FILE_NAME} of its directory
+ * and replayed on top of {@code Participation.csv} after every load.
+ * <p>
+ * The file starts with a magic number and the format version, followed by frames: the payload length, a CRC32C of
+ * the payload and the payload, which is a row count and the rows. Each {@link #append(List)} writes one frame and
+ * forces it to disk, so a caller that batches concurrent appends pays one fsync per batch. A frame cut short by a
+ * crash fails its length or checksum test; reading stops there and the tail is truncated.
+ * <p>
+ * {@link #compactInto(Path, Predicate)} folds the log into the base file: a copy of it without the rows the logged
+ * rows replace and with the logged rows added as CSV lines, in the column order of its header, replaces the base
+ * file, then the log is emptied. The fingerprint of the new base file is recorded in
+ * {@value #COMPACTION_FILE_NAME} before the move and removed after the log is emptied, so {@link #open(Path, Path)}
+ * can tell whether an interrupted compaction already replaced the base file and the log has to be emptied.
+ * Not thread-safe: the {@link DataLoader} calls it under its lock.
+ */
+@Slf4j
+final class ParticipationLog implements Closeable {
+
+    static final String LOG_FILE_NAME = "participations.log";
+    static final String COMPACTION_FILE_NAME = "compaction";
+
+    static final long MAGIC = 0x5355525645594c31L;
+    static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int FRAME_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int ROW_BYTES = 3 * Long.BYTES + 1 + Integer.BYTES;
+    private static final int MAX_FRAME_ROWS = (Integer.MAX_VALUE - FRAME_HEADER_BYTES - Integer.BYTES) / ROW_BYTES;
+
+    private final Path file;
+    private final Path compactionFile;
+    private final FileChannel channel;
+
+    private ParticipationLog(Path file, Path compactionFile, FileChannel channel) {
+        this.file = file;
+        this.compactionFile = compactionFile;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the log in {@code directory}, creating it if needed, and finishes or rolls back a compaction into
+     * {@code baseFile} that was interrupted.
+     *
+     * @throws IOException if the log cannot be opened or is not a participation log
+     */
+    static ParticipationLog open(Path directory, Path baseFile) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(LOG_FILE_NAME);
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ParticipationLog participationLog =
+                new ParticipationLog(file, directory.resolve(COMPACTION_FILE_NAME), channel);
+        try {
+            participationLog.init(baseFile);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return participationLog;
+    }
+
+    private void init(Path baseFile) throws IOException {
+        if (channel.size() == 0) {
+            this.reset();
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        this.readFully(header, 0);
+        if (header.getLong(0) != MAGIC) {
+            throw new IOException(file + " is not a participation log");
+        }
+        if (header.getInt(Long.BYTES) != FORMAT_VERSION) {
+            throw new IOException(file + " has format version " + header.getInt(Long.BYTES) + " instead of "
+                    + FORMAT_VERSION);
+        }
+        if (Files.exists(compactionFile)) {
+            ByteBuffer fingerprint = ByteBuffer.wrap(Files.readAllBytes(compactionFile));
+            DatasetSnapshot.Source base = DatasetSnapshot.Source.of(baseFile);
+            if (fingerprint.remaining() == 2 * Long.BYTES && fingerprint.getLong(0) == base.size()
+                    && fingerprint.getLong(Long.BYTES) == base.lastModifiedMillis()) {
+                log.warn("Finishing interrupted compaction: {} already holds the rows of {}", baseFile, file);
+                this.reset();
+            } else {
+                log.warn("Rolling back interrupted compaction into {}", baseFile);
+            }
+            Files.delete(compactionFile);
+        }
+    }
+
+    /**
+     * Writes the participations as one frame and forces it to disk. If the write fails, the partial frame is cut
+     * off again, so frames appended later stay readable.
+     *
+     * @throws IOException if the frame cannot be written or forced to disk
+     */
+    void append(List<Participation> participations) throws IOException {
+        if (participations.size() > MAX_FRAME_ROWS) {
+            throw new IOException("Too many participations for one log frame: " + participations.size());
+        }
+        int payloadBytes = Integer.BYTES + participations.size() * ROW_BYTES;
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_BYTES + payloadBytes);
+        frame.putInt(payloadBytes).putInt(0).putInt(participations.size());
+        for (Participation participation : participations) {
+            frame.putLong(participation.getMemberId())
+                    .putLong(participation.getSurveyId())
+                    .putLong(participation.getStatus())
+                    .put((byte) (participation.getLength() != null ? 1 : 0))
+                    .putInt(participation.getLength() != null ? participation.getLength() : 0);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), FRAME_HEADER_BYTES, payloadBytes);
+        frame.putInt(Integer.BYTES, (int) crc.getValue());
+        frame.flip();
+
+        long end = channel.size();
+        try {
+            long position = end;
+            while (frame.hasRemaining()) {
+                position += channel.write(frame, position);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            channel.truncate(end);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every complete frame, in order. A torn or corrupt frame ends the log: it and anything after it are
+     * truncated, with a warning.
+     *
+     * @return the logged participations
+     * @throws IOException if the log cannot be read
+     */
+    List<Participation> read() throws IOException {
+        List<Participation> participations = new ArrayList<>();
+        long size = channel.size();
+        long position = HEADER_BYTES;
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        while (position + FRAME_HEADER_BYTES <= size) {
+            frameHeader.clear();
+            this.readFully(frameHeader, position);
+            int payloadBytes = frameHeader.getInt(0);
+            if (payloadBytes < Integer.BYTES || payloadBytes > size - position - FRAME_HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(payloadBytes);
+            this.readFully(payload, position + FRAME_HEADER_BYTES);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.array(), 0, payloadBytes);
+            int rows = payload.getInt(0);
+            if ((int) crc.getValue() != frameHeader.getInt(Integer.BYTES)
+                    || (long) rows * ROW_BYTES != payloadBytes - Integer.BYTES) {
+                break;
+            }
+            payload.position(Integer.BYTES);
+            for (int i = 0; i < rows; i++) {
+                Participation participation = new Participation();
+                participation.setMemberId(payload.getLong());
+                participation.setSurveyId(payload.getLong());
+                participation.setStatus(payload.getLong());
+                boolean hasLength = payload.get() != 0;
+                int length = payload.getInt();
+                participation.setLength(hasLength ? length : null);
+                participations.add(participation);
+            }
+            position += FRAME_HEADER_BYTES + payloadBytes;
+        }
+        if (position < size) {
+            log.warn("Truncating {} at byte {} of {}: the last frame is incomplete or corrupt", file, position, size);
+            channel.truncate(position);
+            channel.force(false);
+        }
+        return participations;
+    }
+
+    /**
+     * Returns the size of the log file, header included.
+     */
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Replaces {@code baseFile} with a copy that has the accepted logged rows appended as CSV lines, then empties the
+     * log. A logged row replaces the last earlier row of its member and survey, as {@link ParticipationStore#append}
+     * does, so only the last accepted row of each member and survey is appended and the base line it replaces is left
+     * out. Loading the new base file gives the same rows, in the same order, as loading the old one, replaying the
+     * accepted rows of the log and dropping the replaced rows.
+     *
+     * @param accepted tells which logged rows to keep; the others are dropped with the log
+     * @return the number of rows moved into the base file
+     * @throws IOException if the base file cannot be replaced; the log is then kept
+     * @throws CsvReadingException if the header of the base file lacks a participation column
+     */
+    int compactInto(Path baseFile, Predicate<Participation> accepted) throws IOException {
+        List<Participation> logged = this.read();
+        if (logged.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Participation> lastByPair = new LinkedHashMap<>();
+        for (Participation participation : logged) {
+            if (accepted.test(participation)) {
+                // re-inserted, so the pairs are ordered by their last row
+                long pair = pair(participation.getMemberId(), participation.getSurveyId());
+                lastByPair.remove(pair);
+                lastByPair.put(pair, participation);
+            }
+        }
+        Collection<Participation> participations = lastByPair.values();
+        RowLayout layout = RowLayout.of(baseFile);
+        Path directory = baseFile.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, String.valueOf(baseFile.getFileName()), ".tmp");
+        try {
+            copyWithout(baseFile, temporary, replacedLines(baseFile, layout, lastByPair.keySet()));
+            try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                String lineSeparator = lineSeparatorOf(out);
+                StringBuilder lines = new StringBuilder();
+                if (out.size() > 0 && lineSeparator == null) {
+                    lines.append(System.lineSeparator());
+                }
+                for (Participation participation : participations) {
+                    layout.append(lines, participation)
+                            .append(lineSeparator != null ? lineSeparator : System.lineSeparator());
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                long position = out.size();
+                while (bytes.hasRemaining()) {
+                    position += out.write(bytes, position);
+                }
+                out.force(true);
+            }
+            DatasetSnapshot.Source compacted = DatasetSnapshot.Source.of(temporary);
+            Files.write(compactionFile, ByteBuffer.allocate(2 * Long.BYTES)
+                            .putLong(compacted.size())
+                            .putLong(compacted.lastModifiedMillis())
+                            .array(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                    StandardOpenOption.SYNC);
+            Files.move(temporary, baseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // the rename must be durable before the log is emptied, or a crash could lose both
+            forceDirectory(directory);
+            this.reset();
+            Files.delete(compactionFile);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return participations.size();
+    }
+
+    private static long pair(long memberId, long surveyId) {
+        return memberId << Integer.SIZE | surveyId & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Returns the byte ranges of the last line of each of the given member and survey pairs in the base file, in
+     * file order, as {@code [start, end)} pairs.
+     */
+    private static long[] replacedLines(Path baseFile, RowLayout layout, Set<Long> pairs) throws IOException {
+        Map<Long, long[]> lastLines = new HashMap<>();
+        try (MappedCsvReader reader = MappedCsvReader.open(baseFile)) {
+            while (reader.next()) {
+                long pair = pair(reader.getInt(layout.memberId()), reader.getInt(layout.surveyId()));
+                if (pairs.contains(pair)) {
+                    lastLines.put(pair, new long[]{reader.getRowStart(), reader.getRowEnd()});
+                }
+            }
+        }
+        return lastLines.values().stream()
+                .sorted(Comparator.comparingLong(line -> line[0]))
+                .flatMapToLong(Arrays::stream)
+                .toArray();
+    }
+
+    /**
+     * Copies {@code source} to {@code target} without the given ascending byte ranges.
+     */
+    private static void copyWithout(Path source, Path target, long[] ranges) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long from = 0;
+            for (int i = 0; i <= ranges.length; i += 2) {
+                long to = i < ranges.length ? ranges[i] : in.size();
+                while (from < to) {
+                    from += in.transferTo(from, to - from, out);
+                }
+                if (i < ranges.length) {
+                    from = ranges[i + 1];
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Empties the log down to its header.
+     */
+    private void reset() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putLong(MAGIC).putInt(FORMAT_VERSION).flip();
+        channel.truncate(0);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException(file + " ended at byte " + (position + buffer.position()));
+            }
+        }
+    }
+
+    /**
+     * Where the fields of a participation go in a row of the base file, as given by its header.
+     */
+    private record RowLayout(int width, int memberId, int surveyId, int status, int length) {
+
+        static RowLayout of(Path baseFile) throws IOException {
+            try (MappedCsvReader reader = MappedCsvReader.open(baseFile)) {
+                return new RowLayout(reader.getColumnCount(),
+                        reader.columnIndex(ParticipationStore.MEMBER_ID_COLUMN),
+                        reader.columnIndex(ParticipationStore.SURVEY_ID_COLUMN),
+                        reader.columnIndex(ParticipationStore.STATUS_COLUMN),
+                        reader.columnIndex(ParticipationStore.LENGTH_COLUMN));
+            }
+        }
+
+        /**
+         * Appends the fields of the participation in header order, other columns left empty.
+         */
+        StringBuilder append(StringBuilder line, Participation participation) {
+            String[] fields = new String[width];
+            Arrays.fill(fields, "");
+            fields[memberId] = String.valueOf(participation.getMemberId());
+            fields[surveyId] = String.valueOf(participation.getSurveyId());
+            fields[status] = String.valueOf(participation.getStatus());
+            fields[length] = participation.getLength() != null ? String.valueOf(participation.getLength()) : "";
+            return line.append(String.join(",", fields));
+        }
+
+    }
+
+    /**
+     * Forces the entries of a directory, e.g. a file renamed into it, to disk.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Returns the line separator the file ends with, or {@code null} if its last line is not terminated.
+     */
+    private static String lineSeparatorOf(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer tail = ByteBuffer.allocate((int) Math.min(2, size));
+        channel.read(tail, size - tail.capacity());
+        if (tail.capacity() == 0 || tail.get(tail.capacity() - 1) != '\n') {
+            return null;
+        }
+        return tail.capacity() == 2 && tail.get(0) == '\r' ? "\r\n" : "\n";
+    }
+
+}
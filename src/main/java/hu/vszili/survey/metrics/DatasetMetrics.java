@@ -0,0 +1,47 @@
+package hu.vszili.survey.metrics;
+
+import hu.vszili.survey.store.Dataset;
+import hu.vszili.survey.store.DatasetHolder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Gauges over the dataset currently served: its version and the number of rows in each store. The gauges read the
+ * {@link DatasetHolder} when scraped, so they follow reloads; they report {@code NaN} until a dataset is loaded.
+ */
+@Component
+@RequiredArgsConstructor
+public class DatasetMetrics implements MeterBinder {
+
+    static final String DATASET_VERSION = "survey.dataset.version";
+    static final String STORE_SIZE = "survey.store.size";
+
+    private final DatasetHolder datasetHolder;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(DATASET_VERSION, datasetHolder,
+                        holder -> holder.find().map(dataset -> (double) dataset.getVersion()).orElse(Double.NaN))
+                .description("Version of the dataset currently served")
+                .register(registry);
+        this.storeSize(registry, "members", dataset -> dataset.getMembers().size());
+        this.storeSize(registry, "statuses", dataset -> dataset.getStatuses().size());
+        this.storeSize(registry, "surveys", dataset -> dataset.getSurveys().size());
+        this.storeSize(registry, "participations", dataset -> dataset.getParticipation().size());
+    }
+
+    private void storeSize(MeterRegistry registry, String store, ToIntFunction<Dataset> size) {
+        Gauge.builder(STORE_SIZE, datasetHolder,
+                        holder -> holder.find().map(dataset -> (double) size.applyAsInt(dataset)).orElse(Double.NaN))
+                .description("Rows in a store of the dataset currently served")
+                .tag("store", store)
+                .baseUnit("rows")
+                .register(registry);
+    }
+
+}
@@ -1,8 +1,8 @@
 package hu.vszili.survey.repositroy;
 
 import hu.vszili.survey.data.Member;
+import org.roaringbitmap.RoaringBitmap;
 
-import java.util.Map;
 import java.util.Optional;
 
 public interface MemberRepository {
@@ -11,6 +11,14 @@ public interface MemberRepository {
 
     boolean existsById(Long surveyId);
 
-    Map<Long, Member> getMembers();
+    /**
+     * Returns the ids of all members. The bitmap is shared and must not be modified.
+     */
+    RoaringBitmap getMemberIds();
+
+    /**
+     * Returns the ids of all active members. The bitmap is shared and must not be modified.
+     */
+    RoaringBitmap getActiveMemberIds();
 
 }
@@ -1,11 +1,48 @@
 package hu.vszili.survey.repositroy;
 
-import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.SurveyAggregate;
+import org.roaringbitmap.RoaringBitmap;
 
-import java.util.List;
+import java.util.Collection;
 
 public interface ParticipationRepository {
 
-    List<Participation> findAll();
+    ParticipationRows findAll();
+
+    ParticipationRows findByMemberId(Long memberId);
+
+    ParticipationRows findBySurveyId(Long surveyId);
+
+    ParticipationRows findByMemberIdAndStatus(Long memberId, byte status);
+
+    ParticipationRows findBySurveyIdAndStatus(Long surveyId, byte status);
+
+    /**
+     * Returns up to {@code limit} of the member's rows with the given status code, scanning the member's rows in load
+     * order from position {@code from}.
+     */
+    ParticipationPage findByMemberIdAndStatus(Long memberId, byte status, long from, int limit);
+
+    /**
+     * Returns up to {@code limit} of the survey's rows with the given status code, scanning the survey's rows shard
+     * after shard, each shard's in load order, from position {@code from}.
+     */
+    ParticipationPage findBySurveyIdAndStatus(Long surveyId, byte status, long from, int limit);
+
+    Collection<SurveyAggregate> findSurveyAggregates();
+
+    /**
+     * Returns the ids of members who have any status other than "Not asked" for the survey.
+     * The bitmap is shared and must not be modified.
+     */
+    RoaringBitmap findAskedMemberIds(Long surveyId);
+
+    /**
+     * Returns the member's total points from "Completed" and "Filtered" participations, kept up to date as
+     * participations are added.
+     */
+    int findPointsByMemberId(Long memberId);
 
 }
@@ -1,7 +1,12 @@
 package hu.vszili.survey.repositroy;
 
+import hu.vszili.survey.data.StatusCodes;
+
 public interface StatusRepository {
 
-    Long findIdByName(String completedStatus);
+    /**
+     * Returns the codes of the well-known statuses of the current dataset, resolved when it was loaded.
+     */
+    StatusCodes getCodes();
 
 }
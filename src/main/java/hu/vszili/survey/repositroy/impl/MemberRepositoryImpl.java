@@ -1,64 +1,38 @@
 package hu.vszili.survey.repositroy.impl;
 
-import com.opencsv.bean.CsvToBeanBuilder;
 import hu.vszili.survey.data.Member;
-import hu.vszili.survey.exception.CsvReadingException;
 import hu.vszili.survey.repositroy.MemberRepository;
-import jakarta.annotation.PostConstruct;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import hu.vszili.survey.store.DatasetHolder;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.stereotype.Repository;
 
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
-@Slf4j
 @Repository
+@RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepository {
 
-    @Value("${csv.base-path}")
-    private String csvBasePath;
-
-    private final Map<Long, Member> members = new ConcurrentHashMap<>();
-
-    @PostConstruct
-    private void init() {
-        List<Member> memberList = this.readMembers();
-        this.members.putAll(
-                memberList.stream().collect(
-                        Collectors.toMap(Member::getId, Function.identity())));
-        log.info("Members loaded: {}", members.size());
-    }
-
-    private List<Member> readMembers() {
-        try (FileReader fileReader = new FileReader(csvBasePath + "Members.csv")) {
-            return new CsvToBeanBuilder<Member>(fileReader).withType(Member.class).build().parse();
-        } catch (IOException | IllegalStateException e) {
-            throw new CsvReadingException("Error reading members file: " + e.getMessage());
-        }
-    }
+    private final DatasetHolder datasetHolder;
 
     @Override
     public Optional<Member> findById(Long memberId) {
-        return Optional.of(members.get(memberId));
+        return datasetHolder.get().getMembers().findById(memberId);
     }
 
     @Override
     public boolean existsById(Long surveyId) {
-        return members.containsKey(surveyId);
+        return datasetHolder.get().getMembers().existsById(surveyId);
+    }
+
+    @Override
+    public RoaringBitmap getMemberIds() {
+        return datasetHolder.get().getMembers().getMemberIds();
     }
 
     @Override
-    public Map<Long, Member> getMembers() {
-        // deep copy or shallow copy. DTO pattern, mapping
-        return new HashMap<>(this.members);
+    public RoaringBitmap getActiveMemberIds() {
+        return datasetHolder.get().getMembers().getActiveMemberIds();
     }
 
 }
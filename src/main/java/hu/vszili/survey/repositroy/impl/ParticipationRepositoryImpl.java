@@ -1,44 +1,119 @@
 package hu.vszili.survey.repositroy.impl;
 
-import com.opencsv.bean.CsvToBeanBuilder;
-import hu.vszili.survey.data.Participation;
-import hu.vszili.survey.exception.CsvReadingException;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.SurveyAggregate;
 import hu.vszili.survey.repositroy.ParticipationRepository;
-import jakarta.annotation.PostConstruct;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import hu.vszili.survey.store.DatasetHolder;
+import hu.vszili.survey.store.ParticipationShards;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.stereotype.Repository;
 
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.List;
+import java.util.Collection;
 
-@Slf4j
+/**
+ * Delegates to the participation shards of the current dataset, which route member-keyed queries to one shard and
+ * gather survey-keyed ones from all of them. Status queries record how many index rows they scanned and how many
+ * rows they returned, per index, in {@value #ROWS_SCANNED} and {@value #ROWS_RETURNED}.
+ */
 @Repository
 public class ParticipationRepositoryImpl implements ParticipationRepository {
 
-    @Value("${csv.base-path}")
-    private String csvBasePath;
+    static final String ROWS_SCANNED = "survey.participation.scanned";
+    static final String ROWS_RETURNED = "survey.participation.returned";
 
-    private List<Participation> participation;
+    private static final String SCANNED_DESCRIPTION = "Index rows scanned by a participation status query";
+    private static final String RETURNED_DESCRIPTION = "Rows returned by a participation status query";
 
-    @PostConstruct
-    private void init() {
-        participation = this.readParticipation();
-        log.info("Participation loaded: {}", this.participation.size());
+    private final DatasetHolder datasetHolder;
+
+    private final DistributionSummary memberRowsScanned;
+    private final DistributionSummary memberRowsReturned;
+    private final DistributionSummary surveyRowsScanned;
+    private final DistributionSummary surveyRowsReturned;
+
+    public ParticipationRepositoryImpl(DatasetHolder datasetHolder, MeterRegistry meterRegistry) {
+        this.datasetHolder = datasetHolder;
+        this.memberRowsScanned = this.summary(meterRegistry, ROWS_SCANNED, SCANNED_DESCRIPTION, "member");
+        this.memberRowsReturned = this.summary(meterRegistry, ROWS_RETURNED, RETURNED_DESCRIPTION, "member");
+        this.surveyRowsScanned = this.summary(meterRegistry, ROWS_SCANNED, SCANNED_DESCRIPTION, "survey");
+        this.surveyRowsReturned = this.summary(meterRegistry, ROWS_RETURNED, RETURNED_DESCRIPTION, "survey");
+    }
+
+    @Override
+    public ParticipationRows findAll() {
+        return datasetHolder.get().getParticipation().findAll();
+    }
+
+    @Override
+    public ParticipationRows findByMemberId(Long memberId) {
+        return datasetHolder.get().getParticipation().findByMemberId(memberId);
     }
 
-    private List<Participation> readParticipation() {
-        try (FileReader fileReader = new FileReader(csvBasePath + "Participation.csv")) {
-            return new CsvToBeanBuilder<Participation>(fileReader).withType(Participation.class).build().parse();
-        } catch (IOException | IllegalStateException e) {
-            throw new CsvReadingException("Error reading participation file: " + e.getMessage());
-        }
+    @Override
+    public ParticipationRows findBySurveyId(Long surveyId) {
+        return datasetHolder.get().getParticipation().findBySurveyId(surveyId);
+    }
+
+    @Override
+    public ParticipationRows findByMemberIdAndStatus(Long memberId, byte status) {
+        ParticipationShards participation = datasetHolder.get().getParticipation();
+        ParticipationRows rows = participation.findByMemberIdAndStatus(memberId, status);
+        memberRowsScanned.record(participation.countByMemberId(memberId));
+        memberRowsReturned.record(rows.size());
+        return rows;
+    }
+
+    @Override
+    public ParticipationRows findBySurveyIdAndStatus(Long surveyId, byte status) {
+        ParticipationShards participation = datasetHolder.get().getParticipation();
+        ParticipationRows rows = participation.findBySurveyIdAndStatus(surveyId, status);
+        surveyRowsScanned.record(participation.countBySurveyId(surveyId));
+        surveyRowsReturned.record(rows.size());
+        return rows;
     }
 
     @Override
-    public List<Participation> findAll() {
-        return participation;
+    public ParticipationPage findByMemberIdAndStatus(Long memberId, byte status, long from, int limit) {
+        ParticipationShards participation = datasetHolder.get().getParticipation();
+        ParticipationPage page = participation.findByMemberIdAndStatus(memberId, status, from, limit);
+        memberRowsScanned.record(page.getScannedRows());
+        memberRowsReturned.record(page.getRows().size());
+        return page;
+    }
+
+    @Override
+    public ParticipationPage findBySurveyIdAndStatus(Long surveyId, byte status, long from, int limit) {
+        ParticipationShards participation = datasetHolder.get().getParticipation();
+        ParticipationPage page = participation.findBySurveyIdAndStatus(surveyId, status, from, limit);
+        surveyRowsScanned.record(page.getScannedRows());
+        surveyRowsReturned.record(page.getRows().size());
+        return page;
+    }
+
+    @Override
+    public Collection<SurveyAggregate> findSurveyAggregates() {
+        return datasetHolder.get().getParticipation().findSurveyAggregates();
+    }
+
+    @Override
+    public RoaringBitmap findAskedMemberIds(Long surveyId) {
+        return datasetHolder.get().getParticipation().findAskedMemberIds(surveyId);
+    }
+
+    @Override
+    public int findPointsByMemberId(Long memberId) {
+        return datasetHolder.get().getParticipation().findPointsByMemberId(memberId);
+    }
+
+    private DistributionSummary summary(MeterRegistry meterRegistry, String name, String description, String index) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("rows")
+                .tag("index", index)
+                .register(meterRegistry);
     }
 
 }
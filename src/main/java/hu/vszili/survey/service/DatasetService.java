@@ -0,0 +1,17 @@
+package hu.vszili.survey.service;
+
+import hu.vszili.survey.data.LoadReport;
+
+public interface DatasetService {
+
+    LoadReport getLoadReport();
+
+    long getVersion();
+
+    String getChangeVersion(Long memberId, Long surveyId);
+
+    LoadReport reload();
+
+    LoadReport compact();
+
+}
@@ -1,13 +1,26 @@
 package hu.vszili.survey.service;
 
+import hu.vszili.survey.data.CursorPage;
+import hu.vszili.survey.data.MemberPoints;
 import hu.vszili.survey.data.Survey;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface MemberService {
 
     List<Survey> getCompletedSurveys(Long memberId);
 
+    CursorPage<Survey> getCompletedSurveys(Long memberId, String cursor, int limit);
+
     Integer getPoints(Long memberId);
 
+    Map<Long, Integer> getPoints(Collection<Long> memberIds);
+
+    Stream<MemberPoints> streamAllPoints();
+
+    CursorPage<MemberPoints> getAllPoints(String cursor, int limit);
+
 }
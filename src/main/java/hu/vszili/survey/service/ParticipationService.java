@@ -0,0 +1,12 @@
+package hu.vszili.survey.service;
+
+import hu.vszili.survey.data.AppendResult;
+import hu.vszili.survey.data.Participation;
+
+import java.util.List;
+
+public interface ParticipationService {
+
+    AppendResult add(List<Participation> participations);
+
+}
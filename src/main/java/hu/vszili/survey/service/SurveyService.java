@@ -1,16 +1,26 @@
 package hu.vszili.survey.service;
 
+import hu.vszili.survey.data.CursorPage;
 import hu.vszili.survey.data.Member;
 import hu.vszili.survey.data.SurveyStatistic;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface SurveyService {
 
     List<Member> getMembersCompleted(Long surveyId);
 
+    Stream<Member> streamMembersCompleted(Long surveyId);
+
+    CursorPage<Member> getMembersCompleted(Long surveyId, String cursor, int limit);
+
     List<Member> getEligibleMembers(Long surveyId);
 
+    Stream<Member> streamEligibleMembers(Long surveyId);
+
+    CursorPage<Member> getEligibleMembers(Long surveyId, String cursor, int limit);
+
     List<SurveyStatistic> getStatistics();
 
 }
@@ -0,0 +1,82 @@
+package hu.vszili.survey.service.impl;
+
+import hu.vszili.survey.data.LoadReport;
+import hu.vszili.survey.loader.DataLoader;
+import hu.vszili.survey.service.DatasetService;
+import hu.vszili.survey.store.Dataset;
+import hu.vszili.survey.store.DatasetHolder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class DatasetServiceImpl implements DatasetService {
+
+    private final DatasetHolder datasetHolder;
+    private final DataLoader dataLoader;
+
+    /**
+     * Returns the load report of the dataset that is currently served.
+     *
+     * @return the {@link LoadReport} of the current dataset
+     */
+    @Override
+    public LoadReport getLoadReport() {
+        return datasetHolder.get().getReport();
+    }
+
+    /**
+     * Returns the version of the dataset that is currently served. It changes with every reload, so responses
+     * computed from the same version are the same.
+     *
+     * @return the version of the current dataset
+     */
+    @Override
+    public long getVersion() {
+        return datasetHolder.get().getVersion();
+    }
+
+    /**
+     * Returns the version of the data that responses about a member or a survey are computed from: the load version
+     * and the version at which the member or survey last changed through an append. It stays the same while only
+     * other members and surveys are appended to. Without a member and a survey it is the dataset version.
+     *
+     * @param memberId the member the response is about, or {@code null}
+     * @param surveyId the survey the response is about, or {@code null}
+     * @return the version, unique among the versions of this instance
+     */
+    @Override
+    public String getChangeVersion(Long memberId, Long surveyId) {
+        Dataset dataset = datasetHolder.get();
+        long changed = memberId != null ? dataset.getChanges().ofMember(memberId, dataset.getBaseVersion())
+                : dataset.getChanges().ofSurvey(surveyId, dataset.getBaseVersion());
+        // a change recorded but not published yet is newer than the data served, which keeps the dataset version
+        if ((memberId == null && surveyId == null) || changed > dataset.getVersion()) {
+            return Long.toString(dataset.getVersion());
+        }
+        return dataset.getBaseVersion() + "." + changed;
+    }
+
+    /**
+     * Reloads all CSV files into a new dataset and swaps it in. Requests are served from the previous
+     * dataset while the reload runs.
+     *
+     * @return the {@link LoadReport} of the new dataset
+     */
+    @Override
+    public LoadReport reload() {
+        return dataLoader.reload();
+    }
+
+    /**
+     * Compacts the log of appended participations into the participation CSV file. The served dataset does not
+     * change; a later reload reads the appended rows from the CSV file instead of the log.
+     *
+     * @return the {@link LoadReport} of the current dataset
+     */
+    @Override
+    public LoadReport compact() {
+        return dataLoader.compact();
+    }
+
+}
@@ -1,5 +1,10 @@
 package hu.vszili.survey.service.impl;
 
+import hu.vszili.survey.cache.ResultCacheConfig;
+import hu.vszili.survey.data.CursorPage;
+import hu.vszili.survey.data.MemberPoints;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
 import hu.vszili.survey.data.Survey;
 import hu.vszili.survey.exception.MemberNotFoundException;
 import hu.vszili.survey.repositroy.MemberRepository;
@@ -7,14 +12,28 @@ import hu.vszili.survey.repositroy.ParticipationRepository;
 import hu.vszili.survey.repositroy.StatusRepository;
 import hu.vszili.survey.repositroy.SurveyRepository;
 import hu.vszili.survey.service.MemberService;
+import hu.vszili.survey.store.PinnedDataset;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.PeekableIntIterator;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "survey.service", histogram = true)
+@PinnedDataset
+@CacheConfig(keyGenerator = ResultCacheConfig.MEMBER_KEY_GENERATOR)
 public class MemberServiceImpl implements MemberService {
 
     private final MemberRepository memberRepository;
@@ -22,9 +41,6 @@ public class MemberServiceImpl implements MemberService {
     private final SurveyRepository surveyRepository;
     private final ParticipationRepository participationRepository;
 
-    private static final String COMPLETED_STATUS = "Completed";
-    private static final String FILTERED_STATUS = "Filtered";
-
     /**
      * Retrieves a list of completed surveys for a specific member.
      * A survey is considered completed if its status matches the "Completed" status
@@ -35,26 +51,55 @@ public class MemberServiceImpl implements MemberService {
      * @throws MemberNotFoundException if no member exists with the given member ID
      */
     @Override
+    @Cacheable(ResultCacheConfig.COMPLETED_SURVEYS)
     public List<Survey> getCompletedSurveys(Long memberId) {
         if (!memberRepository.existsById(memberId)) {
             throw new MemberNotFoundException(memberId);
         }
 
-        Long completedStatusId = statusRepository.findIdByName(COMPLETED_STATUS);
-        return participationRepository.findAll().stream()
-                .filter(participation ->
-                        participation.getStatus().equals(completedStatusId) && participation.getMemberId().equals(memberId))
-                .map(participation -> surveyRepository.findById(participation.getSurveyId()))
+        byte completedStatus = statusRepository.getCodes().getCompleted();
+        ParticipationRows completed = participationRepository.findByMemberIdAndStatus(memberId, completedStatus);
+        return IntStream.range(0, completed.size())
+                .mapToObj(i -> surveyRepository.findById(completed.surveyId(i)))
                 .flatMap(Optional::stream)
                 .toList();
     }
 
     /**
-     * Calculates the total points earned by a member across completed or filtered surveys.
+     * Retrieves one page of the surveys completed by a specific member, in the order the participations were
+     * loaded. The page is read from the member's participation index starting at the cursor position, so its
+     * cost does not depend on how far into the list it is.
+     *
+     * @param memberId the unique identifier of the member whose completed surveys need to be retrieved
+     * @param cursor   the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit    the maximum number of surveys on the page
+     * @return the page of completed {@link Survey} objects and the cursor of the next page
+     * @throws MemberNotFoundException if no member exists with the given member ID
+     */
+    @Override
+    @Cacheable(ResultCacheConfig.COMPLETED_SURVEYS)
+    public CursorPage<Survey> getCompletedSurveys(Long memberId, String cursor, int limit) {
+        PageCursor.checkLimit(limit);
+        long from = PageCursor.decode(cursor);
+        if (!memberRepository.existsById(memberId)) {
+            throw new MemberNotFoundException(memberId);
+        }
+
+        byte completedStatus = statusRepository.getCodes().getCompleted();
+        ParticipationPage page = participationRepository.findByMemberIdAndStatus(memberId, completedStatus, from, limit);
+        ParticipationRows completed = page.getRows();
+        List<Survey> surveys = IntStream.range(0, completed.size())
+                .mapToObj(i -> surveyRepository.findById(completed.surveyId(i)))
+                .flatMap(Optional::stream)
+                .toList();
+        return new CursorPage<>(surveys, page.hasNext() ? PageCursor.encode(page.getNextPosition()) : null);
+    }
+
+    /**
+     * Returns the total points earned by a member across completed or filtered surveys.
      * <p>
-     * The method retrieves and filters participations for the specified member ID
-     * that have a status of either "Completed" or "Filtered". It calculates the points
-     * based on the survey's status and sums them up.
+     * Points are read from the per-member ledger that the participation repository maintains
+     * as participations are loaded, so no participation rows are scanned here.
      *
      * @param memberId the unique identifier of the member whose points need to be calculated
      * @return the total points earned by the member based on completed or filtered surveys
@@ -65,18 +110,67 @@ public class MemberServiceImpl implements MemberService {
         if (!memberRepository.existsById(memberId)) {
             throw new MemberNotFoundException(memberId);
         }
-        Long completedStatusId = statusRepository.findIdByName(COMPLETED_STATUS);
-        Long filteredStatusId = statusRepository.findIdByName(FILTERED_STATUS);
+        return participationRepository.findPointsByMemberId(memberId);
+    }
+
+    /**
+     * Returns the points of many members in one call. Each member is a single ledger lookup, so the cost is
+     * proportional to the number of requested members and no participation rows are scanned.
+     *
+     * @param memberIds the unique identifiers of the members whose points are requested
+     * @return the points by member id, in the order of {@code memberIds}; unknown members are left out
+     */
+    @Override
+    public Map<Long, Integer> getPoints(Collection<Long> memberIds) {
+        Map<Long, Integer> points = new LinkedHashMap<>();
+        for (Long memberId : memberIds) {
+            if (memberId != null && memberRepository.existsById(memberId)) {
+                points.put(memberId, participationRepository.findPointsByMemberId(memberId));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Streams the points of every member, including members without points, in member id order. Each member's
+     * points are looked up only when the stream reaches it, so nothing is collected over all members.
+     *
+     * @return a lazy stream of the points of every member
+     */
+    @Override
+    public Stream<MemberPoints> streamAllPoints() {
+        return memberRepository.getMemberIds().stream()
+                .mapToObj(this::pointsOf);
+    }
+
+    /**
+     * Returns one page of the points of every member, in member id order. The cursor is the member id the page
+     * starts at, where the member id bitmap is entered, so the cost of a page does not depend on its position.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of members on the page
+     * @return the page of points and the cursor of the next page
+     */
+    @Override
+    public CursorPage<MemberPoints> getAllPoints(String cursor, int limit) {
+        PageCursor.checkLimit(limit);
+        long from = PageCursor.decode(cursor);
+        // member ids are ints, a larger cursor is past every member
+        if (from > Integer.MAX_VALUE) {
+            return new CursorPage<>(List.of(), null);
+        }
+
+        PeekableIntIterator memberIds = memberRepository.getMemberIds().getIntIterator();
+        memberIds.advanceIfNeeded((int) from);
+        List<MemberPoints> points = new ArrayList<>(limit);
+        while (memberIds.hasNext() && points.size() < limit) {
+            points.add(this.pointsOf(memberIds.next()));
+        }
+        return new CursorPage<>(points, memberIds.hasNext() ? PageCursor.encode(memberIds.peekNext()) : null);
+    }
 
-        return participationRepository.findAll().stream()
-                .filter(p ->
-                        p.getMemberId().equals(memberId) &&
-                                (p.getStatus().equals(completedStatusId) || p.getStatus().equals(filteredStatusId)))
-                .mapToInt(participation -> {
-                    boolean isCompleted = participation.getStatus().equals(completedStatusId);
-                    return surveyRepository.getPoints(participation.getSurveyId(), isCompleted);
-                })
-                .sum();
+    private MemberPoints pointsOf(int memberId) {
+        return new MemberPoints((long) memberId, participationRepository.findPointsByMemberId((long) memberId));
     }
 
 }
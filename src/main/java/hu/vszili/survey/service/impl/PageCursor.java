@@ -0,0 +1,58 @@
+package hu.vszili.survey.service.impl;
+
+import hu.vszili.survey.exception.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursors of the paged list endpoints. A cursor encodes the position in the endpoint's index where the
+ * next page starts; clients must not rely on its content. After a dataset reload a cursor resumes at the same
+ * position of the new index.
+ */
+final class PageCursor {
+
+    static final int MAX_LIMIT = 1000;
+
+    private static final String PREFIX = "p:";
+
+    private PageCursor() {
+    }
+
+    static String encode(long position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + position).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns the position encoded in the cursor, {@code 0} for the first page when the cursor is {@code null}.
+     *
+     * @throws InvalidPageRequestException if the cursor was not created by {@link #encode(long)}
+     */
+    static long decode(String cursor) {
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            long position = value.startsWith(PREFIX) ? Long.parseLong(value.substring(PREFIX.length())) : -1;
+            if (position >= 0) {
+                return position;
+            }
+        } catch (IllegalArgumentException e) {
+            // not Base64 or not a number, reported below
+        }
+        throw new InvalidPageRequestException(String.format("Invalid cursor '%s'", cursor));
+    }
+
+    /**
+     * @throws InvalidPageRequestException if the limit is not between 1 and {@value #MAX_LIMIT}
+     */
+    static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidPageRequestException(
+                    String.format("Limit must be between 1 and %d, got %d", MAX_LIMIT, limit));
+        }
+    }
+
+}
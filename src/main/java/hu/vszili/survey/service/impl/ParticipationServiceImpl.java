@@ -0,0 +1,53 @@
+package hu.vszili.survey.service.impl;
+
+import hu.vszili.survey.data.AppendResult;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import hu.vszili.survey.exception.MemberNotFoundException;
+import hu.vszili.survey.exception.SurveyNotFoundException;
+import hu.vszili.survey.loader.DataLoader;
+import hu.vszili.survey.service.ParticipationService;
+import hu.vszili.survey.store.Dataset;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Timed(value = "survey.service", histogram = true)
+public class ParticipationServiceImpl implements ParticipationService {
+
+    private final DataLoader dataLoader;
+
+    /**
+     * Appends participations to the dataset, as if they were added to the end of the participation file. Their
+     * member, survey, status and points are visible to every request served from the returned dataset version on.
+     * The participations are validated first and appended all together or not at all; their members and surveys
+     * are looked up in the dataset they are appended to, so a concurrent reload cannot slip in between.
+     *
+     * @param participations the participations to append, in order
+     * @return the version of the dataset that contains the participations and the number of rows appended
+     * @throws InvalidParticipationException if there are no participations, one has no member id, survey id or
+     *                                       status, its status id is unknown or its length is negative
+     * @throws MemberNotFoundException       if no member exists with a participation's member ID
+     * @throws SurveyNotFoundException       if no survey exists with a participation's survey ID
+     */
+    @Override
+    public AppendResult add(List<Participation> participations) {
+        if (participations == null || participations.isEmpty()) {
+            throw new InvalidParticipationException("No participations to add");
+        }
+        for (Participation participation : participations) {
+            if (participation == null || participation.getMemberId() == null || participation.getSurveyId() == null
+                    || participation.getStatus() == null) {
+                throw new InvalidParticipationException("A participation needs a member id, a survey id and a status");
+            }
+        }
+
+        Dataset dataset = dataLoader.append(participations);
+        return new AppendResult(dataset.getVersion(), participations.size());
+    }
+
+}
@@ -1,7 +1,12 @@
 package hu.vszili.survey.service.impl;
 
+import hu.vszili.survey.cache.ResultCacheConfig;
+import hu.vszili.survey.data.CursorPage;
 import hu.vszili.survey.data.Member;
-import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.StatusCodes;
+import hu.vszili.survey.data.SurveyAggregate;
 import hu.vszili.survey.data.SurveyStatistic;
 import hu.vszili.survey.exception.SurveyNotFoundException;
 import hu.vszili.survey.repositroy.MemberRepository;
@@ -9,22 +14,28 @@ import hu.vszili.survey.repositroy.ParticipationRepository;
 import hu.vszili.survey.repositroy.StatusRepository;
 import hu.vszili.survey.repositroy.SurveyRepository;
 import hu.vszili.survey.service.SurveyService;
+import hu.vszili.survey.store.PinnedDataset;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
+@Timed(value = "survey.service", histogram = true)
+@PinnedDataset
+@CacheConfig(keyGenerator = ResultCacheConfig.SURVEY_KEY_GENERATOR)
 public class SurveyServiceImpl implements SurveyService {
 
     private final MemberRepository memberRepository;
@@ -32,11 +43,6 @@ public class SurveyServiceImpl implements SurveyService {
     private final StatusRepository statusRepository;
     private final ParticipationRepository participationRepository;
 
-    private static final String COMPLETED_STATUS = "Completed";
-    private static final String FILTERED_STATUS = "Filtered";
-    private static final String NOT_ASKED_STATUS = "Not asked";
-    private static final String REJECTED_STATUS = "Rejected";
-
     /**
      * Retrieves a list of members who have completed a specific survey.
      * A survey is considered completed for a member if the member's participation status
@@ -47,94 +53,164 @@ public class SurveyServiceImpl implements SurveyService {
      * @throws SurveyNotFoundException if no survey exists with the given survey ID
      */
     @Override
+    @Cacheable(ResultCacheConfig.COMPLETED_MEMBERS)
     public List<Member> getMembersCompleted(Long surveyId) {
+        return this.streamMembersCompleted(surveyId).toList();
+    }
+
+    /**
+     * Streams the members who have completed a specific survey, looking each member up only when the stream
+     * reaches it. The survey is checked eagerly, so a missing survey fails before anything is consumed.
+     *
+     * @param surveyId the unique identifier of the survey for which completed members need to be retrieved
+     * @return a lazy stream of the {@link Member}s who have completed the specified survey
+     * @throws SurveyNotFoundException if no survey exists with the given survey ID
+     */
+    @Override
+    public Stream<Member> streamMembersCompleted(Long surveyId) {
         if (!surveyRepository.existsById(surveyId)) {
             throw new SurveyNotFoundException(surveyId);
         }
 
-        Long completedStatusId = statusRepository.findIdByName(COMPLETED_STATUS);
-        return participationRepository.findAll().stream()
-                .filter(participation ->
-                    participation.getStatus().equals(completedStatusId) && participation.getSurveyId().equals(surveyId))
-                .map(participation -> memberRepository.findById(participation.getMemberId()))
+        byte completedStatus = statusRepository.getCodes().getCompleted();
+        ParticipationRows completed = participationRepository.findBySurveyIdAndStatus(surveyId, completedStatus);
+        return IntStream.range(0, completed.size())
+                .mapToObj(i -> memberRepository.findById(completed.memberId(i)))
+                .flatMap(Optional::stream);
+    }
+
+    /**
+     * Retrieves one page of the members who have completed a specific survey. Participations are sharded by
+     * member, so the members come shard after shard, each shard's in the order its participations were loaded.
+     * The page is read from the survey's participation indexes starting at the cursor position.
+     *
+     * @param surveyId the unique identifier of the survey for which completed members need to be retrieved
+     * @param cursor   the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit    the maximum number of members on the page
+     * @return the page of {@link Member} objects and the cursor of the next page
+     * @throws SurveyNotFoundException if no survey exists with the given survey ID
+     */
+    @Override
+    @Cacheable(ResultCacheConfig.COMPLETED_MEMBERS)
+    public CursorPage<Member> getMembersCompleted(Long surveyId, String cursor, int limit) {
+        PageCursor.checkLimit(limit);
+        long from = PageCursor.decode(cursor);
+        if (!surveyRepository.existsById(surveyId)) {
+            throw new SurveyNotFoundException(surveyId);
+        }
+
+        byte completedStatus = statusRepository.getCodes().getCompleted();
+        ParticipationPage page = participationRepository.findBySurveyIdAndStatus(surveyId, completedStatus, from, limit);
+        ParticipationRows completed = page.getRows();
+        List<Member> members = IntStream.range(0, completed.size())
+                .mapToObj(i -> memberRepository.findById(completed.memberId(i)))
                 .flatMap(Optional::stream)
                 .toList();
+        return new CursorPage<>(members, page.hasNext() ? PageCursor.encode(page.getNextPosition()) : null);
     }
 
     /**
      * Retrieves a list of members who are eligible for a specific survey.
      * A member is considered eligible if they have not participated in the specified survey and their participation
      * status for the survey is "Not asked". Additionally, only active members are included in the result.
+     * <p>
+     * Eligibility is computed as the active member bitmap minus the survey's asked member bitmap.
      *
      * @param surveyId the unique identifier of the survey for which eligible members need to be retrieved
      * @return a list of {@code Member} objects representing the active and eligible members for the specified survey
      */
     @Override
+    @Cacheable(ResultCacheConfig.ELIGIBLE_MEMBERS)
     public List<Member> getEligibleMembers(Long surveyId) {
-        Long notAskedStatusId = statusRepository.findIdByName(NOT_ASKED_STATUS);
-        Map<Long, Member> members = memberRepository.getMembers();
-
-        participationRepository.findAll()
-                .forEach(participation -> {
-                    if (participation.getSurveyId().equals(surveyId) && !participation.getStatus().equals(notAskedStatusId)) {
-                        members.remove(participation.getMemberId());
-                    }
-                });
-
-        return members.values().stream()
-                .filter(Member::getActive)
-                .toList();
+        return this.streamEligibleMembers(surveyId).toList();
     }
 
     /**
-     * Retrieves statistics for all surveys by processing participation data.
+     * Streams the members who are eligible for a specific survey in member id order. Only the eligible id
+     * bitmap is materialized, members are looked up as the stream reaches them.
+     *
+     * @param surveyId the unique identifier of the survey for which eligible members need to be retrieved
+     * @return a lazy stream of the active and eligible {@link Member}s for the specified survey
+     */
+    @Override
+    public Stream<Member> streamEligibleMembers(Long surveyId) {
+        RoaringBitmap eligible = RoaringBitmap.andNot(
+                memberRepository.getActiveMemberIds(), participationRepository.findAskedMemberIds(surveyId));
+
+        return eligible.stream()
+                .mapToObj(memberId -> memberRepository.findById((long) memberId))
+                .flatMap(Optional::stream);
+    }
+
+    /**
+     * Retrieves one page of the members eligible for a specific survey, in member id order. The cursor is the
+     * member id the page starts at: from there the active member bitmap is and-notted with the asked one a container
+     * of ids at a time until the page is full, so asked members are skipped container-wise and the eligible set is
+     * never computed as a whole. The eligible member after the page, if any, becomes the next cursor.
+     *
+     * @param surveyId the unique identifier of the survey for which eligible members need to be retrieved
+     * @param cursor   the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @param limit    the maximum number of members on the page
+     * @return the page of eligible {@link Member} objects and the cursor of the next page, {@code null} if no
+     *         eligible member follows
+     */
+    @Override
+    @Cacheable(ResultCacheConfig.ELIGIBLE_MEMBERS)
+    public CursorPage<Member> getEligibleMembers(Long surveyId, String cursor, int limit) {
+        PageCursor.checkLimit(limit);
+        long from = PageCursor.decode(cursor);
+        RoaringBitmap asked = participationRepository.findAskedMemberIds(surveyId);
+        RoaringBitmap active = memberRepository.getActiveMemberIds();
+
+        List<Member> members = new ArrayList<>(limit);
+        // member ids are ints, a larger cursor is past every member
+        long start = from > Integer.MAX_VALUE ? -1 : active.nextValue((int) from);
+        while (start >= 0) {
+            long end = (start | 0xFFFF) + 1;
+            PeekableIntIterator eligible = RoaringBitmap.andNot(active, asked, start, end).getIntIterator();
+            while (eligible.hasNext()) {
+                int memberId = eligible.next();
+                if (members.size() == limit) {
+                    return new CursorPage<>(members, PageCursor.encode(memberId));
+                }
+                memberRepository.findById((long) memberId).ifPresent(members::add);
+            }
+            start = end > Integer.MAX_VALUE ? -1 : active.nextValue((int) end);
+        }
+        return new CursorPage<>(members, null);
+    }
+
+    /**
+     * Retrieves statistics for all surveys from the per-survey aggregates kept by the participation repository.
      * Statistics include details about the number of completed, filtered,
      * and rejected participations, as well as the average length of participations
-     * for each survey.
+     * and its 50th, 90th and 99th percentile for each survey. Percentiles come from each
+     * aggregate's {@link hu.vszili.survey.data.LengthSketch}, accurate to 1%.
      *
      * @return a list of {@code SurveyStatistic} objects, where each object contains
      *         statistical data related to a specific survey
      */
     @Override
+    @Cacheable(value = ResultCacheConfig.STATISTICS, keyGenerator = ResultCacheConfig.KEY_GENERATOR)
     public List<SurveyStatistic> getStatistics() {
-        Long completedStatusId = statusRepository.findIdByName(COMPLETED_STATUS);
-        Long filteredStatusId = statusRepository.findIdByName(FILTERED_STATUS);
-        Long rejectedStatusId = statusRepository.findIdByName(REJECTED_STATUS);
-
-        List<SurveyStatistic> surveyStatistics = new ArrayList<>();
+        StatusCodes codes = statusRepository.getCodes();
 
-        Map<Long, List<Participation>> participationGrouping = participationRepository.findAll().stream()
-                .collect(groupingBy(Participation::getSurveyId));
-
-        participationGrouping.forEach((surveyID, participationList) ->
-                surveyStatistics.add(
-                    this.createStatistic(surveyID, participationList, completedStatusId, filteredStatusId, rejectedStatusId)));
-        return surveyStatistics;
+        return participationRepository.findSurveyAggregates().stream()
+                .map(aggregate -> this.createStatistic(aggregate, codes))
+                .toList();
     }
 
-    private SurveyStatistic createStatistic(Long surveyId, List<Participation> participation,
-                                            Long completedId, Long filteredId, Long rejectedId) {
-
-        Map<Long, Long> countsByStatus = participation.stream()
-                .collect(groupingBy(
-                        Participation::getStatus,
-                        counting()
-                ));
-
-        double avgLength = participation.stream()
-                .map(Participation::getLength)
-                .filter(Objects::nonNull)
-                .mapToInt(Integer::intValue)
-                .average()
-                .orElse(0.0);
-
+    private SurveyStatistic createStatistic(SurveyAggregate aggregate, StatusCodes codes) {
         return SurveyStatistic.builder()
-                .id(surveyId)
-                .name(surveyRepository.getNameById(surveyId))
-                .completedCount(countsByStatus.getOrDefault(completedId, 0L))
-                .filteredCount(countsByStatus.getOrDefault(filteredId, 0L))
-                .rejectedCount(countsByStatus.getOrDefault(rejectedId, 0L))
-                .averageLength(avgLength)
+                .id(aggregate.getSurveyId())
+                .name(surveyRepository.getNameById(aggregate.getSurveyId()))
+                .completedCount(aggregate.count(codes.getCompleted()))
+                .filteredCount(aggregate.count(codes.getFiltered()))
+                .rejectedCount(aggregate.count(codes.getRejected()))
+                .averageLength(aggregate.averageLength())
+                .p50Length(aggregate.lengthQuantile(0.5))
+                .p90Length(aggregate.lengthQuantile(0.9))
+                .p99Length(aggregate.lengthQuantile(0.99))
                 .build();
     }
 
@@ -0,0 +1,41 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.Participation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The dataset version at which the participations of each member and survey last changed through an append, shared
+ * by a loaded {@link Dataset} and every dataset appended to it. Members and surveys not appended to since the load
+ * are at the base version.
+ * <p>
+ * The single writer records an append before it publishes the appended dataset. So a reader whose dataset is older
+ * than the version recorded for a member has a stale view of that member, and one whose dataset is at least as new
+ * sees every change up to that version and no later one.
+ */
+public final class ChangeVersions {
+
+    private final Map<Long, Long> members = new ConcurrentHashMap<>();
+    private final Map<Long, Long> surveys = new ConcurrentHashMap<>();
+
+    /**
+     * Records that the participations appended as {@code version} changed their members and surveys.
+     */
+    public void record(List<Participation> participations, long version) {
+        for (Participation participation : participations) {
+            members.put(participation.getMemberId(), version);
+            surveys.put(participation.getSurveyId(), version);
+        }
+    }
+
+    public long ofMember(Long memberId, long baseVersion) {
+        return memberId == null ? baseVersion : members.getOrDefault(memberId, baseVersion);
+    }
+
+    public long ofSurvey(Long surveyId, long baseVersion) {
+        return surveyId == null ? baseVersion : surveys.getOrDefault(surveyId, baseVersion);
+    }
+
+}
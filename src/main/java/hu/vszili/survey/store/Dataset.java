@@ -0,0 +1,53 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.LoadReport;
+import lombok.Getter;
+
+/**
+ * One complete, consistent load of all CSV files. A dataset is built in full before it is published through
+ * {@link DatasetHolder} and is never modified afterwards, so readers need no locking.
+ * <p>
+ * Appending participations publishes a new dataset with the next version. It keeps the {@code baseVersion} of the
+ * load it was appended to and shares its {@link ChangeVersions}, which record when each member and survey changed.
+ */
+@Getter
+public final class Dataset {
+
+    private final long version;
+    private final long baseVersion;
+    private final MemberStore members;
+    private final StatusStore statuses;
+    private final SurveyStore surveys;
+    private final ParticipationShards participation;
+    private final LoadReport report;
+    private final ChangeVersions changes;
+
+    /**
+     * Creates a freshly loaded dataset, which is its own base.
+     */
+    public Dataset(long version, MemberStore members, StatusStore statuses, SurveyStore surveys,
+                   ParticipationShards participation, LoadReport report) {
+        this(version, version, members, statuses, surveys, participation, report, new ChangeVersions());
+    }
+
+    private Dataset(long version, long baseVersion, MemberStore members, StatusStore statuses, SurveyStore surveys,
+                    ParticipationShards participation, LoadReport report, ChangeVersions changes) {
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.members = members;
+        this.statuses = statuses;
+        this.surveys = surveys;
+        this.participation = participation;
+        this.report = report;
+        this.changes = changes;
+    }
+
+    /**
+     * Returns the dataset with appended participations, published as {@code version}. The caller records the
+     * append in {@link #getChanges()} before publishing it.
+     */
+    public Dataset appended(long version, ParticipationShards participation, LoadReport report) {
+        return new Dataset(version, baseVersion, members, statuses, surveys, participation, report, changes);
+    }
+
+}
@@ -0,0 +1,85 @@
+package hu.vszili.survey.store;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Publishes the current {@link Dataset}. Swapping replaces the whole dataset with a single volatile write:
+ * a reader sees either the old or the new dataset, never a mix or a partially loaded one.
+ * <p>
+ * A thread can {@link #pin()} the current dataset, so that several reads that belong together, e.g. resolving a
+ * status code and then querying participations by it, all see the same dataset even if another one is swapped in
+ * meanwhile. Services annotated with {@link PinnedDataset} pin it for each call.
+ */
+@Component
+public class DatasetHolder {
+
+    private static final Pin NOT_PINNED = () -> {
+    };
+
+    private volatile Dataset current;
+
+    private final ThreadLocal<Dataset> pinned = new ThreadLocal<>();
+
+    /**
+     * Returns the dataset pinned to the calling thread, or else the current one.
+     *
+     * @throws IllegalStateException if no dataset has been loaded yet
+     */
+    public Dataset get() {
+        Dataset dataset = pinned.get();
+        if (dataset == null) {
+            dataset = current;
+        }
+        if (dataset == null) {
+            throw new IllegalStateException("No dataset loaded");
+        }
+        return dataset;
+    }
+
+    /**
+     * Returns the current dataset, or empty if none has been loaded yet.
+     */
+    public Optional<Dataset> find() {
+        return Optional.ofNullable(current);
+    }
+
+    /**
+     * Returns the version the next published dataset should have.
+     */
+    public long nextVersion() {
+        Dataset dataset = current;
+        return dataset == null ? 1 : dataset.getVersion() + 1;
+    }
+
+    public void swap(Dataset dataset) {
+        current = dataset;
+    }
+
+    /**
+     * Pins the current dataset to the calling thread until the returned pin is closed. Pinning again while a pin is
+     * open keeps the outer pin, and nothing is pinned while no dataset has been loaded.
+     *
+     * @return the pin, to be closed by the same thread
+     */
+    public Pin pin() {
+        Dataset dataset = current;
+        if (dataset == null || pinned.get() != null) {
+            return NOT_PINNED;
+        }
+        pinned.set(dataset);
+        return pinned::remove;
+    }
+
+    /**
+     * An open {@link #pin()}.
+     */
+    public interface Pin extends AutoCloseable {
+
+        @Override
+        void close();
+
+    }
+
+}
@@ -0,0 +1,118 @@
+package hu.vszili.survey.store;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Binary image of the stores of a {@link Dataset}, derived indexes included, so a later start can map it instead of
+ * parsing the CSV files and building the indexes again.
+ * <p>
+ * The file starts with a magic number, the format version and a fingerprint (name, size, modification time) of every
+ * source file it was built from. A snapshot is only used while its format version is the current one and every
+ * source file still has the recorded fingerprint; anything else means the sources changed since it was written.
+ * Snapshots are written to a temporary file and moved in place, so a reader never sees a partial one.
+ */
+@Slf4j
+@Getter
+@RequiredArgsConstructor
+public final class DatasetSnapshot {
+
+    static final long MAGIC = 0x5355525645595331L;
+    static final int FORMAT_VERSION = 5;
+
+    private final MemberStore members;
+    private final StatusStore statuses;
+    private final SurveyStore surveys;
+    private final ParticipationShards participation;
+
+    /**
+     * Writes the stores of {@code dataset} to {@code file}, replacing it.
+     *
+     * @param sources fingerprints of the files the dataset was read from, taken before reading them
+     */
+    public static void write(Dataset dataset, List<Source> sources, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, String.valueOf(file.getFileName()), ".tmp");
+        try {
+            try (SnapshotWriter out = new SnapshotWriter(temporary)) {
+                out.writeLong(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(sources.size());
+                for (Source source : sources) {
+                    out.writeString(source.fileName());
+                    out.writeLong(source.size());
+                    out.writeLong(source.lastModifiedMillis());
+                }
+                dataset.getStatuses().writeTo(out);
+                dataset.getSurveys().writeTo(out);
+                dataset.getMembers().writeTo(out);
+                dataset.getParticipation().writeTo(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads the snapshot in {@code file} if it was built from exactly the given sources.
+     *
+     * @return the restored stores, or empty if the file is missing, has another format version or is stale
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public static Optional<DatasetSnapshot> read(Path file, List<Source> sources) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (SnapshotReader in = SnapshotReader.open(file)) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException(file + " is not a dataset snapshot");
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                log.info("Ignoring snapshot {}: format version {} instead of {}", file, formatVersion, FORMAT_VERSION);
+                return Optional.empty();
+            }
+            List<Source> recorded = new ArrayList<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                recorded.add(new Source(in.readString(), in.readLong(), in.readLong()));
+            }
+            if (!recorded.equals(sources)) {
+                log.info("Ignoring snapshot {}: source files changed since it was written", file);
+                return Optional.empty();
+            }
+            StatusStore statuses = StatusStore.readFrom(in);
+            SurveyStore surveys = SurveyStore.readFrom(in);
+            MemberStore members = MemberStore.readFrom(in);
+            ParticipationShards participation = ParticipationShards.readFrom(in);
+            if (!in.isAtEnd()) {
+                throw new IOException(file + " has trailing bytes");
+            }
+            return Optional.of(new DatasetSnapshot(members, statuses, surveys, participation));
+        }
+    }
+
+    /**
+     * Fingerprint of a source file: a snapshot is stale once any of these differ.
+     */
+    public record Source(String fileName, long size, long lastModifiedMillis) {
+
+        public static Source of(Path file) throws IOException {
+            return new Source(String.valueOf(file.getFileName()), Files.size(file),
+                    Files.getLastModifiedTime(file).toMillis());
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.csv.MappedCsvReader;
+import hu.vszili.survey.data.Member;
+import hu.vszili.survey.exception.CsvReadingException;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Optional;
+
+/**
+ * Members of one {@link Dataset}, read from {@value #FILE_NAME}. Names and e-mail addresses are kept encoded in a
+ * {@link MemberTable} arena and decoded into a {@link Member} per lookup. Not modified once built.
+ */
+public final class MemberStore {
+
+    public static final String FILE_NAME = "Members.csv";
+
+    private static final String ID_COLUMN = "Member Id";
+    private static final String FULL_NAME_COLUMN = "Full name";
+    private static final String EMAIL_COLUMN = "E-mail address";
+    private static final String ACTIVE_COLUMN = "Is Active";
+
+    private final MemberTable members;
+
+    private final RoaringBitmap memberIds;
+
+    private final RoaringBitmap activeMemberIds;
+
+    private MemberStore(MemberTable members, RoaringBitmap memberIds, RoaringBitmap activeMemberIds) {
+        this.members = members;
+        this.memberIds = memberIds;
+        this.activeMemberIds = activeMemberIds;
+    }
+
+    public static MemberStore read(Path file) {
+        MemberTable members = new MemberTable();
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            int idColumn = reader.columnIndex(ID_COLUMN);
+            int fullNameColumn = reader.columnIndex(FULL_NAME_COLUMN);
+            int emailColumn = reader.columnIndex(EMAIL_COLUMN);
+            int activeColumn = reader.columnIndex(ACTIVE_COLUMN);
+            while (reader.next()) {
+                members.add(
+                        reader.getLong(idColumn),
+                        reader.getString(fullNameColumn),
+                        reader.getString(emailColumn),
+                        reader.getBoolean(activeColumn));
+            }
+        } catch (IOException e) {
+            throw new CsvReadingException("Error reading members file: " + e.getMessage());
+        }
+        members.seal();
+
+        RoaringBitmap memberIds = RoaringBitmap.bitmapOf(members.ids());
+        RoaringBitmap activeMemberIds = new RoaringBitmap();
+        for (int index = members.active().nextSetBit(0); index >= 0; index = members.active().nextSetBit(index + 1)) {
+            activeMemberIds.add(members.id(index));
+        }
+        memberIds.runOptimize();
+        activeMemberIds.runOptimize();
+        return new MemberStore(members, memberIds, activeMemberIds);
+    }
+
+    static MemberStore readFrom(SnapshotReader in) throws IOException {
+        RoaringBitmap memberIds = in.readBitmap();
+        RoaringBitmap activeMemberIds = in.readBitmap();
+        int size = in.readInt();
+        int[] ids = in.readInts(size);
+        int[] offsets = in.readInts(2 * size + 1);
+        byte[] arena = in.readBytes(offsets[2 * size]);
+        long[] active = new long[in.readInt()];
+        for (int i = 0; i < active.length; i++) {
+            active[i] = in.readLong();
+        }
+        return new MemberStore(new MemberTable(ids, offsets, arena, BitSet.valueOf(active)), memberIds,
+                activeMemberIds);
+    }
+
+    void writeTo(SnapshotWriter out) throws IOException {
+        out.writeBitmap(memberIds);
+        out.writeBitmap(activeMemberIds);
+        out.writeInt(members.size());
+        out.writeInts(members.ids());
+        out.writeInts(members.offsets());
+        out.writeBytes(members.arena());
+        long[] active = members.active().toLongArray();
+        out.writeInt(active.length);
+        for (long word : active) {
+            out.writeLong(word);
+        }
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public Optional<Member> findById(Long memberId) {
+        int index = members.indexOf(memberId);
+        return index < 0 ? Optional.empty() : Optional.of(members.get(index));
+    }
+
+    public boolean existsById(Long memberId) {
+        return members.indexOf(memberId) >= 0;
+    }
+
+    public RoaringBitmap getMemberIds() {
+        return memberIds;
+    }
+
+    public RoaringBitmap getActiveMemberIds() {
+        return activeMemberIds;
+    }
+
+}
@@ -0,0 +1,186 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.Member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Columnar member storage: ids in one int array, active flags in a bit set, and full names and e-mail addresses
+ * UTF-8 encoded back to back in a single byte array (the arena), addressed by an offset table.
+ * <p>
+ * Member {@code i}'s name spans {@code offsets[2i]..offsets[2i+1]} of the arena and its e-mail address
+ * {@code offsets[2i+1]..offsets[2i+2]}. Whatever the number of members the heap holds a handful of arrays instead of
+ * three objects per member; {@link Member} objects are only created by {@link #get(int)}.
+ * <p>
+ * Rows are appended in file order, then {@link #seal() sealed}: sorted by id, with the last row of a repeated id
+ * winning, so lookups are a binary search. Not modified after sealing.
+ */
+final class MemberTable {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_ARENA_SIZE = Integer.MAX_VALUE - 8;
+
+    private int[] ids;
+    private int[] offsets;
+    private byte[] arena;
+    private BitSet active;
+    private int size;
+    private boolean sorted = true;
+
+    MemberTable() {
+        this.ids = new int[DEFAULT_CAPACITY];
+        this.offsets = new int[2 * DEFAULT_CAPACITY + 1];
+        this.arena = new byte[DEFAULT_CAPACITY * 32];
+        this.active = new BitSet();
+    }
+
+    /**
+     * Wraps sealed columns, e.g. ones read from a snapshot.
+     */
+    MemberTable(int[] ids, int[] offsets, byte[] arena, BitSet active) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.arena = arena;
+        this.active = active;
+        this.size = ids.length;
+    }
+
+    void add(long id, String fullName, String email, boolean isActive) {
+        if (size == ids.length) {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            offsets = Arrays.copyOf(offsets, 2 * capacity + 1);
+        }
+        int memberId = Math.toIntExact(id);
+        if (size > 0 && memberId <= ids[size - 1]) {
+            sorted = false;
+        }
+        ids[size] = memberId;
+        active.set(size, isActive);
+        offsets[2 * size + 1] = this.append(offsets[2 * size], fullName);
+        offsets[2 * size + 2] = this.append(offsets[2 * size + 1], email);
+        size++;
+    }
+
+    /**
+     * Sorts the rows by id, drops all but the last row of a repeated id and trims the arrays to size.
+     */
+    void seal() {
+        if (!sorted) {
+            this.sortById();
+        }
+        ids = Arrays.copyOf(ids, size);
+        offsets = Arrays.copyOf(offsets, 2 * size + 1);
+        arena = Arrays.copyOf(arena, offsets[2 * size]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the position of the member with the given id, or {@code -1} if there is none.
+     */
+    int indexOf(long id) {
+        if (id < Integer.MIN_VALUE || id > Integer.MAX_VALUE) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, (int) id);
+        return index < 0 ? -1 : index;
+    }
+
+    int id(int index) {
+        return ids[index];
+    }
+
+    boolean isActive(int index) {
+        return active.get(index);
+    }
+
+    Member get(int index) {
+        Member member = new Member();
+        member.setId((long) ids[index]);
+        member.setFullName(this.text(2 * index));
+        member.setEmail(this.text(2 * index + 1));
+        member.setActive(active.get(index));
+        return member;
+    }
+
+    int[] ids() {
+        return ids;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    byte[] arena() {
+        return arena;
+    }
+
+    BitSet active() {
+        return active;
+    }
+
+    private String text(int field) {
+        return new String(arena, offsets[field], offsets[field + 1] - offsets[field], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends the encoded value at {@code from} and returns the offset after it.
+     */
+    private int append(int from, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long to = (long) from + bytes.length;
+        if (to > MAX_ARENA_SIZE) {
+            throw new IllegalStateException("Member names and e-mail addresses exceed " + MAX_ARENA_SIZE + " bytes");
+        }
+        if (to > arena.length) {
+            long capacity = Math.max(to, arena.length + (arena.length >> 1));
+            arena = Arrays.copyOf(arena, (int) Math.min(MAX_ARENA_SIZE, capacity));
+        }
+        System.arraycopy(bytes, 0, arena, from, bytes.length);
+        return (int) to;
+    }
+
+    /**
+     * Rebuilds the columns in id order. Sorting {@code id << 32 | row} keeps rows of the same id in load order.
+     */
+    private void sortById() {
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            keys[row] = (long) ids[row] << 32 | row;
+        }
+        Arrays.sort(keys);
+
+        int[] sortedIds = new int[size];
+        int[] sortedOffsets = new int[2 * size + 1];
+        byte[] sortedArena = new byte[offsets[2 * size]];
+        BitSet sortedActive = new BitSet(size);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int row = (int) keys[i];
+            if (i + 1 < size && (int) (keys[i + 1] >>> 32) == ids[row]) {
+                continue;
+            }
+            int from = offsets[2 * row];
+            int length = offsets[2 * row + 2] - from;
+            int to = sortedOffsets[2 * count];
+            System.arraycopy(arena, from, sortedArena, to, length);
+            sortedOffsets[2 * count + 1] = to + offsets[2 * row + 1] - from;
+            sortedOffsets[2 * count + 2] = to + length;
+            sortedIds[count] = ids[row];
+            sortedActive.set(count, active.get(row));
+            count++;
+        }
+        ids = sortedIds;
+        offsets = sortedOffsets;
+        arena = sortedArena;
+        active = sortedActive;
+        size = count;
+        sorted = true;
+    }
+
+}
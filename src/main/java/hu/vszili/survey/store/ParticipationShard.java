@@ -0,0 +1,63 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.SurveyAggregate;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Collection;
+
+/**
+ * Queries over a set of participations that holds every row of its members. {@link ParticipationStore} answers them
+ * in-process; {@link ParticipationShards} routes and gathers them over several shards, and a shard held by another
+ * node would implement the same queries over the wire.
+ */
+public interface ParticipationShard {
+
+    int size();
+
+    /**
+     * Returns the number of rows in the member's index, i.e. the rows a status query for the member scans.
+     */
+    int countByMemberId(Long memberId);
+
+    /**
+     * Returns the number of rows in the survey's index, i.e. the rows a status query for the survey scans.
+     */
+    int countBySurveyId(Long surveyId);
+
+    ParticipationRows findAll();
+
+    ParticipationRows findByMemberId(Long memberId);
+
+    ParticipationRows findBySurveyId(Long surveyId);
+
+    ParticipationRows findByMemberIdAndStatus(Long memberId, byte status);
+
+    ParticipationRows findBySurveyIdAndStatus(Long surveyId, byte status);
+
+    /**
+     * Returns up to {@code limit} of the member's rows with the given status code, from position {@code from} of
+     * the member's index.
+     */
+    ParticipationPage findByMemberIdAndStatus(Long memberId, byte status, long from, int limit);
+
+    /**
+     * Returns up to {@code limit} of the survey's rows with the given status code, from position {@code from} of
+     * the survey's index.
+     */
+    ParticipationPage findBySurveyIdAndStatus(Long surveyId, byte status, long from, int limit);
+
+    /**
+     * Returns the aggregates in the order their surveys first appear.
+     */
+    Collection<SurveyAggregate> findSurveyAggregates();
+
+    /**
+     * Returns the members asked for the survey. The bitmap may be shared and must not be modified.
+     */
+    RoaringBitmap findAskedMemberIds(Long surveyId);
+
+    int findPointsByMemberId(Long memberId);
+
+}
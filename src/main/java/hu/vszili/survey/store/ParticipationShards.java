@@ -0,0 +1,273 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.SurveyAggregate;
+import hu.vszili.survey.exception.CsvReadingException;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import it.unimi.dsi.fastutil.HashCommon;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Participations of one {@link Dataset}, partitioned by member into shards: every row of a member is in the shard
+ * its id hashes to. Member-keyed queries are routed to that one shard. Survey-keyed queries go to every shard and
+ * the answers are gathered: rows are concatenated in shard order, aggregates summed and asked-member bitmaps
+ * combined. With a single shard every query is passed straight to it.
+ * <p>
+ * Routing and gathering only call {@link ParticipationShard} methods, so they would not change for a shard that lives
+ * elsewhere. The shards are held as in-process {@link ParticipationStore}s, because reading, appending, derived
+ * indexes and snapshots work on the stores themselves. A page of a survey's rows is read shard after shard, and its
+ * position packs the shard with the position in that shard's index into a long, so page cursors stay valid while
+ * rows are appended. Not modified once built, like the stores: appending returns new shards.
+ */
+public final class ParticipationShards implements ParticipationShard {
+
+    private final List<ParticipationStore> stores;
+
+    private ParticipationShards(List<ParticipationStore> stores) {
+        this.stores = stores;
+    }
+
+    /**
+     * Reads {@value ParticipationStore#FILE_NAME} into {@code count} shards.
+     *
+     * @param statuses    the status dictionary of the same dataset
+     * @param parallelism maximum number of parsing threads, {@code 0} for the number of available processors
+     * @param count       the number of shards, at least 1
+     * @throws CsvReadingException if a row has a status id that is not in the dictionary
+     */
+    public static ParticipationShards read(Path file, StatusStore statuses, int parallelism, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + count);
+        }
+        if (count == 1) {
+            return new ParticipationShards(List.of(ParticipationStore.read(file, statuses, parallelism)));
+        }
+        return new ParticipationShards(List.of(ParticipationStore.read(file, statuses, parallelism, count,
+                memberId -> shardOf(memberId, count))));
+    }
+
+    /**
+     * Restores shards written by {@link #writeTo(SnapshotWriter)}.
+     */
+    static ParticipationShards readFrom(SnapshotReader in) throws IOException {
+        int count = in.readInt();
+        List<ParticipationStore> stores = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            stores.add(ParticipationStore.readFrom(in));
+        }
+        return new ParticipationShards(List.copyOf(stores));
+    }
+
+    void writeTo(SnapshotWriter out) throws IOException {
+        out.writeInt(stores.size());
+        for (ParticipationStore store : stores) {
+            store.writeTo(out);
+        }
+    }
+
+    /**
+     * Returns the shard of a member: a mix of the id's bits modulo the shard count, so consecutive ids spread
+     * evenly whatever the count.
+     */
+    static int shardOf(long memberId, int count) {
+        return Math.floorMod(HashCommon.mix(memberId), count);
+    }
+
+    public int count() {
+        return stores.size();
+    }
+
+    /**
+     * Builds the derived indexes of every shard, see {@link ParticipationStore#buildDerivedIndexes}.
+     */
+    public void buildDerivedIndexes(StatusStore statuses, SurveyStore surveys) {
+        stores.forEach(store -> store.buildDerivedIndexes(statuses, surveys));
+    }
+
+    /**
+     * Returns shards with the given participations appended to the shards of their members, see
+     * {@link ParticipationStore#append}. The rows a participation replaces belong to its member, so they are in the
+     * same shard. Every status is checked before any shard is appended to, so a rejected append leaves all shards
+     * as they were.
+     *
+     * @param participations the participations to append, in order
+     * @param statuses       the status dictionary of the same dataset, to encode statuses
+     * @param surveys        the surveys of the same dataset, for points
+     * @return the shards with the appended rows
+     * @throws InvalidParticipationException if a participation fails
+     *                                       {@link ParticipationStore#validate(Participation, StatusStore)}
+     */
+    public ParticipationShards append(List<Participation> participations, StatusStore statuses,
+                                      SurveyStore surveys) {
+        if (stores.size() == 1) {
+            return new ParticipationShards(List.of(stores.get(0).append(participations, statuses, surveys)));
+        }
+        List<List<Participation>> byShard = new ArrayList<>(stores.size());
+        for (int shard = 0; shard < stores.size(); shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Participation participation : participations) {
+            ParticipationStore.validate(participation, statuses);
+            byShard.get(shardOf(participation.getMemberId(), stores.size())).add(participation);
+        }
+        List<ParticipationStore> appended = new ArrayList<>(stores);
+        for (int shard = 0; shard < stores.size(); shard++) {
+            if (!byShard.get(shard).isEmpty()) {
+                appended.set(shard, stores.get(shard).append(byShard.get(shard), statuses, surveys));
+            }
+        }
+        return new ParticipationShards(List.copyOf(appended));
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (ParticipationShard shard : stores) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int countByMemberId(Long memberId) {
+        return this.shard(memberId).countByMemberId(memberId);
+    }
+
+    @Override
+    public int countBySurveyId(Long surveyId) {
+        int count = 0;
+        for (ParticipationShard shard : stores) {
+            count += shard.countBySurveyId(surveyId);
+        }
+        return count;
+    }
+
+    @Override
+    public ParticipationRows findAll() {
+        return this.gather(ParticipationShard::findAll);
+    }
+
+    @Override
+    public ParticipationRows findByMemberId(Long memberId) {
+        return this.shard(memberId).findByMemberId(memberId);
+    }
+
+    @Override
+    public ParticipationRows findBySurveyId(Long surveyId) {
+        return this.gather(shard -> shard.findBySurveyId(surveyId));
+    }
+
+    @Override
+    public ParticipationRows findByMemberIdAndStatus(Long memberId, byte status) {
+        return this.shard(memberId).findByMemberIdAndStatus(memberId, status);
+    }
+
+    @Override
+    public ParticipationRows findBySurveyIdAndStatus(Long surveyId, byte status) {
+        return this.gather(shard -> shard.findBySurveyIdAndStatus(surveyId, status));
+    }
+
+    @Override
+    public ParticipationPage findByMemberIdAndStatus(Long memberId, byte status, long from, int limit) {
+        return this.shard(memberId).findByMemberIdAndStatus(memberId, status, from, limit);
+    }
+
+    /**
+     * Reads the page from the shard and index position packed into {@code from}, continuing with the next shards
+     * until the page is full.
+     */
+    @Override
+    public ParticipationPage findBySurveyIdAndStatus(Long surveyId, byte status, long from, int limit) {
+        int count = stores.size();
+        if (count == 1) {
+            return stores.get(0).findBySurveyIdAndStatus(surveyId, status, from, limit);
+        }
+        int shard = (int) (from % count);
+        long position = from / count;
+        List<ParticipationRows> rows = new ArrayList<>();
+        int found = 0;
+        int scanned = 0;
+        while (shard < count && found < limit) {
+            ParticipationShard participation = stores.get(shard);
+            ParticipationPage page = participation.findBySurveyIdAndStatus(surveyId, status, position, limit - found);
+            rows.add(page.getRows());
+            found += page.getRows().size();
+            scanned += page.getScannedRows();
+            if (page.hasNext()) {
+                position = page.getNextPosition();
+            } else {
+                shard++;
+                position = 0;
+            }
+        }
+        long next = shard < count ? position * count + shard : ParticipationPage.END;
+        return new ParticipationPage(ParticipationRows.concat(rows), next, scanned);
+    }
+
+    /**
+     * Returns the aggregates summed over the shards, in the order their surveys first appear shard after shard.
+     */
+    @Override
+    public Collection<SurveyAggregate> findSurveyAggregates() {
+        if (stores.size() == 1) {
+            return stores.get(0).findSurveyAggregates();
+        }
+        Map<Long, SurveyAggregate> aggregates = new LinkedHashMap<>();
+        for (ParticipationShard shard : stores) {
+            for (SurveyAggregate aggregate : shard.findSurveyAggregates()) {
+                aggregates.merge(aggregate.getSurveyId(), aggregate, SurveyAggregate::plus);
+            }
+        }
+        return Collections.unmodifiableCollection(aggregates.values());
+    }
+
+    /**
+     * Returns the members asked for the survey; with several shards a new bitmap combining theirs, which hold
+     * disjoint members.
+     */
+    @Override
+    public RoaringBitmap findAskedMemberIds(Long surveyId) {
+        if (stores.size() == 1) {
+            return stores.get(0).findAskedMemberIds(surveyId);
+        }
+        RoaringBitmap[] asked = new RoaringBitmap[stores.size()];
+        for (int shard = 0; shard < asked.length; shard++) {
+            asked[shard] = stores.get(shard).findAskedMemberIds(surveyId);
+        }
+        return FastAggregation.or(asked);
+    }
+
+    @Override
+    public int findPointsByMemberId(Long memberId) {
+        return this.shard(memberId).findPointsByMemberId(memberId);
+    }
+
+    private ParticipationShard shard(Long memberId) {
+        return stores.get(stores.size() == 1 ? 0 : shardOf(memberId, stores.size()));
+    }
+
+    private ParticipationRows gather(Function<ParticipationShard, ParticipationRows> query) {
+        if (stores.size() == 1) {
+            return query.apply(stores.get(0));
+        }
+        List<ParticipationRows> rows = new ArrayList<>(stores.size());
+        for (ParticipationShard shard : stores) {
+            rows.add(query.apply(shard));
+        }
+        return ParticipationRows.concat(rows);
+    }
+
+}
@@ -0,0 +1,898 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.csv.MappedCsvReader;
+import hu.vszili.survey.data.LengthSketch;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.ParticipationTable;
+import hu.vszili.survey.data.StatusCodes;
+import hu.vszili.survey.data.SurveyAggregate;
+import hu.vszili.survey.exception.CsvReadingException;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Participations of one {@link Dataset}, read from {@value #FILE_NAME}, with the indexes built over them.
+ * <p>
+ * {@link #read(Path, StatusStore, int)} encodes each status id through the status dictionary and builds everything
+ * that only depends on the participation rows. The asked-member bitmaps and the points ledger also need surveys,
+ * they are built by {@link #buildDerivedIndexes(StatusStore, SurveyStore)} before the dataset is published.
+ * Not modified afterwards.
+ * <p>
+ * {@link #append(List, StatusStore, SurveyStore)} returns a new store with more rows that shares the columns and
+ * indexes of this one. Appended rows are indexed by member and survey as they are added, in lists that every later
+ * store shares and reads only up to its own size, together with the earlier row of the same member and survey each
+ * one replaces. Replaced rows stay in the columns but are skipped by every query. Aggregates, asked members and
+ * points of the built store are never copied by an append: queries fold the appended rows of the surveys or member
+ * they ask about into them, and asked members are folded once per store and survey. Once the appended rows outgrow
+ * a {@value #COMPACT_RATIO}th of the store, the rows that are not replaced are rebuilt into a new store, so appends
+ * cost a constant amount per row on average.
+ * <p>
+ * One store is one in-process {@link ParticipationShard}; {@link ParticipationShards} splits the file into several.
+ */
+@Slf4j
+public final class ParticipationStore implements ParticipationShard {
+
+    public static final String FILE_NAME = "Participation.csv";
+
+    static final int MIN_COMPACT_ROWS = 1 << 16;
+    static final int COMPACT_RATIO = 8;
+
+    private static final int[] NO_ROWS = new int[0];
+    private static final long MIN_CHUNK_BYTES = 8L << 20;
+    private static final RoaringBitmap NO_MEMBERS = new RoaringBitmap();
+    public static final String MEMBER_ID_COLUMN = "Member Id";
+    public static final String SURVEY_ID_COLUMN = "Survey Id";
+    public static final String STATUS_COLUMN = "Status";
+    public static final String LENGTH_COLUMN = "Length";
+
+    private final ParticipationTable participation;
+
+    private final Map<Long, int[]> rowsByMember;
+    private final Map<Long, int[]> rowsBySurvey;
+    private final Map<Long, SurveyAggregate> aggregatesBySurvey;
+    private final Map<Long, RoaringBitmap> askedMembersBySurvey;
+    private final Long2IntOpenHashMap pointsByMember;
+
+    /**
+     * Rows appended since the indexes above were built, or {@code null} if there are none.
+     */
+    private final AppendedRows appended;
+
+    /**
+     * Number of rows, built or appended, that an appended row of the same member and survey replaced.
+     */
+    private final int replacedRows;
+
+    /**
+     * Asked members of the surveys with appended rows that were asked about, appended rows included.
+     */
+    private final Map<Long, RoaringBitmap> appendedAskedMembers;
+
+    private ParticipationStore(ParticipationTable participation) {
+        this(participation, index(participation, participation::memberId),
+                index(participation, participation::surveyId));
+        for (int row = 0; row < participation.size(); row++) {
+            aggregatesBySurvey.computeIfAbsent(participation.surveyId(row), SurveyAggregate::new)
+                    .add(participation.status(row), participation.length(row));
+        }
+    }
+
+    private ParticipationStore(ParticipationTable participation, Map<Long, int[]> rowsByMember,
+                               Map<Long, int[]> rowsBySurvey) {
+        this.participation = participation;
+        this.rowsByMember = rowsByMember;
+        this.rowsBySurvey = rowsBySurvey;
+        this.aggregatesBySurvey = new LinkedHashMap<>();
+        this.askedMembersBySurvey = new HashMap<>();
+        this.pointsByMember = new Long2IntOpenHashMap();
+        this.appended = null;
+        this.replacedRows = 0;
+        this.appendedAskedMembers = Map.of();
+    }
+
+    /**
+     * Shares every index of {@code base}, whose rows are the first rows of {@code participation}.
+     */
+    private ParticipationStore(ParticipationStore base, ParticipationTable participation, AppendedRows appended,
+                               int replacedRows) {
+        this.participation = participation;
+        this.rowsByMember = base.rowsByMember;
+        this.rowsBySurvey = base.rowsBySurvey;
+        this.aggregatesBySurvey = base.aggregatesBySurvey;
+        this.askedMembersBySurvey = base.askedMembersBySurvey;
+        this.pointsByMember = base.pointsByMember;
+        this.appended = appended;
+        this.replacedRows = replacedRows;
+        this.appendedAskedMembers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Parses the file, in newline-aligned chunks on up to {@code parallelism} threads when it is large enough.
+     *
+     * @param statuses    the status dictionary of the same dataset
+     * @param parallelism maximum number of parsing threads, {@code 0} for the number of available processors
+     * @throws CsvReadingException if a row has a status id that is not in the dictionary
+     */
+    public static ParticipationStore read(Path file, StatusStore statuses, int parallelism) {
+        ParticipationStore store = new ParticipationStore(readTable(file, statuses, parallelism));
+        log.info("Participation loaded (members: {}, surveys: {})",
+                store.rowsByMember.size(), store.rowsBySurvey.size());
+        return store;
+    }
+
+    /**
+     * Parses the file like {@link #read(Path, StatusStore, int)} and splits the rows into {@code count} stores by
+     * the shard {@code shardOf} returns for their member id, keeping their order within each store.
+     *
+     * @throws CsvReadingException if a row has a status id that is not in the dictionary
+     */
+    static ParticipationStore[] read(Path file, StatusStore statuses, int parallelism, int count,
+                                     LongToIntFunction shardOf) {
+        ParticipationTable table = readTable(file, statuses, parallelism);
+        int[] sizes = new int[count];
+        for (int row = 0; row < table.size(); row++) {
+            sizes[shardOf.applyAsInt(table.memberId(row))]++;
+        }
+        ParticipationTable[] tables = new ParticipationTable[count];
+        for (int shard = 0; shard < count; shard++) {
+            tables[shard] = new ParticipationTable(sizes[shard]);
+        }
+        for (int row = 0; row < table.size(); row++) {
+            tables[shardOf.applyAsInt(table.memberId(row))]
+                    .add(table.memberId(row), table.surveyId(row), table.status(row), table.length(row));
+        }
+        ParticipationStore[] stores = new ParticipationStore[count];
+        for (int shard = 0; shard < count; shard++) {
+            stores[shard] = new ParticipationStore(tables[shard]);
+        }
+        log.info("Participation loaded into {} shards of {} to {} rows", count,
+                Arrays.stream(sizes).min().orElse(0), Arrays.stream(sizes).max().orElse(0));
+        return stores;
+    }
+
+    private static ParticipationTable readTable(Path file, StatusStore statuses, int parallelism) {
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            long dataBytes = Files.size(file) - reader.getDataOffset();
+            int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            int chunks = (int) Math.max(1, Math.min(threads, dataBytes / MIN_CHUNK_BYTES));
+            return chunks == 1 ? parse(reader, statuses) : parseInParallel(reader, statuses, chunks);
+        } catch (IOException e) {
+            throw new CsvReadingException("Error reading participation file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses newline-aligned byte ranges of the file on a dedicated fork-join pool, then concatenates the
+     * per-range tables in file order, so the resulting row order is the same as a sequential parse.
+     */
+    private static ParticipationTable parseInParallel(MappedCsvReader reader, StatusStore statuses, int chunks)
+            throws IOException {
+        long[] offsets = reader.split(chunks);
+        List<Callable<ParticipationTable>> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            long from = offsets[i];
+            long to = offsets[i + 1];
+            tasks.add(() -> {
+                try (MappedCsvReader range = reader.range(from, to)) {
+                    return parse(range, statuses);
+                }
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(chunks);
+        try {
+            ParticipationTable table = new ParticipationTable();
+            for (Future<ParticipationTable> chunk : pool.invokeAll(tasks)) {
+                table.addAll(chunk.get());
+            }
+            log.info("Participation parsed in {} chunks", chunks);
+            return table;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CsvReadingException("Interrupted while reading participation file");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CsvReadingException csvReadingException) {
+                throw csvReadingException;
+            }
+            throw new CsvReadingException("Error reading participation file: " + e.getCause().getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static ParticipationTable parse(MappedCsvReader reader, StatusStore statuses) throws IOException {
+        int memberIdColumn = reader.columnIndex(MEMBER_ID_COLUMN);
+        int surveyIdColumn = reader.columnIndex(SURVEY_ID_COLUMN);
+        int statusColumn = reader.columnIndex(STATUS_COLUMN);
+        int lengthColumn = reader.columnIndex(LENGTH_COLUMN);
+        ParticipationTable table = new ParticipationTable();
+        while (reader.next()) {
+            long statusId = reader.getLong(statusColumn);
+            byte status = statuses.codeOf(statusId);
+            if (status == StatusCodes.NO_CODE) {
+                throw new CsvReadingException(
+                        String.format("Unknown status id %d at line %d", statusId, reader.getLineNumber()));
+            }
+            // ids are kept as ints, so one that does not fit is reported with its line instead of failing the add
+            table.add(
+                    reader.getInt(memberIdColumn),
+                    reader.getInt(surveyIdColumn),
+                    status,
+                    reader.getNonNegativeInt(lengthColumn, ParticipationTable.NO_LENGTH));
+        }
+        return table;
+    }
+
+    /**
+     * Builds the asked-member bitmaps and the points ledger from the statuses and surveys of the same dataset.
+     */
+    public void buildDerivedIndexes(StatusStore statuses, SurveyStore surveys) {
+        StatusCodes codes = statuses.getCodes();
+        askedMembersBySurvey.clear();
+        pointsByMember.clear();
+        for (int row = 0; row < participation.size(); row++) {
+            long memberId = participation.memberId(row);
+            long surveyId = participation.surveyId(row);
+            byte status = participation.status(row);
+            if (status != codes.getNotAsked()) {
+                askedMembersBySurvey.computeIfAbsent(surveyId, id -> new RoaringBitmap()).add((int) memberId);
+            }
+            int points = pointsOf(status, surveyId, codes, surveys);
+            if (points != 0) {
+                pointsByMember.addTo(memberId, points);
+            }
+        }
+        askedMembersBySurvey.values().forEach(RoaringBitmap::runOptimize);
+        pointsByMember.trim();
+    }
+
+    /**
+     * Returns the points a participation is worth: the survey's points for "Completed" and "Filtered", else 0.
+     */
+    private static int pointsOf(byte status, long surveyId, StatusCodes codes, SurveyStore surveys) {
+        boolean completed = status == codes.getCompleted();
+        if ((completed || status == codes.getFiltered()) && surveys.existsById(surveyId)) {
+            return surveys.getPoints(surveyId, completed);
+        }
+        return 0;
+    }
+
+    /**
+     * Checks that a participation can be appended: its status id is in the dictionary, its ids fit the int
+     * columns of the store and its length, if any, is not negative.
+     *
+     * @param statuses the status dictionary of the dataset to append to
+     * @throws InvalidParticipationException if the participation cannot be appended
+     */
+    public static void validate(Participation participation, StatusStore statuses) {
+        if (statuses.codeOf(participation.getStatus()) == StatusCodes.NO_CODE) {
+            throw new InvalidParticipationException("Unknown status id " + participation.getStatus());
+        }
+        if (participation.getMemberId() != (int) participation.getMemberId().longValue()) {
+            throw new InvalidParticipationException("Member id " + participation.getMemberId() + " is out of range");
+        }
+        if (participation.getSurveyId() != (int) participation.getSurveyId().longValue()) {
+            throw new InvalidParticipationException("Survey id " + participation.getSurveyId() + " is out of range");
+        }
+        if (participation.getLength() != null && participation.getLength() < 0) {
+            throw new InvalidParticipationException("Length " + participation.getLength() + " is negative");
+        }
+    }
+
+    /**
+     * Returns a store with the given participations appended after the rows of this store. A participation replaces
+     * the last row of the same member and survey, if there is one, so each pair keeps the status appended last. This
+     * store does not change and can still be read, but only the newest store may be appended to; a store that is
+     * built but not published may be dropped, and the next append to this store replaces its rows.
+     *
+     * @param participations the participations to append, in order
+     * @param statuses       the status dictionary of the same dataset, to encode statuses
+     * @param surveys        the surveys of the same dataset, for points
+     * @return the store with the appended rows
+     * @throws InvalidParticipationException if a participation fails {@link #validate(Participation, StatusStore)}
+     */
+    public ParticipationStore append(List<Participation> participations, StatusStore statuses, SurveyStore surveys) {
+        ParticipationTable rows = new ParticipationTable(participations.size());
+        for (Participation participation : participations) {
+            validate(participation, statuses);
+            byte status = statuses.codeOf(participation.getStatus());
+            rows.add(participation.getMemberId(), participation.getSurveyId(), status,
+                    participation.getLength() == null ? ParticipationTable.NO_LENGTH : participation.getLength());
+        }
+
+        ParticipationTable table = participation.fork();
+        AppendedRows appendedRows = appended != null ? appended
+                : new AppendedRows(participation.size(), statuses, surveys);
+        int replaced = replacedRows;
+        for (int i = 0; i < rows.size(); i++) {
+            int row = table.size();
+            long memberId = rows.memberId(i);
+            long surveyId = rows.surveyId(i);
+            int current = this.lastRow(table, appendedRows, memberId, surveyId, row);
+            table.add(memberId, surveyId, rows.status(i), rows.length(i));
+            appendedRows.index(row, memberId, surveyId, current);
+            if (current >= 0) {
+                replaced++;
+            }
+        }
+        ParticipationStore store = new ParticipationStore(this, table, appendedRows, replaced);
+        int appendedCount = table.size() - appendedRows.firstRow;
+        return appendedCount > Math.max(MIN_COMPACT_ROWS, appendedRows.firstRow / COMPACT_RATIO)
+                ? store.compact()
+                : store;
+    }
+
+    /**
+     * Returns the last row below {@code limit} of the member and survey, or {@code -1} if there is none. Rows of
+     * one member are few, so they are scanned from the newest.
+     */
+    private int lastRow(ParticipationTable table, AppendedRows appendedRows, long memberId, long surveyId,
+                        int limit) {
+        IndexRows rows = RowList.below(appendedRows.rowsByMember.get(memberId),
+                rowsByMember.getOrDefault(memberId, NO_ROWS), limit);
+        for (int position = rows.positions() - 1; position >= 0; position--) {
+            if (table.surveyId(rows.get(position)) == surveyId) {
+                return rows.get(position);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds a store over the rows that are not replaced with all of them indexed, so nothing is left to combine at
+     * query time. Dropping replaced rows moves the positions after them, so a page position taken before a
+     * compaction may skip or repeat as many rows as were replaced before it.
+     */
+    private ParticipationStore compact() {
+        long start = System.nanoTime();
+        ParticipationStore compacted = new ParticipationStore(replacedRows == 0 ? participation : this.liveTable());
+        compacted.buildDerivedIndexes(appended.statuses, appended.surveys);
+        log.info("Compacted {} appended participations, replacing {} rows, into {} rows in {} ms",
+                participation.size() - appended.firstRow, replacedRows, compacted.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return compacted;
+    }
+
+    private ParticipationTable liveTable() {
+        ParticipationRows rows = this.findAll();
+        ParticipationTable live = new ParticipationTable(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            live.add(rows.memberId(i), rows.surveyId(i), rows.status(i), rows.length(i));
+        }
+        return live;
+    }
+
+    private boolean hasAppendedRows() {
+        return appended != null && participation.size() > appended.firstRow;
+    }
+
+    /**
+     * Restores a store written by {@link #writeTo(SnapshotWriter)}, derived indexes included.
+     */
+    static ParticipationStore readFrom(SnapshotReader in) throws IOException {
+        int size = in.readInt();
+        ParticipationTable participation = new ParticipationTable(
+                in.readInts(size), in.readInts(size), in.readBytes(size), in.readInts(size));
+        ParticipationStore store = new ParticipationStore(participation, readIndex(in), readIndex(in));
+        int aggregates = in.readInt();
+        for (int i = 0; i < aggregates; i++) {
+            long surveyId = in.readLong();
+            long[] countsByStatus = new long[in.readInt()];
+            for (int status = 0; status < countsByStatus.length; status++) {
+                countsByStatus[status] = in.readLong();
+            }
+            long lengthSum = in.readLong();
+            long lengthCount = in.readLong();
+            long zeroLengths = in.readLong();
+            int lengthOffset = in.readInt();
+            long[] lengthCounts = new long[in.readInt()];
+            for (int bucket = 0; bucket < lengthCounts.length; bucket++) {
+                lengthCounts[bucket] = in.readLong();
+            }
+            store.aggregatesBySurvey.put(surveyId, new SurveyAggregate(surveyId, countsByStatus, lengthSum,
+                    lengthCount, new LengthSketch(zeroLengths, lengthOffset, lengthCounts)));
+        }
+        int askedSurveys = in.readInt();
+        for (int i = 0; i < askedSurveys; i++) {
+            store.askedMembersBySurvey.put(in.readLong(), in.readBitmap());
+        }
+        int points = in.readInt();
+        store.pointsByMember.ensureCapacity(points);
+        for (int i = 0; i < points; i++) {
+            store.pointsByMember.put(in.readLong(), in.readInt());
+        }
+        return store;
+    }
+
+    /**
+     * Writes the rows and every index over them, so {@link #readFrom(SnapshotReader)} does not rebuild anything.
+     */
+    void writeTo(SnapshotWriter out) throws IOException {
+        if (this.hasAppendedRows()) {
+            this.compact().writeTo(out);
+            return;
+        }
+        out.writeInt(participation.size());
+        out.writeInts(participation.size(), row -> (int) participation.memberId(row));
+        out.writeInts(participation.size(), row -> (int) participation.surveyId(row));
+        out.writeBytes(participation.size(), participation::status);
+        out.writeInts(participation.size(), participation::length);
+        writeIndex(out, rowsByMember);
+        writeIndex(out, rowsBySurvey);
+        out.writeInt(aggregatesBySurvey.size());
+        for (SurveyAggregate aggregate : aggregatesBySurvey.values()) {
+            long[] countsByStatus = aggregate.getCountsByStatus();
+            out.writeLong(aggregate.getSurveyId());
+            out.writeInt(countsByStatus.length);
+            for (long count : countsByStatus) {
+                out.writeLong(count);
+            }
+            out.writeLong(aggregate.getLengthSum());
+            out.writeLong(aggregate.getLengthCount());
+            LengthSketch lengths = aggregate.getLengths();
+            long[] lengthCounts = lengths.getCounts();
+            out.writeLong(lengths.getZeroCount());
+            out.writeInt(lengths.getOffset());
+            out.writeInt(lengthCounts.length);
+            for (long count : lengthCounts) {
+                out.writeLong(count);
+            }
+        }
+        out.writeInt(askedMembersBySurvey.size());
+        for (Map.Entry<Long, RoaringBitmap> asked : askedMembersBySurvey.entrySet()) {
+            out.writeLong(asked.getKey());
+            out.writeBitmap(asked.getValue());
+        }
+        out.writeInt(pointsByMember.size());
+        for (Long2IntMap.Entry points : pointsByMember.long2IntEntrySet()) {
+            out.writeLong(points.getLongKey());
+            out.writeInt(points.getIntValue());
+        }
+    }
+
+    private static Map<Long, int[]> readIndex(SnapshotReader in) throws IOException {
+        int keys = in.readInt();
+        Map<Long, int[]> index = new HashMap<>(keys * 4 / 3 + 1);
+        for (int i = 0; i < keys; i++) {
+            long key = in.readLong();
+            index.put(key, in.readInts(in.readInt()));
+        }
+        return index;
+    }
+
+    private static void writeIndex(SnapshotWriter out, Map<Long, int[]> index) throws IOException {
+        out.writeInt(index.size());
+        for (Map.Entry<Long, int[]> rows : index.entrySet()) {
+            out.writeLong(rows.getKey());
+            out.writeInt(rows.getValue().length);
+            out.writeInts(rows.getValue());
+        }
+    }
+
+    /**
+     * Groups row numbers by key in two passes: count rows per key, then fill exactly sized arrays.
+     * Row numbers within a key stay in load order.
+     */
+    private static Map<Long, int[]> index(ParticipationTable participation, IntToLongFunction key) {
+        Map<Long, int[]> counts = new HashMap<>();
+        for (int row = 0; row < participation.size(); row++) {
+            counts.computeIfAbsent(key.applyAsLong(row), k -> new int[1])[0]++;
+        }
+        Map<Long, int[]> index = new HashMap<>(counts.size() * 4 / 3 + 1);
+        counts.forEach((k, count) -> index.put(k, new int[count[0]]));
+        for (int row = participation.size() - 1; row >= 0; row--) {
+            long k = key.applyAsLong(row);
+            index.get(k)[--counts.get(k)[0]] = row;
+        }
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return participation.size() - replacedRows;
+    }
+
+    @Override
+    public int countByMemberId(Long memberId) {
+        return this.memberRows(memberId).size();
+    }
+
+    @Override
+    public int countBySurveyId(Long surveyId) {
+        return this.surveyRows(surveyId).size();
+    }
+
+    @Override
+    public ParticipationRows findAll() {
+        if (replacedRows == 0) {
+            return participation;
+        }
+        int[] replaced = appended.replacedBelow(participation.size());
+        int[] live = new int[this.size()];
+        int count = 0;
+        int next = 0;
+        for (int row = 0; row < participation.size(); row++) {
+            if (next < replaced.length && replaced[next] == row) {
+                next++;
+            } else {
+                live[count++] = row;
+            }
+        }
+        return participation.select(live);
+    }
+
+    @Override
+    public ParticipationRows findByMemberId(Long memberId) {
+        return participation.select(this.memberRows(memberId).toArray());
+    }
+
+    @Override
+    public ParticipationRows findBySurveyId(Long surveyId) {
+        return participation.select(this.surveyRows(surveyId).toArray());
+    }
+
+    @Override
+    public ParticipationRows findByMemberIdAndStatus(Long memberId, byte status) {
+        return this.selectByStatus(this.memberRows(memberId), status);
+    }
+
+    @Override
+    public ParticipationRows findBySurveyIdAndStatus(Long surveyId, byte status) {
+        return this.selectByStatus(this.surveyRows(surveyId), status);
+    }
+
+    @Override
+    public ParticipationPage findByMemberIdAndStatus(Long memberId, byte status, long from, int limit) {
+        return this.pageByStatus(this.memberRows(memberId), status, from, limit);
+    }
+
+    @Override
+    public ParticipationPage findBySurveyIdAndStatus(Long surveyId, byte status, long from, int limit) {
+        return this.pageByStatus(this.surveyRows(surveyId), status, from, limit);
+    }
+
+    /**
+     * Returns the aggregates in the order their surveys first appear. Surveys with appended rows get a copy of their
+     * built aggregate with those rows added and the rows they replace removed.
+     */
+    @Override
+    public Collection<SurveyAggregate> findSurveyAggregates() {
+        if (!this.hasAppendedRows()) {
+            return Collections.unmodifiableCollection(aggregatesBySurvey.values());
+        }
+        List<IndexRows> touched = new ArrayList<>();
+        for (RowList list : appended.rowsBySurvey.values()) {
+            IndexRows rows = RowList.below(list, NO_ROWS, participation.size());
+            if (rows.appendedCount() > 0) {
+                touched.add(rows);
+            }
+        }
+        touched.sort(Comparator.comparingInt(rows -> rows.appended()[0]));
+        Map<Long, SurveyAggregate> aggregates = new LinkedHashMap<>(aggregatesBySurvey);
+        for (IndexRows rows : touched) {
+            long surveyId = participation.surveyId(rows.appended()[0]);
+            SurveyAggregate built = aggregatesBySurvey.get(surveyId);
+            SurveyAggregate aggregate = built == null ? new SurveyAggregate(surveyId) : built.copy();
+            for (int i = 0; i < rows.appendedCount(); i++) {
+                int row = rows.appended()[i];
+                aggregate.add(participation.status(row), participation.length(row));
+                int replaced = appended.replacedRow(row);
+                if (replaced >= 0) {
+                    aggregate.remove(participation.status(replaced), participation.length(replaced));
+                }
+            }
+            aggregates.put(surveyId, aggregate);
+        }
+        return Collections.unmodifiableCollection(aggregates.values());
+    }
+
+    @Override
+    public RoaringBitmap findAskedMemberIds(Long surveyId) {
+        RoaringBitmap asked = askedMembersBySurvey.getOrDefault(surveyId, NO_MEMBERS);
+        if (!this.hasAppendedRows()) {
+            return asked;
+        }
+        IndexRows rows = RowList.below(appended.rowsBySurvey.get(surveyId), NO_ROWS, participation.size());
+        if (rows.appendedCount() == 0) {
+            return asked;
+        }
+        return appendedAskedMembers.computeIfAbsent(surveyId, id -> {
+            RoaringBitmap members = asked.clone();
+            byte notAsked = appended.statuses.getCodes().getNotAsked();
+            for (int i = 0; i < rows.appendedCount(); i++) {
+                int row = rows.appended()[i];
+                int replaced = appended.replacedRow(row);
+                if (replaced >= 0 && participation.status(replaced) != notAsked) {
+                    members.remove((int) participation.memberId(replaced));
+                }
+                if (participation.status(row) != notAsked) {
+                    members.add((int) participation.memberId(row));
+                }
+            }
+            return members;
+        });
+    }
+
+    @Override
+    public int findPointsByMemberId(Long memberId) {
+        int points = pointsByMember.get(memberId.longValue());
+        if (!this.hasAppendedRows()) {
+            return points;
+        }
+        IndexRows rows = RowList.below(appended.rowsByMember.get(memberId), NO_ROWS, participation.size());
+        for (int i = 0; i < rows.appendedCount(); i++) {
+            int row = rows.appended()[i];
+            points += this.pointsOf(row);
+            int replaced = appended.replacedRow(row);
+            if (replaced >= 0) {
+                points -= this.pointsOf(replaced);
+            }
+        }
+        return points;
+    }
+
+    private int pointsOf(int row) {
+        return pointsOf(participation.status(row), participation.surveyId(row), appended.statuses.getCodes(),
+                appended.surveys);
+    }
+
+    private IndexRows memberRows(Long memberId) {
+        int[] rows = rowsByMember.getOrDefault(memberId, NO_ROWS);
+        return this.hasAppendedRows()
+                ? appended.memberRows(rows, memberId, participation.size())
+                : new IndexRows(rows, NO_ROWS, 0, NO_ROWS);
+    }
+
+    private IndexRows surveyRows(Long surveyId) {
+        int[] rows = rowsBySurvey.getOrDefault(surveyId, NO_ROWS);
+        return this.hasAppendedRows()
+                ? appended.surveyRows(rows, surveyId, participation.size())
+                : new IndexRows(rows, NO_ROWS, 0, NO_ROWS);
+    }
+
+    private ParticipationRows selectByStatus(IndexRows rows, byte status) {
+        int[] matching = new int[rows.size()];
+        int count = 0;
+        for (int position = 0; position < rows.positions(); position++) {
+            int row = rows.get(position);
+            if (participation.status(row) == status && rows.isLive(row)) {
+                matching[count++] = row;
+            }
+        }
+        return participation.select(Arrays.copyOf(matching, count));
+    }
+
+    /**
+     * Resumes the scan of an index at {@code from}, so a page costs the rows it returns plus the rows with other
+     * statuses in between, whatever its position.
+     */
+    private ParticipationPage pageByStatus(IndexRows rows, byte status, long from, int limit) {
+        int start = (int) Math.min(from, rows.positions());
+        int[] matching = new int[Math.min(limit, rows.positions() - start)];
+        int count = 0;
+        int position = start;
+        while (position < rows.positions() && count < limit) {
+            int row = rows.get(position);
+            if (participation.status(row) == status && rows.isLive(row)) {
+                matching[count++] = row;
+            }
+            position++;
+        }
+        return new ParticipationPage(participation.select(Arrays.copyOf(matching, count)),
+                position < rows.positions() ? position : ParticipationPage.END, position - start);
+    }
+
+    /**
+     * The rows of one member or survey that a store sees: the rows indexed when it was built, then the appended
+     * rows below its size, and the ascending rows among them that appended rows replaced. Both parts are in row
+     * order and replaced rows keep their position, so positions stay valid as rows are appended.
+     */
+    private record IndexRows(int[] base, int[] appended, int appendedCount, int[] replaced) {
+
+        /**
+         * Returns the number of positions, replaced rows included.
+         */
+        int positions() {
+            return base.length + appendedCount;
+        }
+
+        /**
+         * Returns the number of rows that are not replaced.
+         */
+        int size() {
+            return this.positions() - replaced.length;
+        }
+
+        int get(int position) {
+            return position < base.length ? base[position] : appended[position - base.length];
+        }
+
+        boolean isLive(int row) {
+            return replaced.length == 0 || Arrays.binarySearch(replaced, row) < 0;
+        }
+
+        int[] toArray() {
+            if (replaced.length == 0 && appendedCount == 0) {
+                return base;
+            }
+            int[] rows = new int[this.size()];
+            int count = 0;
+            for (int position = 0; position < this.positions(); position++) {
+                int row = this.get(position);
+                if (this.isLive(row)) {
+                    rows[count++] = row;
+                }
+            }
+            return rows;
+        }
+
+    }
+
+    /**
+     * Member and survey indexes of the rows appended from {@code firstRow} on, and the row each of them replaces,
+     * shared by every store appended to the same built store. Added to by one thread at a time and read without
+     * locking; like {@link RowList}, entries of a dropped store are overwritten before any store counts them.
+     */
+    private static final class AppendedRows {
+
+        private final int firstRow;
+        private final StatusStore statuses;
+        private final SurveyStore surveys;
+        private final Map<Long, RowList> rowsByMember = new ConcurrentHashMap<>();
+        private final Map<Long, RowList> rowsBySurvey = new ConcurrentHashMap<>();
+
+        /**
+         * The row replaced by each appended row, at {@code row - firstRow}, or {@code -1}. A grown array is
+         * published before the row lists that count its entries.
+         */
+        private volatile int[] replaced = new int[16];
+
+        private AppendedRows(int firstRow, StatusStore statuses, SurveyStore surveys) {
+            this.firstRow = firstRow;
+            this.statuses = statuses;
+            this.surveys = surveys;
+        }
+
+        private void index(int row, long memberId, long surveyId, int replacedRow) {
+            int[] current = replaced;
+            int index = row - firstRow;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+                current[index] = replacedRow;
+                replaced = current;
+            } else {
+                current[index] = replacedRow;
+            }
+            rowsByMember.computeIfAbsent(memberId, id -> new RowList()).add(row);
+            rowsBySurvey.computeIfAbsent(surveyId, id -> new RowList()).add(row);
+        }
+
+        private int replacedRow(int row) {
+            return replaced[row - firstRow];
+        }
+
+        /**
+         * Returns the rows replaced by appended rows below {@code limit}, ascending.
+         */
+        private int[] replacedBelow(int limit) {
+            int[] current = replaced;
+            int[] found = new int[limit - firstRow];
+            int count = 0;
+            for (int i = 0; i < found.length; i++) {
+                if (current[i] >= 0) {
+                    found[count++] = current[i];
+                }
+            }
+            return sorted(found, count);
+        }
+
+        /**
+         * Returns the rows replaced by the first {@code count} of the given appended rows, ascending.
+         */
+        private int[] replacedBy(int[] rows, int count) {
+            int[] current = replaced;
+            int[] found = new int[count];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                int row = current[rows[i] - firstRow];
+                if (row >= 0) {
+                    found[size++] = row;
+                }
+            }
+            return sorted(found, size);
+        }
+
+        private static int[] sorted(int[] rows, int count) {
+            if (count == 0) {
+                return NO_ROWS;
+            }
+            int[] sorted = Arrays.copyOf(rows, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private IndexRows memberRows(int[] base, Long memberId, int limit) {
+            return this.withReplaced(RowList.below(rowsByMember.get(memberId), base, limit));
+        }
+
+        private IndexRows surveyRows(int[] base, Long surveyId, int limit) {
+            return this.withReplaced(RowList.below(rowsBySurvey.get(surveyId), base, limit));
+        }
+
+        private IndexRows withReplaced(IndexRows rows) {
+            return rows.appendedCount() == 0 ? rows : new IndexRows(rows.base(), rows.appended(),
+                    rows.appendedCount(), this.replacedBy(rows.appended(), rows.appendedCount()));
+        }
+
+    }
+
+    /**
+     * Ascending appended row numbers of one member or survey. A reader takes the size before the array, and every
+     * row below that size is already in whichever array it then sees, because a grown array is published before
+     * the size that needs it. Rows of a dropped store are at or past the size of every published store, so adding
+     * a row overwrites them from the first one that is not below it, and no reader counts them.
+     */
+    private static final class RowList {
+
+        private volatile int[] rows = new int[4];
+        private volatile int size;
+
+        private void add(int row) {
+            int[] current = rows;
+            int count = size;
+            while (count > 0 && current[count - 1] >= row) {
+                count--;
+            }
+            if (count == current.length) {
+                current = Arrays.copyOf(current, count * 2);
+                current[count] = row;
+                rows = current;
+            } else {
+                current[count] = row;
+            }
+            size = count + 1;
+        }
+
+        /**
+         * Returns the rows of {@code base} followed by the rows of the list that are below {@code limit}, without
+         * the rows they replace.
+         */
+        private static IndexRows below(RowList list, int[] base, int limit) {
+            if (list == null) {
+                return new IndexRows(base, NO_ROWS, 0, NO_ROWS);
+            }
+            int count = list.size;
+            int[] rows = list.rows;
+            int below = Arrays.binarySearch(rows, 0, count, limit);
+            return new IndexRows(base, rows, below >= 0 ? below : -below - 1, NO_ROWS);
+        }
+
+    }
+
+}
@@ -0,0 +1,18 @@
+package hu.vszili.survey.store;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs every public method of the annotated bean against one {@link Dataset}: the one current when the outermost
+ * call starts, see {@link DatasetHolder#pin()}. Repository reads within the call, and the result cache key, then
+ * all see the same dataset even if a reload or an append publishes a new one meanwhile.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PinnedDataset {
+}
@@ -0,0 +1,30 @@
+package hu.vszili.survey.store;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pins the current dataset around calls to {@link PinnedDataset} beans. Ordered first, so the result cache computes
+ * its key from the pinned dataset too.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class PinnedDatasetAspect {
+
+    private final DatasetHolder datasetHolder;
+
+    @Around("@within(hu.vszili.survey.store.PinnedDataset)")
+    public Object pin(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (DatasetHolder.Pin ignored = datasetHolder.pin()) {
+            return joinPoint.proceed();
+        }
+    }
+
+}
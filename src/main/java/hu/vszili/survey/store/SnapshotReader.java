@@ -0,0 +1,146 @@
+package hu.vszili.survey.store;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Forward-only reader of a {@link DatasetSnapshot} file over a memory-mapped file.
+ * <p>
+ * Like the CSV reader, the file is mapped in windows of at most {@link #WINDOW_SIZE} bytes; a value that crosses
+ * the end of a window is read after mapping the next window from its first byte. Columns are copied out of the
+ * mapping in bulk and may span several windows. Instances are not thread-safe.
+ */
+final class SnapshotReader implements Closeable {
+
+    static final long WINDOW_SIZE = 1L << 30;
+
+    private static final int NULL_LENGTH = -1;
+
+    private final FileChannel channel;
+    private final long end;
+    private final long windowSize;
+
+    private MappedByteBuffer buffer;
+    private long windowStart;
+
+    private SnapshotReader(Path file, long windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.end = channel.size();
+        this.windowSize = windowSize;
+        this.map(0);
+    }
+
+    static SnapshotReader open(Path file) throws IOException {
+        return new SnapshotReader(file, WINDOW_SIZE);
+    }
+
+    static SnapshotReader open(Path file, long windowSize) throws IOException {
+        return new SnapshotReader(file, windowSize);
+    }
+
+    int readInt() throws IOException {
+        this.require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+        this.require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    boolean readBoolean() throws IOException {
+        this.require(1);
+        return buffer.get() != 0;
+    }
+
+    Integer readInteger() throws IOException {
+        return this.readBoolean() ? this.readInt() : null;
+    }
+
+    String readString() throws IOException {
+        int length = this.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        this.require(length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int[] readInts(int count) throws IOException {
+        int[] values = new int[count];
+        int index = 0;
+        while (index < count) {
+            this.require(Integer.BYTES);
+            int block = Math.min(count - index, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().get(values, index, block);
+            buffer.position(buffer.position() + block * Integer.BYTES);
+            index += block;
+        }
+        return values;
+    }
+
+    byte[] readBytes(int count) throws IOException {
+        byte[] values = new byte[count];
+        int index = 0;
+        while (index < count) {
+            this.require(1);
+            int block = Math.min(count - index, buffer.remaining());
+            buffer.get(values, index, block);
+            index += block;
+        }
+        return values;
+    }
+
+    RoaringBitmap readBitmap() throws IOException {
+        int size = this.readInt();
+        this.require(size);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.deserialize(buffer.slice(buffer.position(), size));
+        buffer.position(buffer.position() + size);
+        return bitmap;
+    }
+
+    /**
+     * Returns {@code true} once every byte of the file has been read.
+     */
+    boolean isAtEnd() {
+        return windowStart + buffer.position() == end;
+    }
+
+    /**
+     * Makes sure the next {@code bytes} bytes are in the mapped window, remapping from the current position if not.
+     */
+    private void require(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        long position = windowStart + buffer.position();
+        if (position + bytes > end) {
+            throw new IOException(String.format("Snapshot truncated at byte %d", position));
+        }
+        if (bytes > windowSize) {
+            throw new IOException(String.format("Snapshot value of %d bytes exceeds the mapped window", bytes));
+        }
+        this.map(position);
+    }
+
+    private void map(long from) throws IOException {
+        windowStart = from;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(windowSize, end - from));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
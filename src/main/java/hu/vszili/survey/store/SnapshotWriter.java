@@ -0,0 +1,117 @@
+package hu.vszili.survey.store;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Sequential big-endian writer of a {@link DatasetSnapshot} file, the counterpart of {@link SnapshotReader}.
+ * Columns are converted through a fixed scratch buffer and written in blocks instead of value by value.
+ */
+final class SnapshotWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int NULL_LENGTH = -1;
+
+    private final DataOutputStream out;
+    private final ByteBuffer scratch = ByteBuffer.allocate(BUFFER_SIZE);
+
+    SnapshotWriter(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+    }
+
+    void writeInt(int value) throws IOException {
+        out.writeInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+        out.writeLong(value);
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+        out.writeBoolean(value);
+    }
+
+    /**
+     * Writes a nullable integer as a presence flag followed by the value.
+     */
+    void writeInteger(Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Writes a nullable string as its UTF-8 byte count, {@code -1} for {@code null}, followed by the bytes.
+     */
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes {@code count} ints produced by {@code value} for the indexes {@code 0..count-1}, without a length prefix.
+     */
+    void writeInts(int count, IntUnaryOperator value) throws IOException {
+        int index = 0;
+        while (index < count) {
+            int block = Math.min(count - index, BUFFER_SIZE / Integer.BYTES);
+            scratch.clear();
+            for (int i = 0; i < block; i++) {
+                scratch.putInt(value.applyAsInt(index++));
+            }
+            out.write(scratch.array(), 0, scratch.position());
+        }
+    }
+
+    void writeInts(int[] values) throws IOException {
+        this.writeInts(values.length, i -> values[i]);
+    }
+
+    /**
+     * Writes the low byte of {@code count} values produced by {@code value}, without a length prefix.
+     */
+    void writeBytes(int count, IntUnaryOperator value) throws IOException {
+        int index = 0;
+        while (index < count) {
+            int block = Math.min(count - index, BUFFER_SIZE);
+            scratch.clear();
+            for (int i = 0; i < block; i++) {
+                scratch.put((byte) value.applyAsInt(index++));
+            }
+            out.write(scratch.array(), 0, scratch.position());
+        }
+    }
+
+    void writeBytes(byte[] values) throws IOException {
+        out.write(values);
+    }
+
+    /**
+     * Writes a bitmap in the portable RoaringBitmap format, prefixed with its size in bytes.
+     */
+    void writeBitmap(RoaringBitmap bitmap) throws IOException {
+        out.writeInt(bitmap.serializedSizeInBytes());
+        bitmap.serialize(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
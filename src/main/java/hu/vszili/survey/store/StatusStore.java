@@ -0,0 +1,119 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.csv.MappedCsvReader;
+import hu.vszili.survey.data.Status;
+import hu.vszili.survey.data.StatusCodes;
+import hu.vszili.survey.exception.CsvReadingException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Statuses of one {@link Dataset}, read from {@value #FILE_NAME}, as a dictionary: each status gets a small code,
+ * its position in the file, and participations store that code instead of the status id. Ids are translated through
+ * a table indexed by id, so they have to be below {@value #MAX_STATUS_ID}. Not modified once built.
+ */
+public final class StatusStore {
+
+    public static final String FILE_NAME = "Statuses.csv";
+
+    static final int MAX_STATUS_ID = 1 << 16;
+
+    private static final String ID_COLUMN = "Status Id";
+    private static final String NAME_COLUMN = "Name";
+
+    private final List<Status> statuses;
+    private final byte[] codesById;
+    private final StatusCodes codes;
+
+    private StatusStore(List<Status> statuses) {
+        if (statuses.size() > Byte.MAX_VALUE + 1) {
+            throw new CsvReadingException("Too many statuses: " + statuses.size());
+        }
+        this.statuses = statuses;
+        long maxId = statuses.stream().mapToLong(Status::getId).max().orElse(-1L);
+        this.codesById = new byte[(int) maxId + 1];
+        Arrays.fill(codesById, StatusCodes.NO_CODE);
+        for (int code = 0; code < statuses.size(); code++) {
+            codesById[statuses.get(code).getId().intValue()] = (byte) code;
+        }
+        this.codes = new StatusCodes(
+                this.codeOfName(StatusCodes.NOT_ASKED),
+                this.codeOfName(StatusCodes.REJECTED),
+                this.codeOfName(StatusCodes.FILTERED),
+                this.codeOfName(StatusCodes.COMPLETED));
+    }
+
+    public static StatusStore read(Path file) {
+        List<Status> statuses = new ArrayList<>();
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            int idColumn = reader.columnIndex(ID_COLUMN);
+            int nameColumn = reader.columnIndex(NAME_COLUMN);
+            while (reader.next()) {
+                long id = reader.getLong(idColumn);
+                if (id < 0 || id >= MAX_STATUS_ID) {
+                    throw new CsvReadingException(
+                            String.format("Status id %d out of range at line %d", id, reader.getLineNumber()));
+                }
+                Status status = new Status();
+                status.setId(id);
+                status.setName(reader.getString(nameColumn));
+                statuses.add(status);
+            }
+        } catch (IOException e) {
+            throw new CsvReadingException("Error reading statuses file: " + e.getMessage());
+        }
+        return new StatusStore(statuses);
+    }
+
+    static StatusStore readFrom(SnapshotReader in) throws IOException {
+        List<Status> statuses = new ArrayList<>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Status status = new Status();
+            status.setId(in.readLong());
+            status.setName(in.readString());
+            statuses.add(status);
+        }
+        return new StatusStore(statuses);
+    }
+
+    void writeTo(SnapshotWriter out) throws IOException {
+        out.writeInt(statuses.size());
+        for (Status status : statuses) {
+            out.writeLong(status.getId());
+            out.writeString(status.getName());
+        }
+    }
+
+    public int size() {
+        return statuses.size();
+    }
+
+    /**
+     * Returns the code of the status with the given id, or {@link StatusCodes#NO_CODE} if there is none.
+     */
+    public byte codeOf(long statusId) {
+        return statusId >= 0 && statusId < codesById.length ? codesById[(int) statusId] : StatusCodes.NO_CODE;
+    }
+
+    public StatusCodes getCodes() {
+        return codes;
+    }
+
+    /**
+     * Returns the code of the named status; when a name is repeated the last one wins, like ids in the other files.
+     */
+    private byte codeOfName(String name) {
+        for (int code = statuses.size() - 1; code >= 0; code--) {
+            if (statuses.get(code).getName().equals(name)) {
+                return (byte) code;
+            }
+        }
+        return StatusCodes.NO_CODE;
+    }
+
+}
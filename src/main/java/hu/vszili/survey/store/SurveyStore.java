@@ -0,0 +1,101 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.csv.MappedCsvReader;
+import hu.vszili.survey.data.Survey;
+import hu.vszili.survey.exception.CsvReadingException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Surveys of one {@link Dataset}, read from {@value #FILE_NAME}. Not modified once built.
+ */
+public final class SurveyStore {
+
+    public static final String FILE_NAME = "Surveys.csv";
+
+    private static final String ID_COLUMN = "Survey Id";
+    private static final String NAME_COLUMN = "Name";
+    private static final String EXPECTED_COMPLETES_COLUMN = "Expected completes";
+    private static final String COMPLETION_POINTS_COLUMN = "Completion points";
+    private static final String FILTERED_POINTS_COLUMN = "Filtered points";
+
+    private final Map<Long, Survey> surveys = new HashMap<>();
+
+    private SurveyStore() {
+    }
+
+    public static SurveyStore read(Path file) {
+        SurveyStore store = new SurveyStore();
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            int idColumn = reader.columnIndex(ID_COLUMN);
+            int nameColumn = reader.columnIndex(NAME_COLUMN);
+            int expectedCompletesColumn = reader.columnIndex(EXPECTED_COMPLETES_COLUMN);
+            int completionPointsColumn = reader.columnIndex(COMPLETION_POINTS_COLUMN);
+            int filteredPointsColumn = reader.columnIndex(FILTERED_POINTS_COLUMN);
+            while (reader.next()) {
+                Survey survey = new Survey(
+                        reader.getLong(idColumn),
+                        reader.getString(nameColumn),
+                        reader.getInteger(expectedCompletesColumn),
+                        reader.getInteger(completionPointsColumn),
+                        reader.getInteger(filteredPointsColumn));
+                store.surveys.put(survey.getId(), survey);
+            }
+        } catch (IOException e) {
+            throw new CsvReadingException("Error reading surveys file: " + e.getMessage());
+        }
+        return store;
+    }
+
+    static SurveyStore readFrom(SnapshotReader in) throws IOException {
+        SurveyStore store = new SurveyStore();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Survey survey = new Survey(
+                    in.readLong(),
+                    in.readString(),
+                    in.readInteger(),
+                    in.readInteger(),
+                    in.readInteger());
+            store.surveys.put(survey.getId(), survey);
+        }
+        return store;
+    }
+
+    void writeTo(SnapshotWriter out) throws IOException {
+        out.writeInt(surveys.size());
+        for (Survey survey : surveys.values()) {
+            out.writeLong(survey.getId());
+            out.writeString(survey.getName());
+            out.writeInteger(survey.getExpectedCompletes());
+            out.writeInteger(survey.getCompletionPoints());
+            out.writeInteger(survey.getFilteredPoint());
+        }
+    }
+
+    public int size() {
+        return surveys.size();
+    }
+
+    public boolean existsById(Long surveyId) {
+        return surveys.containsKey(surveyId);
+    }
+
+    public Optional<Survey> findById(Long surveyId) {
+        return Optional.ofNullable(surveys.get(surveyId));
+    }
+
+    public Integer getPoints(Long surveyId, Boolean isComplete) {
+        Survey survey = surveys.get(surveyId);
+        return Boolean.TRUE.equals(isComplete) ? survey.getCompletionPoints() : survey.getFilteredPoint();
+    }
+
+    public String getNameById(Long surveyId) {
+        return surveys.get(surveyId).getName();
+    }
+
+}
@@ -0,0 +1,176 @@
+package hu.vszili.survey.cache;
+
+import hu.vszili.survey.data.CursorPage;
+import hu.vszili.survey.data.Member;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.StatusCodes;
+import hu.vszili.survey.data.SurveyAggregate;
+import hu.vszili.survey.data.SurveyStatistic;
+import hu.vszili.survey.repositroy.MemberRepository;
+import hu.vszili.survey.repositroy.ParticipationRepository;
+import hu.vszili.survey.repositroy.StatusRepository;
+import hu.vszili.survey.repositroy.SurveyRepository;
+import hu.vszili.survey.service.SurveyService;
+import hu.vszili.survey.service.impl.SurveyServiceImpl;
+import hu.vszili.survey.store.Dataset;
+import hu.vszili.survey.store.DatasetHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = {ResultCacheConfig.class, SurveyServiceImpl.class},
+        properties = "spring.cache.cache-names=completedMembers,eligibleMembers,statistics")
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+class ResultCacheConfigTest {
+
+    private static final StatusCodes CODES = new StatusCodes((byte) 0, (byte) 1, (byte) 2, (byte) 3);
+
+    @Autowired
+    private SurveyService surveyService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockitoBean
+    private MemberRepository memberRepository;
+
+    @MockitoBean
+    private SurveyRepository surveyRepository;
+
+    @MockitoBean
+    private StatusRepository statusRepository;
+
+    @MockitoBean
+    private ParticipationRepository participationRepository;
+
+    @MockitoBean
+    private DatasetHolder datasetHolder;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void testGetStatistics_SameVersion_ComputedOnce() {
+        // given
+        this.serveVersion(1L);
+
+        // when
+        List<SurveyStatistic> first = surveyService.getStatistics();
+        List<SurveyStatistic> second = surveyService.getStatistics();
+
+        // then
+        Assertions.assertSame(first, second);
+        verify(participationRepository, times(1)).findSurveyAggregates();
+    }
+
+    @Test
+    void testGetStatistics_NewVersion_ComputedAgain() {
+        // given
+        this.serveVersion(1L);
+        List<SurveyStatistic> first = surveyService.getStatistics();
+        this.serveVersion(2L);
+
+        // when
+        List<SurveyStatistic> second = surveyService.getStatistics();
+
+        // then
+        Assertions.assertNotSame(first, second);
+        verify(participationRepository, times(2)).findSurveyAggregates();
+    }
+
+    @Test
+    void testGetMembersCompleted_AppendToOtherSurvey_ServedFromCache() {
+        // given
+        Dataset loaded = this.serveDataset(new Dataset(1L, null, null, null, null, null));
+        List<Member> first = surveyService.getMembersCompleted(1L);
+        this.serveDataset(this.append(loaded, 2L, 2L));
+
+        // when
+        List<Member> second = surveyService.getMembersCompleted(1L);
+
+        // then
+        Assertions.assertSame(first, second);
+        verify(participationRepository, times(1)).findBySurveyIdAndStatus(1L, CODES.getCompleted());
+    }
+
+    @Test
+    void testGetMembersCompleted_AppendToSameSurvey_ComputedAgain() {
+        // given
+        Dataset loaded = this.serveDataset(new Dataset(1L, null, null, null, null, null));
+        surveyService.getMembersCompleted(1L);
+        this.serveDataset(this.append(loaded, 2L, 1L));
+
+        // when
+        surveyService.getMembersCompleted(1L);
+        surveyService.getMembersCompleted(1L);
+
+        // then
+        verify(participationRepository, times(2)).findBySurveyIdAndStatus(1L, CODES.getCompleted());
+    }
+
+    @Test
+    void testGetMembersCompleted_ChangeNewerThanDatasetRead_NotServedToNewerReaders() {
+        // given
+        Dataset loaded = this.serveDataset(new Dataset(1L, null, null, null, null, null));
+        Dataset appended = this.append(loaded, 2L, 1L);
+        surveyService.getMembersCompleted(1L);
+        this.serveDataset(appended);
+
+        // when
+        surveyService.getMembersCompleted(1L);
+
+        // then
+        verify(participationRepository, times(2)).findBySurveyIdAndStatus(1L, CODES.getCompleted());
+    }
+
+    @Test
+    void testWeigh_CountsRows() {
+        // when-then
+        Assertions.assertEquals(3, ResultCacheConfig.weigh("key", List.of(1, 2, 3)));
+        Assertions.assertEquals(2, ResultCacheConfig.weigh("key", new CursorPage<>(List.of(1, 2), null)));
+        Assertions.assertEquals(1, ResultCacheConfig.weigh("key", List.of()));
+        Assertions.assertEquals(1, ResultCacheConfig.weigh("key", 42));
+    }
+
+    private Dataset serveDataset(Dataset dataset) {
+        when(datasetHolder.get()).thenReturn(dataset);
+        when(surveyRepository.existsById(1L)).thenReturn(true);
+        when(statusRepository.getCodes()).thenReturn(CODES);
+        when(participationRepository.findBySurveyIdAndStatus(1L, CODES.getCompleted()))
+                .thenReturn(ParticipationRows.concat(List.of()));
+        return dataset;
+    }
+
+    /**
+     * Records an append of one participation to {@code surveyId} and returns the dataset it publishes.
+     */
+    private Dataset append(Dataset dataset, long version, long surveyId) {
+        Participation participation = new Participation();
+        participation.setMemberId(1L);
+        participation.setSurveyId(surveyId);
+        dataset.getChanges().record(List.of(participation), version);
+        return dataset.appended(version, null, null);
+    }
+
+    private void serveVersion(long version) {
+        when(datasetHolder.get()).thenReturn(new Dataset(version, null, null, null, null, null));
+        when(statusRepository.getCodes()).thenReturn(CODES);
+        when(participationRepository.findSurveyAggregates()).thenReturn(List.of(new SurveyAggregate(1L)));
+    }
+
+}
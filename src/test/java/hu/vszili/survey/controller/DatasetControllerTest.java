@@ -0,0 +1,101 @@
+package hu.vszili.survey.controller;
+
+import hu.vszili.survey.data.FileLoadStatistic;
+import hu.vszili.survey.data.LoadReport;
+import hu.vszili.survey.service.DatasetService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DatasetController.class)
+class DatasetControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private DatasetService datasetService;
+
+    /**
+     * Test case: Dataset loaded.
+     * Expected behavior: Returns 200 status and the load report of the current dataset.
+     */
+    @Test
+    void testGetLoadReport_ReturnsCurrentReport() throws Exception {
+        // given
+        when(datasetService.getLoadReport()).thenReturn(this.report(1L));
+
+        // when-then
+        mockMvc.perform(get("/api/admin/dataset")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.datasetVersion", is(1)))
+                .andExpect(jsonPath("$.files", hasSize(1)))
+                .andExpect(jsonPath("$.files[0].fileName", is("Members.csv")))
+                .andExpect(jsonPath("$.files[0].rows", is(3)));
+    }
+
+    /**
+     * Test case: Reload requested.
+     * Expected behavior: Returns 200 status and the load report of the new dataset.
+     */
+    @Test
+    void testReload_ReturnsNewReport() throws Exception {
+        // given
+        when(datasetService.reload()).thenReturn(this.report(2L));
+
+        // when-then
+        mockMvc.perform(post("/api/admin/dataset/reload")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.datasetVersion", is(2)));
+    }
+
+    /**
+     * Test case: Compaction of the participation log requested.
+     * Expected behavior: Returns 200 status and the load report of the dataset served.
+     */
+    @Test
+    void testCompact_ReturnsCurrentReport() throws Exception {
+        // given
+        when(datasetService.compact()).thenReturn(this.report(3L));
+
+        // when-then
+        mockMvc.perform(post("/api/admin/dataset/compact")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.datasetVersion", is(3)));
+    }
+
+    private LoadReport report(Long version) {
+        return LoadReport.builder()
+                .datasetVersion(version)
+                .files(List.of(FileLoadStatistic.builder()
+                        .fileName("Members.csv")
+                        .rows(3L)
+                        .bytes(120L)
+                        .durationMillis(1L)
+                        .build()))
+                .indexDurationMillis(1L)
+                .totalDurationMillis(2L)
+                .build();
+    }
+
+}
@@ -1,25 +1,37 @@
 package hu.vszili.survey.controller;
 
+import hu.vszili.survey.data.MemberPoints;
 import hu.vszili.survey.data.Survey;
 import hu.vszili.survey.exception.MemberNotFoundException;
+import hu.vszili.survey.service.DatasetService;
 import hu.vszili.survey.service.MemberService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(MemberController.class)
@@ -31,6 +43,9 @@ class MemberControllerTest {
     @MockitoBean
     private MemberService memberService;
 
+    @MockitoBean
+    private DatasetService datasetService;
+
     /**
      * Test case: Valid member ID, surveys exist.
      * Expected behavior: Returns 200 status and list of completed surveys.
@@ -129,4 +144,69 @@ class MemberControllerTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.message", is("Member with id 99 not found")));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test case: Batch of member IDs.
+     * Expected behavior: Returns 200 status and the points by member ID.
+     */
+    @Test
+    void testGetPointsBatch_ReturnsPointsByMemberId() throws Exception {
+        // given
+        Map<Long, Integer> points = new LinkedHashMap<>();
+        points.put(1L, 150);
+        points.put(2L, 0);
+        when(memberService.getPoints(List.of(1L, 2L, 99L))).thenReturn(points);
+
+        // when-then
+        mockMvc.perform(post("/api/members/points")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2, 99]"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.1", is(150)))
+                .andExpect(jsonPath("$.2", is(0)))
+                .andExpect(jsonPath("$.99").doesNotExist())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Test case: Points of every member.
+     * Expected behavior: Streams one object with the points by member ID.
+     */
+    @Test
+    void testGetAllPoints_WritesPointsByMemberId() throws Exception {
+        // given
+        when(memberService.streamAllPoints()).thenReturn(Stream.of(new MemberPoints(1L, 150), new MemberPoints(2L, 0)));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/members/points"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"1\":150,\"2\":0}", true));
+    }
+
+    /**
+     * Test case: If-None-Match carries the ETag of the member's version still served.
+     * Expected behavior: Returns 304 status without writing the points again.
+     */
+    @Test
+    void testGetPoints_ETagMatches_ReturnsNotModified() throws Exception {
+        // given
+        when(datasetService.getChangeVersion(1L, null)).thenReturn("1.1");
+        when(memberService.getPoints(1L)).thenReturn(150);
+        String eTag = mockMvc.perform(get("/api/members/1/points"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when-then
+        mockMvc.perform(get("/api/members/1/points")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+}
@@ -0,0 +1,115 @@
+package hu.vszili.survey.controller;
+
+import hu.vszili.survey.data.AppendResult;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import hu.vszili.survey.exception.MemberNotFoundException;
+import hu.vszili.survey.service.DatasetService;
+import hu.vszili.survey.service.ParticipationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ParticipationController.class)
+class ParticipationControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ParticipationService participationService;
+
+    @MockitoBean
+    private DatasetService datasetService;
+
+    /**
+     * Test case: One valid participation.
+     * Expected behavior: Returns 201 status and the dataset version that contains it.
+     */
+    @Test
+    void testAdd_ValidParticipation_ReturnsCreated() throws Exception {
+        // given
+        Participation participation = new Participation();
+        participation.setMemberId(1L);
+        participation.setSurveyId(2L);
+        participation.setStatus(4L);
+        participation.setLength(12);
+        when(participationService.add(List.of(participation))).thenReturn(new AppendResult(5L, 1));
+
+        // when-then
+        mockMvc.perform(post("/api/participations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"memberId\": 1, \"surveyId\": 2, \"status\": 4, \"length\": 12}"))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.datasetVersion", is(5)))
+                .andExpect(jsonPath("$.rows", is(1)));
+    }
+
+    /**
+     * Test case: Batch of participations.
+     * Expected behavior: Returns 201 status and the number of participations added.
+     */
+    @Test
+    void testAddAll_ValidParticipations_ReturnsCreated() throws Exception {
+        // given
+        when(participationService.add(anyList())).thenReturn(new AppendResult(6L, 2));
+
+        // when-then
+        mockMvc.perform(post("/api/participations/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"memberId\": 1, \"surveyId\": 2, \"status\": 4},"
+                                + " {\"memberId\": 3, \"surveyId\": 2, \"status\": 1}]"))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.datasetVersion", is(6)))
+                .andExpect(jsonPath("$.rows", is(2)));
+    }
+
+    /**
+     * Test case: Participation with an unknown status.
+     * Expected behavior: Returns 400 status with the error message.
+     */
+    @Test
+    void testAddAll_InvalidParticipation_ReturnsBadRequest() throws Exception {
+        // given
+        when(participationService.add(anyList())).thenThrow(new InvalidParticipationException("Unknown status id 9"));
+
+        // when-then
+        mockMvc.perform(post("/api/participations/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"memberId\": 1, \"surveyId\": 2, \"status\": 9}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Unknown status id 9")));
+    }
+
+    /**
+     * Test case: Participation of a member that does not exist.
+     * Expected behavior: Returns 404 status.
+     */
+    @Test
+    void testAdd_MemberNotFound_ReturnsNotFound() throws Exception {
+        // given
+        when(participationService.add(anyList())).thenThrow(new MemberNotFoundException(9L));
+
+        // when-then
+        mockMvc.perform(post("/api/participations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"memberId\": 9, \"surveyId\": 2, \"status\": 4}"))
+                .andExpect(status().isNotFound());
+    }
+
+}
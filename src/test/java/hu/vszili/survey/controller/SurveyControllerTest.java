@@ -1,25 +1,38 @@
 package hu.vszili.survey.controller;
 
+import hu.vszili.survey.data.CursorPage;
 import hu.vszili.survey.data.Member;
 import hu.vszili.survey.data.SurveyStatistic;
 import hu.vszili.survey.exception.SurveyNotFoundException;
+import hu.vszili.survey.service.DatasetService;
 import hu.vszili.survey.service.SurveyService;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(SurveyController.class)
@@ -31,6 +44,9 @@ class SurveyControllerTest {
     @MockitoBean
     private SurveyService surveyService;
 
+    @MockitoBean
+    private DatasetService datasetService;
+
     /**
      * Test case: Valid surveyId, members who completed survey exist.
      */
@@ -171,6 +187,9 @@ class SurveyControllerTest {
                         .filteredCount(10L)
                         .rejectedCount(5L)
                         .averageLength(15.5)
+                        .p50Length(14.9)
+                        .p90Length(24.1)
+                        .p99Length(30.2)
                         .build(),
                 SurveyStatistic.builder()
                         .id(2L)
@@ -196,6 +215,9 @@ class SurveyControllerTest {
                 .andExpect(jsonPath("$[0].filteredCount").value(10))
                 .andExpect(jsonPath("$[0].rejectedCount").value(5))
                 .andExpect(jsonPath("$[0].averageLength").value(15.5))
+                .andExpect(jsonPath("$[0].p50Length").value(14.9))
+                .andExpect(jsonPath("$[0].p90Length").value(24.1))
+                .andExpect(jsonPath("$[0].p99Length").value(30.2))
                 .andExpect(jsonPath("$[1].id").value(2))
                 .andExpect(jsonPath("$[1].name").value("Survey B"))
                 .andExpect(jsonPath("$[1].completedCount").value(75))
@@ -284,6 +306,76 @@ class SurveyControllerTest {
                 .andExpect(jsonPath("$[0].averageLength").value(0.0));
     }
 
+    /**
+     * Test case: Valid surveyId, client accepts NDJSON.
+     * Expected behavior: Streams one member per line.
+     */
+    @Test
+    void testStreamEligibleMembers_AcceptNdjson_WritesOneMemberPerLine() throws Exception {
+        // given
+        Long surveyId = 1L;
+
+        when(surveyService.streamEligibleMembers(surveyId)).thenReturn(Stream.of(
+                createMember(1L, "Alice Doe", "alice.doe@example.com", true),
+                createMember(2L, "Bob Smith", "bob.smith@example.com", true)));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/surveys/{surveyId}/eligible-members", surveyId)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertTrue(lines[0].startsWith("{\"id\":1,"));
+        Assertions.assertTrue(lines[1].startsWith("{\"id\":2,"));
+    }
+
+    /**
+     * Test case: Invalid surveyId, client accepts NDJSON.
+     * Expected behavior: Returns 404 status before streaming starts.
+     */
+    @Test
+    void testStreamCompletedMembers_InvalidSurveyId_ThrowsNotFound() throws Exception {
+        // given
+        Long surveyId = 3L;
+
+        when(surveyService.streamMembersCompleted(surveyId)).thenThrow(new SurveyNotFoundException(surveyId));
+
+        // when-then
+        mockMvc.perform(get("/api/surveys/{surveyId}/members/completed", surveyId)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Survey with id 3 not found"));
+    }
+
+    /**
+     * Test case: Valid surveyId with limit.
+     * Expected behavior: Returns the page of members and the cursor of the next page.
+     */
+    @Test
+    void testGetEligibleMembersPage_ReturnsItemsAndNextCursor() throws Exception {
+        // given
+        Long surveyId = 1L;
+
+        when(surveyService.getEligibleMembers(surveyId, "cDo0", 1)).thenReturn(new CursorPage<>(
+                List.of(createMember(4L, "Alice Doe", "alice.doe@example.com", true)), "cDo1"));
+
+        // when-then
+        mockMvc.perform(get("/api/surveys/{surveyId}/eligible-members", surveyId)
+                        .param("limit", "1")
+                        .param("cursor", "cDo0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(4L))
+                .andExpect(jsonPath("$.nextCursor").value("cDo1"));
+    }
+
     private Member createMember(Long id, String fullName, String email, Boolean active) {
         Member member = new Member();
         member.setId(id);
@@ -292,4 +384,92 @@ class SurveyControllerTest {
         member.setActive(active);
         return member;
     }
-}
\ No newline at end of file
+
+    /**
+     * Test case: If-None-Match carries the ETag of the dataset version still served.
+     * Expected behavior: Returns 304 status without writing the statistics again.
+     */
+    @Test
+    void testGetSurveyStatistics_ETagMatches_ReturnsNotModified() throws Exception {
+        // given
+        when(datasetService.getChangeVersion(null, null)).thenReturn("3");
+        when(surveyService.getStatistics()).thenReturn(Collections.emptyList());
+        String eTag = mockMvc.perform(get("/api/surveys/statistics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when-then
+        mockMvc.perform(get("/api/surveys/statistics")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().string(""));
+    }
+
+    /**
+     * Test case: If-None-Match carries the ETag of a dataset version that has been replaced by a reload.
+     * Expected behavior: Returns 200 status with the statistics and the ETag of the new version.
+     */
+    @Test
+    void testGetSurveyStatistics_DatasetReloaded_ReturnsStatistics() throws Exception {
+        // given
+        when(datasetService.getChangeVersion(null, null)).thenReturn("3", "4");
+        when(surveyService.getStatistics()).thenReturn(Collections.emptyList());
+        String eTag = mockMvc.perform(get("/api/surveys/statistics"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when-then
+        mockMvc.perform(get("/api/surveys/statistics")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$", hasSize(0)));
+        verify(surveyService, times(2)).getStatistics();
+    }
+
+    /**
+     * Test case: If-None-Match matches any tag, but the survey does not exist.
+     * Expected behavior: Returns 404 status, the tag is only compared for successful responses.
+     */
+    @Test
+    void testGetCompletedMembers_SurveyNotFound_IfNoneMatchIgnored() throws Exception {
+        // given
+        when(datasetService.getChangeVersion(null, 999L)).thenReturn("3.3");
+        when(surveyService.getMembersCompleted(999L)).thenThrow(new SurveyNotFoundException(999L));
+
+        // when-then
+        mockMvc.perform(get("/api/surveys/999/members/completed")
+                        .header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    /**
+     * Test case: The same members requested as JSON and as NDJSON.
+     * Expected behavior: The two representations get different ETags, and the JSON tag does not match NDJSON.
+     */
+    @Test
+    void testGetCompletedMembers_JsonAndNdjson_DifferentETags() throws Exception {
+        // given
+        Long surveyId = 1L;
+        when(datasetService.getChangeVersion(null, surveyId)).thenReturn("3.5");
+        when(surveyService.getMembersCompleted(surveyId)).thenReturn(List.of());
+        when(surveyService.streamMembersCompleted(surveyId)).thenReturn(Stream.of());
+        String eTag = mockMvc.perform(get("/api/surveys/{surveyId}/members/completed", surveyId))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when
+        MvcResult result = mockMvc.perform(get("/api/surveys/{surveyId}/members/completed", surveyId)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+}
@@ -0,0 +1,188 @@
+package hu.vszili.survey.csv;
+
+import hu.vszili.survey.exception.CsvReadingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class MappedCsvReaderTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testNext_ReadsNumericAndEmptyColumns() throws IOException {
+        // given
+        Path file = this.write("Member Id,Survey Id,Status,Length\n1,16,4,10\n1,25,3,\n");
+
+        // when-then
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            int length = reader.columnIndex("Length");
+
+            Assertions.assertTrue(reader.next());
+            Assertions.assertEquals(1L, reader.getLong(reader.columnIndex("Member Id")));
+            Assertions.assertEquals(10, reader.getInt(length, -1));
+
+            Assertions.assertTrue(reader.next());
+            Assertions.assertEquals(25L, reader.getLong(reader.columnIndex("Survey Id")));
+            Assertions.assertTrue(reader.isEmpty(length));
+            Assertions.assertNull(reader.getInteger(length));
+            Assertions.assertEquals(-1, reader.getInt(length, -1));
+
+            Assertions.assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void testGetString_QuotedFieldsAndCrLf() throws IOException {
+        // given
+        Path file = this.write("\uFEFFId,Name,Active\r\n1,\"Doe, John \"\"JD\"\"\",1\r\n\r\n2,Jane,0");
+
+        // when-then
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            int name = reader.columnIndex("Name");
+            int active = reader.columnIndex("Active");
+
+            Assertions.assertTrue(reader.next());
+            Assertions.assertEquals("Doe, John \"JD\"", reader.getString(name));
+            Assertions.assertTrue(reader.getBoolean(active));
+
+            Assertions.assertTrue(reader.next());
+            Assertions.assertEquals("Jane", reader.getString(name));
+            Assertions.assertFalse(reader.getBoolean(active));
+
+            Assertions.assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void testNext_RowsCrossingMappedWindow() throws IOException {
+        // given
+        StringBuilder csv = new StringBuilder("Id,Name\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append(i).append(",\"name ").append(i).append("\"\n");
+        }
+        Path file = this.write(csv.toString());
+
+        // when
+        List<String> names = new ArrayList<>();
+        try (MappedCsvReader reader = MappedCsvReader.open(file, 64)) {
+            while (reader.next()) {
+                Assertions.assertEquals(names.size(), reader.getInt(0));
+                names.add(reader.getString(1));
+            }
+        }
+
+        // then
+        Assertions.assertEquals(200, names.size());
+        Assertions.assertEquals("name 199", names.get(199));
+    }
+
+    @Test
+    void testSplit_RangesCoverAllRowsInOrder() throws IOException {
+        // given
+        StringBuilder csv = new StringBuilder("Id,Name\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append(i).append(",name ").append(i).append('\n');
+        }
+        Path file = this.write(csv.toString());
+
+        // when
+        List<Integer> ids = new ArrayList<>();
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            long[] offsets = reader.split(7);
+            for (int i = 0; i < offsets.length - 1; i++) {
+                try (MappedCsvReader range = reader.range(offsets[i], offsets[i + 1])) {
+                    while (range.next()) {
+                        ids.add(range.getInt(range.columnIndex("Id")));
+                    }
+                }
+            }
+        }
+
+        // then
+        Assertions.assertEquals(100, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Assertions.assertEquals(i, ids.get(i));
+        }
+    }
+
+    @Test
+    void testRange_InvalidRow_ReportsLineNumberInFile() throws IOException {
+        // given
+        StringBuilder csv = new StringBuilder("Id,Name\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append(i == 80 ? "x" : i).append(",name ").append(i).append('\n');
+        }
+        Path file = this.write(csv.toString());
+
+        // when-then
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            long[] offsets = reader.split(4);
+            try (MappedCsvReader range = reader.range(offsets[3], offsets[4])) {
+                CsvReadingException exception = Assertions.assertThrows(CsvReadingException.class, () -> {
+                    while (range.next()) {
+                        range.getInt(0);
+                    }
+                });
+                Assertions.assertEquals("test.csv line 82: 'x' in column 'Id' is not a valid number",
+                        exception.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void testColumnIndex_UnknownColumn_ThrowsException() throws IOException {
+        // given
+        Path file = this.write("Id,Name\n1,a\n");
+
+        // when-then
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            Assertions.assertThrows(CsvReadingException.class, () -> reader.columnIndex("Status"));
+        }
+    }
+
+    @Test
+    void testGetLong_InvalidNumber_ThrowsException() throws IOException {
+        // given
+        Path file = this.write("Id,Name\nx1,a\n");
+
+        // when-then
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            Assertions.assertTrue(reader.next());
+            Assertions.assertThrows(CsvReadingException.class, () -> reader.getLong(0));
+        }
+    }
+
+    @Test
+    void testGetLong_NumberOutOfRange_ThrowsExceptionWithLine() throws IOException {
+        // given
+        Path file = this.write("Id,Name\n1,a\n9223372036854775807,b\n9223372036854775808,c\n");
+
+        // when-then
+        try (MappedCsvReader reader = MappedCsvReader.open(file)) {
+            Assertions.assertTrue(reader.next());
+            Assertions.assertTrue(reader.next());
+            Assertions.assertEquals(Long.MAX_VALUE, reader.getLong(0));
+            Assertions.assertTrue(reader.next());
+            CsvReadingException exception =
+                    Assertions.assertThrows(CsvReadingException.class, () -> reader.getLong(0));
+            Assertions.assertEquals("test.csv line 4: '9223372036854775808' in column 'Id' is not a valid long",
+                    exception.getMessage());
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("test.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+}
@@ -0,0 +1,107 @@
+package hu.vszili.survey.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+class LengthSketchTest {
+
+    private static final double[] QUANTILES = {0.0, 0.1, 0.5, 0.9, 0.99, 1.0};
+
+    @Test
+    void testQuantile_SkewedLengths_WithinRelativeAccuracyOfExactQuantile() {
+        // given
+        Random random = new Random(42);
+        int[] lengths = new int[100_000];
+        LengthSketch sketch = new LengthSketch();
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = 1 + (int) Math.round(Math.exp(random.nextGaussian() * 1.5 + 3));
+            sketch.add(lengths[i]);
+        }
+        Arrays.sort(lengths);
+
+        for (double q : QUANTILES) {
+            // when
+            double quantile = sketch.quantile(q);
+
+            // then
+            int exact = lengths[(int) (q * (lengths.length - 1))];
+            Assertions.assertEquals(exact, quantile, exact * LengthSketch.RELATIVE_ACCURACY, "quantile " + q);
+        }
+        Assertions.assertEquals(lengths.length, sketch.getCount());
+    }
+
+    @Test
+    void testPlus_SplitLengths_SameBucketsAsOneSketch() {
+        // given
+        LengthSketch all = new LengthSketch();
+        LengthSketch low = new LengthSketch();
+        LengthSketch high = new LengthSketch();
+        for (int length = 0; length <= 5000; length += 7) {
+            all.add(length);
+            (length < 300 ? low : high).add(length);
+        }
+
+        // when
+        LengthSketch merged = high.plus(low);
+
+        // then
+        Assertions.assertEquals(all.getCount(), merged.getCount());
+        Assertions.assertEquals(all.getZeroCount(), merged.getZeroCount());
+        for (double q : QUANTILES) {
+            Assertions.assertEquals(all.quantile(q), merged.quantile(q), "quantile " + q);
+        }
+        Assertions.assertEquals(all.getCount() - low.getCount(), high.getCount());
+    }
+
+    @Test
+    void testAdd_LengthsBelowFirstBucket_GrowsDownwards() {
+        // given
+        LengthSketch sketch = new LengthSketch();
+
+        // when
+        for (int length = 1000; length >= 1; length--) {
+            sketch.add(length);
+        }
+        sketch.add(Integer.MAX_VALUE);
+
+        // then
+        Assertions.assertEquals(1001, sketch.getCount());
+        Assertions.assertEquals(1.0, sketch.quantile(0.0), LengthSketch.RELATIVE_ACCURACY);
+        Assertions.assertEquals(500.0, sketch.quantile(0.5), 500.0 * LengthSketch.RELATIVE_ACCURACY);
+        Assertions.assertEquals(Integer.MAX_VALUE, sketch.quantile(1.0),
+                Integer.MAX_VALUE * LengthSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    void testConstructor_RestoredBuckets_SameQuantiles() {
+        // given
+        LengthSketch sketch = new LengthSketch();
+        for (int length = 0; length <= 40; length++) {
+            sketch.add(length);
+        }
+
+        // when
+        LengthSketch restored = new LengthSketch(sketch.getZeroCount(), sketch.getOffset(), sketch.getCounts());
+
+        // then
+        Assertions.assertEquals(sketch.getCount(), restored.getCount());
+        for (double q : QUANTILES) {
+            Assertions.assertEquals(sketch.quantile(q), restored.quantile(q), "quantile " + q);
+        }
+    }
+
+    @Test
+    void testQuantile_NoLengths_ReturnsZero() {
+        // given
+        LengthSketch sketch = new LengthSketch();
+
+        // when-then
+        Assertions.assertEquals(0.0, sketch.quantile(0.5));
+        Assertions.assertEquals(0.0, sketch.plus(new LengthSketch()).quantile(0.99));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+    }
+
+}
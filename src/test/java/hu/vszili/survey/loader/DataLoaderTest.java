@@ -0,0 +1,451 @@
+package hu.vszili.survey.loader;
+
+import hu.vszili.survey.data.LoadReport;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.exception.CsvReadingException;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import hu.vszili.survey.exception.MemberNotFoundException;
+import hu.vszili.survey.exception.SurveyNotFoundException;
+import hu.vszili.survey.store.Dataset;
+import hu.vszili.survey.store.DatasetHolder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class DataLoaderTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private DatasetHolder datasetHolder;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private DataLoader dataLoader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.write("Members.csv", "Member Id,Full name,E-mail address,Is Active\n1,Jane Doe,jane@doe.com,1\n"
+                + "2,John Doe,john@doe.com,0\n");
+        this.write("Statuses.csv", "Status Id,Name\n1,Not asked\n2,Rejected\n3,Filtered\n4,Completed\n");
+        this.write("Surveys.csv", "Survey Id,Name,Expected completes,Completion points,Filtered points\n"
+                + "1,Survey 01,30,5,2\n");
+        this.write("Participation.csv", "Member Id,Survey Id,Status,Length\n1,1,4,10\n2,1,3,\n");
+
+        datasetHolder = new DatasetHolder();
+        meterRegistry = new SimpleMeterRegistry();
+        dataLoader = new DataLoader(datasetHolder, meterRegistry);
+        ReflectionTestUtils.setField(dataLoader, "csvBasePath", tempDir + "/");
+        ReflectionTestUtils.setField(dataLoader, "snapshotPath", "");
+        ReflectionTestUtils.setField(dataLoader, "participationLogPath", "");
+        ReflectionTestUtils.setField(dataLoader, "shards", 1);
+        ReflectionTestUtils.setField(dataLoader, "compactBytes", Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        dataLoader.close();
+    }
+
+    @Test
+    void testReload_AllFilesLoaded_PublishesDatasetWithReport() {
+        // when
+        LoadReport report = dataLoader.reload();
+
+        // then
+        Dataset dataset = datasetHolder.get();
+        Assertions.assertEquals(1L, dataset.getVersion());
+        Assertions.assertSame(report, dataset.getReport());
+        Assertions.assertEquals(4, report.getFiles().size());
+        Assertions.assertEquals("Participation.csv", report.getFiles().get(3).getFileName());
+        Assertions.assertEquals(2L, report.getFiles().get(3).getRows());
+        Assertions.assertEquals(5, dataset.getParticipation().findPointsByMemberId(1L));
+        Assertions.assertEquals(2, dataset.getParticipation().findPointsByMemberId(2L));
+        Assertions.assertEquals(1L, meterRegistry.get(DataLoader.LOAD_TIMER).tag("source", "csv").timer().count());
+        Assertions.assertEquals(1L, meterRegistry.get(DataLoader.FILE_LOAD_TIMER)
+                .tag("file", "Participation.csv").timer().count());
+    }
+
+    @Test
+    void testReload_ChangedFile_SwapsInNewVersion() throws IOException {
+        // given
+        dataLoader.reload();
+        Dataset previous = datasetHolder.get();
+        this.write("Participation.csv", "Member Id,Survey Id,Status,Length\n1,1,4,10\n2,1,4,12\n");
+
+        // when
+        dataLoader.reload();
+
+        // then
+        Dataset current = datasetHolder.get();
+        Assertions.assertEquals(2L, current.getVersion());
+        Assertions.assertEquals(5, current.getParticipation().findPointsByMemberId(2L));
+        Assertions.assertEquals(2, previous.getParticipation().findPointsByMemberId(2L));
+    }
+
+    @Test
+    void testReload_BrokenFile_KeepsCurrentDataset() throws IOException {
+        // given
+        dataLoader.reload();
+        Dataset previous = datasetHolder.get();
+        this.write("Participation.csv", "Member Id,Survey Id,Status,Length\n1,x,4,10\n");
+
+        // when-then
+        Assertions.assertThrows(CsvReadingException.class, () -> dataLoader.reload());
+        Assertions.assertSame(previous, datasetHolder.get());
+    }
+
+    @Test
+    void testReload_UnknownStatusId_KeepsCurrentDataset() throws IOException {
+        // given
+        dataLoader.reload();
+        Dataset previous = datasetHolder.get();
+        this.write("Participation.csv", "Member Id,Survey Id,Status,Length\n1,1,4,10\n2,1,9,\n");
+
+        // when-then
+        CsvReadingException exception = Assertions.assertThrows(CsvReadingException.class, () -> dataLoader.reload());
+        Assertions.assertTrue(exception.getMessage().contains("Unknown status id 9"));
+        Assertions.assertSame(previous, datasetHolder.get());
+    }
+
+    @Test
+    void testRestore_SnapshotMatchesFiles_PublishesRestoredDataset() {
+        // given
+        ReflectionTestUtils.setField(dataLoader, "snapshotPath", tempDir.resolve("dataset.snapshot").toString());
+        dataLoader.reload();
+
+        // when
+        Optional<LoadReport> report = dataLoader.restore();
+
+        // then
+        Assertions.assertTrue(report.isPresent());
+        Assertions.assertEquals(LoadReport.Source.SNAPSHOT, report.get().getSource());
+        Dataset dataset = datasetHolder.get();
+        Assertions.assertEquals(2L, dataset.getVersion());
+        Assertions.assertEquals(2, dataset.getParticipation().size());
+        Assertions.assertEquals(5, dataset.getParticipation().findPointsByMemberId(1L));
+        Assertions.assertTrue(dataset.getMembers().findById(2L).isPresent());
+    }
+
+    @Test
+    void testRestore_FileChangedAfterSnapshot_ReturnsEmpty() throws IOException {
+        // given
+        ReflectionTestUtils.setField(dataLoader, "snapshotPath", tempDir.resolve("dataset.snapshot").toString());
+        dataLoader.reload();
+        Dataset previous = datasetHolder.get();
+        this.write("Participation.csv", "Member Id,Survey Id,Status,Length\n1,1,4,10\n2,1,4,12\n3,1,4,8\n");
+
+        // when
+        Optional<LoadReport> report = dataLoader.restore();
+
+        // then
+        Assertions.assertTrue(report.isEmpty());
+        Assertions.assertSame(previous, datasetHolder.get());
+    }
+
+    @Test
+    void testRestore_SnapshotWithOtherShardCount_ReturnsEmpty() {
+        // given
+        ReflectionTestUtils.setField(dataLoader, "snapshotPath", tempDir.resolve("dataset.snapshot").toString());
+        dataLoader.reload();
+        Dataset previous = datasetHolder.get();
+        ReflectionTestUtils.setField(dataLoader, "shards", 3);
+
+        // when
+        Optional<LoadReport> report = dataLoader.restore();
+
+        // then
+        Assertions.assertTrue(report.isEmpty());
+        Assertions.assertSame(previous, datasetHolder.get());
+    }
+
+    @Test
+    void testReload_SeveralShards_AnswersLikeOneShard() {
+        // given
+        ReflectionTestUtils.setField(dataLoader, "shards", 3);
+
+        // when
+        dataLoader.reload();
+
+        // then
+        Dataset dataset = datasetHolder.get();
+        Assertions.assertEquals(3, dataset.getParticipation().count());
+        Assertions.assertEquals(2, dataset.getParticipation().size());
+        Assertions.assertEquals(5, dataset.getParticipation().findPointsByMemberId(1L));
+        Assertions.assertEquals(2, dataset.getParticipation().countBySurveyId(1L));
+    }
+
+    @Test
+    void testAppend_PublishesNewVersionWithAppendedRows() {
+        // given
+        dataLoader.reload();
+        Dataset previous = datasetHolder.get();
+
+        // when
+        Dataset dataset = dataLoader.append(List.of(this.participation(2L, 1L, 4L)));
+
+        // then
+        Assertions.assertSame(dataset, datasetHolder.get());
+        Assertions.assertEquals(2L, dataset.getVersion());
+        Assertions.assertEquals(2L, dataset.getReport().getDatasetVersion());
+        Assertions.assertEquals(1L, dataset.getReport().getAppendedRows());
+        Assertions.assertEquals(2, dataset.getParticipation().size());
+        Assertions.assertEquals(1, dataset.getParticipation().countByMemberId(2L));
+        Assertions.assertEquals(5, dataset.getParticipation().findPointsByMemberId(2L));
+        Assertions.assertEquals(2, previous.getParticipation().findPointsByMemberId(2L));
+        Assertions.assertSame(previous.getMembers(), dataset.getMembers());
+        Assertions.assertEquals(1.0, meterRegistry.get(DataLoader.APPENDED_COUNTER).counter().count());
+    }
+
+    @Test
+    void testAppend_UnknownStatusId_KeepsCurrentDataset() {
+        // given
+        dataLoader.reload();
+        Dataset previous = datasetHolder.get();
+
+        // when-then
+        Assertions.assertThrows(InvalidParticipationException.class,
+                () -> dataLoader.append(List.of(this.participation(2L, 1L, 9L))));
+        Assertions.assertSame(previous, datasetHolder.get());
+    }
+
+    @Test
+    void testAppend_MemberOrSurveyNotInDataset_KeepsCurrentDataset() {
+        // given
+        dataLoader.reload();
+        Dataset previous = datasetHolder.get();
+
+        // when-then
+        Assertions.assertThrows(MemberNotFoundException.class, () -> dataLoader.append(
+                List.of(this.participation(1L, 1L, 4L), this.participation(5L, 1L, 4L))));
+        Assertions.assertThrows(SurveyNotFoundException.class,
+                () -> dataLoader.append(List.of(this.participation(1L, 9L, 4L))));
+        Assertions.assertSame(previous, datasetHolder.get());
+    }
+
+    @Test
+    void testReload_AfterAppend_ReadsFilesWithoutAppendedRows() {
+        // given
+        dataLoader.reload();
+        dataLoader.append(List.of(this.participation(2L, 1L, 4L)));
+
+        // when
+        LoadReport report = dataLoader.reload();
+
+        // then
+        Assertions.assertEquals(3L, report.getDatasetVersion());
+        Assertions.assertEquals(0L, report.getAppendedRows());
+        Assertions.assertEquals(2, datasetHolder.get().getParticipation().size());
+    }
+
+    @Test
+    void testInit_ParticipationLog_ReplaysAppendedRowsOnRestoredSnapshot() throws Exception {
+        // given
+        ReflectionTestUtils.setField(dataLoader, "snapshotPath", tempDir.resolve("dataset.snapshot").toString());
+        this.enableParticipationLog(dataLoader);
+        dataLoader.append(List.of(this.participation(2L, 1L, 4L)));
+        dataLoader.close();
+        DatasetHolder restartedHolder = new DatasetHolder();
+        dataLoader = new DataLoader(restartedHolder, meterRegistry);
+        ReflectionTestUtils.setField(dataLoader, "csvBasePath", tempDir + "/");
+        ReflectionTestUtils.setField(dataLoader, "snapshotPath", tempDir.resolve("dataset.snapshot").toString());
+        ReflectionTestUtils.setField(dataLoader, "shards", 1);
+
+        // when
+        this.enableParticipationLog(dataLoader);
+
+        // then
+        Dataset dataset = restartedHolder.get();
+        Assertions.assertEquals(LoadReport.Source.SNAPSHOT, dataset.getReport().getSource());
+        Assertions.assertEquals(1L, dataset.getReport().getAppendedRows());
+        Assertions.assertEquals(2, dataset.getParticipation().size());
+        Assertions.assertEquals(5, dataset.getParticipation().findPointsByMemberId(2L));
+    }
+
+    @Test
+    void testAppend_ParticipationLog_ConcurrentAppendsAllCommitted() throws Exception {
+        // given
+        this.enableParticipationLog(dataLoader);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+
+        // when
+        List<Future<Dataset>> appends = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long memberId = i % 2 + 1;
+            appends.add(clients.submit(() -> dataLoader.append(List.of(this.participation(memberId, 1L, 4L)))));
+        }
+        for (Future<Dataset> append : appends) {
+            append.get();
+        }
+        clients.shutdown();
+
+        // then
+        Assertions.assertEquals(2, datasetHolder.get().getParticipation().size());
+        Assertions.assertEquals(200.0,
+                meterRegistry.get(DataLoader.LOG_COMMIT_SUMMARY).summary().totalAmount());
+        Assertions.assertEquals(200L, dataLoader.reload().getAppendedRows());
+        Assertions.assertEquals(2, datasetHolder.get().getParticipation().size());
+        Assertions.assertEquals(5, datasetHolder.get().getParticipation().findPointsByMemberId(2L));
+    }
+
+    @Test
+    void testAppend_ParticipationLog_UnknownStatusIdRejectedAlone() {
+        // given
+        this.enableParticipationLog(dataLoader);
+
+        // when-then
+        Assertions.assertThrows(InvalidParticipationException.class,
+                () -> dataLoader.append(List.of(this.participation(2L, 1L, 9L))));
+        dataLoader.append(List.of(this.participation(2L, 1L, 4L)));
+        Assertions.assertEquals(1L, dataLoader.reload().getAppendedRows());
+    }
+
+    @Test
+    void testAppend_ParticipationLog_MemberIdOutOfRangeNeverLogged() {
+        // given
+        this.enableParticipationLog(dataLoader);
+
+        // when-then
+        InvalidParticipationException exception = Assertions.assertThrows(InvalidParticipationException.class,
+                () -> dataLoader.append(List.of(this.participation(3_000_000_000L, 1L, 4L))));
+        Assertions.assertEquals("Member id 3000000000 is out of range", exception.getMessage());
+        dataLoader.append(List.of(this.participation(2L, 1L, 4L)));
+        Assertions.assertEquals(1L, dataLoader.reload().getAppendedRows());
+    }
+
+    @Test
+    void testAppend_ParticipationLog_NegativeLengthNeverLogged() {
+        // given
+        this.enableParticipationLog(dataLoader);
+        Participation participation = this.participation(2L, 1L, 4L);
+        participation.setLength(-7);
+
+        // when-then
+        InvalidParticipationException exception = Assertions.assertThrows(InvalidParticipationException.class,
+                () -> dataLoader.append(List.of(participation)));
+        Assertions.assertEquals("Length -7 is negative", exception.getMessage());
+        Assertions.assertThrows(SurveyNotFoundException.class,
+                () -> dataLoader.append(List.of(this.participation(2L, 9L, 4L))));
+        Assertions.assertEquals(0L, dataLoader.reload().getAppendedRows());
+    }
+
+    @Test
+    void testInit_ParticipationLog_SkipsLoggedRowThatCannotBeAppended() throws IOException {
+        // given
+        try (ParticipationLog participationLog = ParticipationLog.open(tempDir.resolve("log"),
+                tempDir.resolve("Participation.csv"))) {
+            participationLog.append(List.of(this.participation(2L, 1L, 9L), this.participation(2L, 1L, 4L)));
+        }
+
+        // when
+        this.enableParticipationLog(dataLoader);
+
+        // then
+        Assertions.assertEquals(1L, datasetHolder.get().getReport().getAppendedRows());
+        Assertions.assertEquals(2, datasetHolder.get().getParticipation().size());
+        dataLoader.compact();
+        Assertions.assertEquals("Member Id,Survey Id,Status,Length\n1,1,4,10\n2,1,4,\n",
+                Files.readString(tempDir.resolve("Participation.csv")));
+    }
+
+    @Test
+    void testClose_CommitsQueuedAppendsAndKeepsLogReadable() throws Exception {
+        // given
+        this.enableParticipationLog(dataLoader);
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        List<Future<Dataset>> appends = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            appends.add(clients.submit(() -> dataLoader.append(List.of(this.participation(1L, 1L, 4L)))));
+        }
+
+        // when
+        dataLoader.close();
+
+        // then
+        clients.shutdown();
+        long committed = 0;
+        for (Future<Dataset> append : appends) {
+            try {
+                append.get();
+                committed++;
+            } catch (ExecutionException e) {
+                Assertions.assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        }
+        try (ParticipationLog participationLog = ParticipationLog.open(tempDir.resolve("log"),
+                tempDir.resolve("Participation.csv"))) {
+            Assertions.assertEquals(committed, participationLog.read().size());
+        }
+    }
+
+    @Test
+    void testCompact_MovesLoggedRowsIntoParticipationFile() throws IOException {
+        // given
+        this.enableParticipationLog(dataLoader);
+        dataLoader.append(List.of(this.participation(2L, 1L, 4L)));
+
+        // when
+        dataLoader.compact();
+
+        // then
+        Assertions.assertEquals("Member Id,Survey Id,Status,Length\n1,1,4,10\n2,1,4,\n",
+                Files.readString(tempDir.resolve("Participation.csv")));
+        LoadReport report = dataLoader.reload();
+        Assertions.assertEquals(0L, report.getAppendedRows());
+        Assertions.assertEquals(2L, report.getFiles().get(3).getRows());
+    }
+
+    @Test
+    void testCompact_SamePairLoggedTwice_KeepsLastRowOnly() throws IOException {
+        // given
+        this.enableParticipationLog(dataLoader);
+        dataLoader.append(List.of(this.participation(2L, 1L, 2L), this.participation(1L, 1L, 1L)));
+        dataLoader.append(List.of(this.participation(2L, 1L, 4L)));
+
+        // when
+        dataLoader.compact();
+
+        // then
+        Assertions.assertEquals("Member Id,Survey Id,Status,Length\n1,1,1,\n2,1,4,\n",
+                Files.readString(tempDir.resolve("Participation.csv")));
+        dataLoader.reload();
+        Assertions.assertEquals(2, datasetHolder.get().getParticipation().size());
+        Assertions.assertEquals(0, datasetHolder.get().getParticipation().findPointsByMemberId(1L));
+        Assertions.assertEquals(5, datasetHolder.get().getParticipation().findPointsByMemberId(2L));
+    }
+
+    private void enableParticipationLog(DataLoader loader) {
+        ReflectionTestUtils.setField(loader, "participationLogPath", tempDir.resolve("log").toString());
+        ReflectionTestUtils.setField(loader, "compactBytes", Long.MAX_VALUE);
+        ReflectionTestUtils.invokeMethod(loader, "init");
+    }
+
+    private Participation participation(Long memberId, Long surveyId, Long status) {
+        Participation participation = new Participation();
+        participation.setMemberId(memberId);
+        participation.setSurveyId(surveyId);
+        participation.setStatus(status);
+        return participation;
+    }
+
+    private void write(String fileName, String content) throws IOException {
+        Files.writeString(tempDir.resolve(fileName), content, StandardCharsets.UTF_8);
+    }
+
+}
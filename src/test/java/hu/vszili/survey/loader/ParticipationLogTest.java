@@ -0,0 +1,216 @@
+package hu.vszili.survey.loader;
+
+import hu.vszili.survey.data.Participation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+class ParticipationLogTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private Path directory;
+
+    private Path baseFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = tempDir.resolve("log");
+        baseFile = tempDir.resolve("Participation.csv");
+        Files.writeString(baseFile, "Member Id,Survey Id,Status,Length\r\n1,1,4,10\r\n", StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testRead_ReopenedLog_ReturnsAppendedRowsInOrder() throws IOException {
+        // given
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participationLog.append(List.of(this.participation(1L, 2L, 4L, 12)));
+            participationLog.append(List.of(this.participation(2L, 1L, 3L, null), this.participation(3L, 2L, 1L, 0)));
+        }
+
+        // when
+        List<Participation> participations;
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participations = participationLog.read();
+        }
+
+        // then
+        Assertions.assertEquals(List.of(this.participation(1L, 2L, 4L, 12), this.participation(2L, 1L, 3L, null),
+                this.participation(3L, 2L, 1L, 0)), participations);
+    }
+
+    @Test
+    void testRead_TornLastFrame_TruncatesItAndKeepsEarlierFrames() throws IOException {
+        // given
+        long intact;
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participationLog.append(List.of(this.participation(1L, 2L, 4L, 12)));
+            intact = participationLog.size();
+            participationLog.append(List.of(this.participation(2L, 1L, 3L, null)));
+        }
+        Path file = directory.resolve(ParticipationLog.LOG_FILE_NAME);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+
+        // when
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            List<Participation> participations = participationLog.read();
+            participationLog.append(List.of(this.participation(3L, 1L, 4L, 7)));
+
+            // then
+            Assertions.assertEquals(List.of(this.participation(1L, 2L, 4L, 12)), participations);
+            Assertions.assertEquals(List.of(this.participation(1L, 2L, 4L, 12), this.participation(3L, 1L, 4L, 7)),
+                    participationLog.read());
+            Assertions.assertTrue(participationLog.size() > intact);
+        }
+    }
+
+    @Test
+    void testRead_CorruptFrame_StopsBeforeIt() throws IOException {
+        // given
+        long intact;
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participationLog.append(List.of(this.participation(1L, 2L, 4L, 12)));
+            intact = participationLog.size();
+            participationLog.append(List.of(this.participation(2L, 1L, 3L, null)));
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve(ParticipationLog.LOG_FILE_NAME),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xff}), intact + 12);
+        }
+
+        // when
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            List<Participation> participations = participationLog.read();
+
+            // then
+            Assertions.assertEquals(List.of(this.participation(1L, 2L, 4L, 12)), participations);
+            Assertions.assertEquals(intact, participationLog.size());
+        }
+    }
+
+    @Test
+    void testOpen_NotALog_ThrowsIOException() throws IOException {
+        // given
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve(ParticipationLog.LOG_FILE_NAME), "Member Id,Survey Id,Status,Length\n");
+
+        // when-then
+        Assertions.assertThrows(IOException.class, () -> ParticipationLog.open(directory, baseFile));
+    }
+
+    @Test
+    void testCompactInto_AppendsRowsToBaseFileAndEmptiesLog() throws IOException {
+        // given
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participationLog.append(List.of(this.participation(2L, 1L, 3L, null), this.participation(3L, 2L, 4L, 5)));
+
+            // when
+            int rows = participationLog.compactInto(baseFile, participation -> true);
+
+            // then
+            Assertions.assertEquals(2, rows);
+            Assertions.assertEquals("Member Id,Survey Id,Status,Length\r\n1,1,4,10\r\n2,1,3,\r\n3,2,4,5\r\n",
+                    Files.readString(baseFile));
+            Assertions.assertTrue(participationLog.read().isEmpty());
+            Assertions.assertFalse(Files.exists(directory.resolve(ParticipationLog.COMPACTION_FILE_NAME)));
+        }
+    }
+
+    @Test
+    void testCompactInto_RowsOfSamePair_KeepsLastRowAndDropsReplacedLine() throws IOException {
+        // given
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participationLog.append(List.of(this.participation(1L, 1L, 3L, null), this.participation(2L, 1L, 3L, null),
+                    this.participation(1L, 1L, 2L, 4)));
+
+            // when
+            int rows = participationLog.compactInto(baseFile, participation -> true);
+
+            // then
+            Assertions.assertEquals(2, rows);
+            Assertions.assertEquals("Member Id,Survey Id,Status,Length\r\n2,1,3,\r\n1,1,2,4\r\n",
+                    Files.readString(baseFile));
+        }
+    }
+
+    @Test
+    void testCompactInto_OtherColumnOrder_WritesRowsInHeaderOrder() throws IOException {
+        // given
+        Files.writeString(baseFile, "Status,Length,Note,Survey Id,Member Id\n4,10,first,1,1\n", StandardCharsets.UTF_8);
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participationLog.append(List.of(this.participation(2L, 1L, 3L, null), this.participation(3L, 2L, 9L, 5),
+                    this.participation(3L, 2L, 4L, 7)));
+
+            // when
+            int rows = participationLog.compactInto(baseFile, participation -> participation.getStatus() != 9L);
+
+            // then
+            Assertions.assertEquals(2, rows);
+            Assertions.assertEquals("Status,Length,Note,Survey Id,Member Id\n4,10,first,1,1\n3,,,1,2\n4,7,,2,3\n",
+                    Files.readString(baseFile));
+            Assertions.assertTrue(participationLog.read().isEmpty());
+        }
+    }
+
+    @Test
+    void testOpen_CompactionInterruptedAfterReplacingBaseFile_EmptiesLog() throws IOException {
+        // given
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participationLog.append(List.of(this.participation(2L, 1L, 3L, null)));
+        }
+        this.writeCompactionFile(Files.size(baseFile), Files.getLastModifiedTime(baseFile).toMillis());
+
+        // when
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+
+            // then
+            Assertions.assertTrue(participationLog.read().isEmpty());
+            Assertions.assertFalse(Files.exists(directory.resolve(ParticipationLog.COMPACTION_FILE_NAME)));
+        }
+    }
+
+    @Test
+    void testOpen_CompactionInterruptedBeforeReplacingBaseFile_KeepsLog() throws IOException {
+        // given
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+            participationLog.append(List.of(this.participation(2L, 1L, 3L, null)));
+        }
+        this.writeCompactionFile(Files.size(baseFile) + 8, Files.getLastModifiedTime(baseFile).toMillis());
+
+        // when
+        try (ParticipationLog participationLog = ParticipationLog.open(directory, baseFile)) {
+
+            // then
+            Assertions.assertEquals(List.of(this.participation(2L, 1L, 3L, null)), participationLog.read());
+            Assertions.assertFalse(Files.exists(directory.resolve(ParticipationLog.COMPACTION_FILE_NAME)));
+        }
+    }
+
+    private void writeCompactionFile(long size, long lastModifiedMillis) throws IOException {
+        Files.write(directory.resolve(ParticipationLog.COMPACTION_FILE_NAME),
+                ByteBuffer.allocate(2 * Long.BYTES).putLong(size).putLong(lastModifiedMillis).array());
+    }
+
+    private Participation participation(Long memberId, Long surveyId, Long status, Integer length) {
+        Participation participation = new Participation();
+        participation.setMemberId(memberId);
+        participation.setSurveyId(surveyId);
+        participation.setStatus(status);
+        participation.setLength(length);
+        return participation;
+    }
+
+}
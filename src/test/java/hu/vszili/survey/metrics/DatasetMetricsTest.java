@@ -0,0 +1,65 @@
+package hu.vszili.survey.metrics;
+
+import hu.vszili.survey.store.Dataset;
+import hu.vszili.survey.store.DatasetHolder;
+import hu.vszili.survey.store.MemberStore;
+import hu.vszili.survey.store.ParticipationShards;
+import hu.vszili.survey.store.StatusStore;
+import hu.vszili.survey.store.SurveyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DatasetMetricsTest {
+
+    private DatasetHolder datasetHolder;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        datasetHolder = new DatasetHolder();
+        meterRegistry = new SimpleMeterRegistry();
+        new DatasetMetrics(datasetHolder).bindTo(meterRegistry);
+    }
+
+    @Test
+    void testGauges_NoDatasetLoaded_ReportNaN() {
+        // when-then
+        Assertions.assertTrue(Double.isNaN(meterRegistry.get(DatasetMetrics.DATASET_VERSION).gauge().value()));
+        Assertions.assertTrue(Double.isNaN(
+                meterRegistry.get(DatasetMetrics.STORE_SIZE).tag("store", "members").gauge().value()));
+    }
+
+    @Test
+    void testGauges_FollowSwappedDataset() {
+        // given
+        MemberStore members = mock(MemberStore.class);
+        StatusStore statuses = mock(StatusStore.class);
+        SurveyStore surveys = mock(SurveyStore.class);
+        ParticipationShards participation = mock(ParticipationShards.class);
+        when(members.size()).thenReturn(300);
+        when(statuses.size()).thenReturn(4);
+        when(surveys.size()).thenReturn(100);
+        when(participation.size()).thenReturn(6000);
+
+        // when
+        datasetHolder.swap(new Dataset(7L, members, statuses, surveys, participation, null));
+
+        // then
+        Assertions.assertEquals(7.0, meterRegistry.get(DatasetMetrics.DATASET_VERSION).gauge().value());
+        Assertions.assertEquals(300.0, this.storeSize("members"));
+        Assertions.assertEquals(4.0, this.storeSize("statuses"));
+        Assertions.assertEquals(100.0, this.storeSize("surveys"));
+        Assertions.assertEquals(6000.0, this.storeSize("participations"));
+    }
+
+    private double storeSize(String store) {
+        return meterRegistry.get(DatasetMetrics.STORE_SIZE).tag("store", store).gauge().value();
+    }
+
+}
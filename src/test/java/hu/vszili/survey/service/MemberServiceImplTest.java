@@ -1,7 +1,13 @@
 package hu.vszili.survey.service;
 
-import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.CursorPage;
+import hu.vszili.survey.data.MemberPoints;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.ParticipationTable;
+import hu.vszili.survey.data.StatusCodes;
 import hu.vszili.survey.data.Survey;
+import hu.vszili.survey.exception.InvalidPageRequestException;
 import hu.vszili.survey.exception.MemberNotFoundException;
 import hu.vszili.survey.repositroy.MemberRepository;
 import hu.vszili.survey.repositroy.ParticipationRepository;
@@ -14,18 +20,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static hu.vszili.survey.data.ParticipationTable.NO_LENGTH;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class MemberServiceImplTest {
 
-    public static final String COMPLETED_STATUS = "Completed";
+    private static final StatusCodes CODES = new StatusCodes((byte) 0, (byte) 1, (byte) 2, (byte) 3);
 
     @Mock
     private MemberRepository memberRepository;
@@ -46,22 +53,17 @@ class MemberServiceImplTest {
     void testGetCompletedSurveys_MemberExists_SurveysReturned() {
         // given
         Long memberId = 1L;
-        Long completedStatusId = 1L;
+        byte completedStatus = CODES.getCompleted();
 
         when(memberRepository.existsById(memberId)).thenReturn(true);
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
+        when(statusRepository.getCodes()).thenReturn(CODES);
 
-        Participation participation1 = new Participation();
-        participation1.setMemberId(memberId);
-        participation1.setSurveyId(1L);
-        participation1.setStatus(completedStatusId);
+        ParticipationTable participation = new ParticipationTable();
+        participation.add(memberId, 1L, completedStatus, NO_LENGTH);
+        participation.add(memberId, 2L, completedStatus, NO_LENGTH);
 
-        Participation participation2 = new Participation();
-        participation2.setMemberId(memberId);
-        participation2.setSurveyId(2L);
-        participation2.setStatus(completedStatusId);
-
-        when(participationRepository.findAll()).thenReturn(Arrays.asList(participation1, participation2));
+        when(participationRepository.findByMemberIdAndStatus(memberId, completedStatus))
+                .thenReturn(participation);
 
         Survey survey1 = new Survey(1L, "Survey A", 100, 10, 2);
         Survey survey2 = new Survey(2L, "Survey B", 200, 20, 5);
@@ -82,11 +84,12 @@ class MemberServiceImplTest {
     void testGetCompletedSurveys_MemberExists_NoSurveys() {
         // given
         Long memberId = 1L;
-        Long completedStatusId = 1L;
+        byte completedStatus = CODES.getCompleted();
 
         when(memberRepository.existsById(memberId)).thenReturn(true);
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-        when(participationRepository.findAll()).thenReturn(Collections.emptyList());
+        when(statusRepository.getCodes()).thenReturn(CODES);
+        when(participationRepository.findByMemberIdAndStatus(memberId, completedStatus))
+                .thenReturn(ParticipationRows.EMPTY);
 
         // when
         List<Survey> completedSurveys = memberService.getCompletedSurveys(memberId);
@@ -109,22 +112,17 @@ class MemberServiceImplTest {
     void testGetCompletedSurveys_ParticipationWithNoSurvey_Ignored() {
         // given
         Long memberId = 1L;
-        Long completedStatusId = 1L;
+        byte completedStatus = CODES.getCompleted();
 
         when(memberRepository.existsById(memberId)).thenReturn(true);
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-
-        Participation participation1 = new Participation();
-        participation1.setMemberId(memberId);
-        participation1.setSurveyId(1L);
-        participation1.setStatus(completedStatusId);
+        when(statusRepository.getCodes()).thenReturn(CODES);
 
-        Participation participation2 = new Participation();
-        participation2.setMemberId(memberId);
-        participation2.setSurveyId(999L);
-        participation2.setStatus(completedStatusId);
+        ParticipationTable participation = new ParticipationTable();
+        participation.add(memberId, 1L, completedStatus, NO_LENGTH);
+        participation.add(memberId, 999L, completedStatus, NO_LENGTH);
 
-        when(participationRepository.findAll()).thenReturn(Arrays.asList(participation1, participation2));
+        when(participationRepository.findByMemberIdAndStatus(memberId, completedStatus))
+                .thenReturn(participation);
 
         Survey survey1 = new Survey(1L, "Survey A", 100, 10, 2);
         when(surveyRepository.findById(1L)).thenReturn(Optional.of(survey1));
@@ -137,4 +135,117 @@ class MemberServiceImplTest {
         Assertions.assertEquals(1, completedSurveys.size());
         Assertions.assertTrue(completedSurveys.contains(survey1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetCompletedSurveysPage_ReturnsPageAndNextCursor() {
+        // given
+        Long memberId = 1L;
+        byte completedStatus = CODES.getCompleted();
+
+        when(memberRepository.existsById(memberId)).thenReturn(true);
+        when(statusRepository.getCodes()).thenReturn(CODES);
+
+        ParticipationTable participation = new ParticipationTable();
+        participation.add(memberId, 1L, completedStatus, NO_LENGTH);
+
+        when(participationRepository.findByMemberIdAndStatus(memberId, completedStatus, 0, 1))
+                .thenReturn(new ParticipationPage(participation, 3, 3));
+        when(participationRepository.findByMemberIdAndStatus(memberId, completedStatus, 3, 1))
+                .thenReturn(new ParticipationPage(new ParticipationTable(), ParticipationPage.END, 0));
+        Survey survey = new Survey(1L, "Survey A", 100, 10, 2);
+        when(surveyRepository.findById(1L)).thenReturn(Optional.of(survey));
+
+        // when
+        CursorPage<Survey> page = memberService.getCompletedSurveys(memberId, null, 1);
+        CursorPage<Survey> lastPage = memberService.getCompletedSurveys(memberId, page.getNextCursor(), 1);
+
+        // then
+        Assertions.assertEquals(List.of(survey), page.getItems());
+        Assertions.assertNotNull(page.getNextCursor());
+        Assertions.assertTrue(lastPage.getItems().isEmpty());
+        Assertions.assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void testGetCompletedSurveysPage_InvalidCursor_ThrowsException() {
+        // when-then
+        Assertions.assertThrows(InvalidPageRequestException.class,
+                () -> memberService.getCompletedSurveys(1L, "not-a-cursor", 10));
+    }
+
+    @Test
+    void testGetPoints_MemberExists_ReturnsLedgerPoints() {
+        // given
+        Long memberId = 1L;
+
+        when(memberRepository.existsById(memberId)).thenReturn(true);
+        when(participationRepository.findPointsByMemberId(memberId)).thenReturn(15);
+
+        // when
+        Integer points = memberService.getPoints(memberId);
+
+        // then
+        Assertions.assertEquals(15, points);
+    }
+
+    @Test
+    void testGetPoints_MemberNotFound_ThrowsException() {
+        // given
+        Long memberId = 99L;
+        when(memberRepository.existsById(memberId)).thenReturn(false);
+
+        // when-then
+        Assertions.assertThrows(MemberNotFoundException.class, () -> memberService.getPoints(memberId));
+    }
+
+    @Test
+    void testGetPointsBatch_UnknownMembersLeftOut() {
+        // given
+        when(memberRepository.existsById(1L)).thenReturn(true);
+        when(memberRepository.existsById(2L)).thenReturn(false);
+        when(memberRepository.existsById(3L)).thenReturn(true);
+        when(participationRepository.findPointsByMemberId(1L)).thenReturn(15);
+        when(participationRepository.findPointsByMemberId(3L)).thenReturn(0);
+
+        // when
+        Map<Long, Integer> points = memberService.getPoints(List.of(3L, 2L, 1L));
+
+        // then
+        Assertions.assertEquals(List.of(3L, 1L), List.copyOf(points.keySet()));
+        Assertions.assertEquals(0, points.get(3L));
+        Assertions.assertEquals(15, points.get(1L));
+    }
+
+    @Test
+    void testStreamAllPoints_EveryMemberInIdOrder() {
+        // given
+        when(memberRepository.getMemberIds()).thenReturn(RoaringBitmap.bitmapOf(2, 1));
+        when(participationRepository.findPointsByMemberId(1L)).thenReturn(7);
+        when(participationRepository.findPointsByMemberId(2L)).thenReturn(0);
+
+        // when
+        List<MemberPoints> points = memberService.streamAllPoints().toList();
+
+        // then
+        Assertions.assertEquals(List.of(new MemberPoints(1L, 7), new MemberPoints(2L, 0)), points);
+    }
+
+    @Test
+    void testGetAllPointsPage_ResumesFromCursor() {
+        // given
+        when(memberRepository.getMemberIds()).thenReturn(RoaringBitmap.bitmapOf(1, 3, 4));
+        when(participationRepository.findPointsByMemberId(1L)).thenReturn(7);
+        when(participationRepository.findPointsByMemberId(3L)).thenReturn(0);
+        when(participationRepository.findPointsByMemberId(4L)).thenReturn(5);
+
+        // when
+        CursorPage<MemberPoints> first = memberService.getAllPoints(null, 2);
+        CursorPage<MemberPoints> second = memberService.getAllPoints(first.getNextCursor(), 2);
+
+        // then
+        Assertions.assertEquals(List.of(new MemberPoints(1L, 7), new MemberPoints(3L, 0)), first.getItems());
+        Assertions.assertEquals(List.of(new MemberPoints(4L, 5)), second.getItems());
+        Assertions.assertNull(second.getNextCursor());
+    }
+
+}
@@ -0,0 +1,61 @@
+package hu.vszili.survey.service;
+
+import hu.vszili.survey.data.AppendResult;
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import hu.vszili.survey.loader.DataLoader;
+import hu.vszili.survey.service.impl.ParticipationServiceImpl;
+import hu.vszili.survey.store.Dataset;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ParticipationServiceImplTest {
+
+    @Mock
+    private DataLoader dataLoader;
+
+    @InjectMocks
+    private ParticipationServiceImpl participationService;
+
+    @Test
+    void testAdd_ValidParticipations_AppendedToDataset() {
+        // given
+        List<Participation> participations = List.of(this.participation(1L, 2L, 4L), this.participation(3L, 2L, 3L));
+        when(dataLoader.append(participations)).thenReturn(new Dataset(7L, null, null, null, null, null));
+
+        // when
+        AppendResult result = participationService.add(participations);
+
+        // then
+        Assertions.assertEquals(7L, result.getDatasetVersion());
+        Assertions.assertEquals(2, result.getRows());
+    }
+
+    @Test
+    void testAdd_MissingStatus_ThrowsException() {
+        // when-then
+        Assertions.assertThrows(InvalidParticipationException.class,
+                () -> participationService.add(List.of(this.participation(1L, 2L, null))));
+        Assertions.assertThrows(InvalidParticipationException.class, () -> participationService.add(List.of()));
+        verifyNoInteractions(dataLoader);
+    }
+
+    private Participation participation(Long memberId, Long surveyId, Long status) {
+        Participation participation = new Participation();
+        participation.setMemberId(memberId);
+        participation.setSurveyId(surveyId);
+        participation.setStatus(status);
+        return participation;
+    }
+
+}
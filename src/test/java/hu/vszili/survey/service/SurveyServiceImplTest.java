@@ -1,8 +1,14 @@
 package hu.vszili.survey.service;
 
+import hu.vszili.survey.data.CursorPage;
+import hu.vszili.survey.data.LengthSketch;
 import hu.vszili.survey.data.Member;
-import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.ParticipationTable;
+import hu.vszili.survey.data.StatusCodes;
+import hu.vszili.survey.data.SurveyAggregate;
 import hu.vszili.survey.data.SurveyStatistic;
+import hu.vszili.survey.exception.InvalidPageRequestException;
 import hu.vszili.survey.exception.SurveyNotFoundException;
 import hu.vszili.survey.repositroy.MemberRepository;
 import hu.vszili.survey.repositroy.ParticipationRepository;
@@ -15,20 +21,23 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
 
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+import static hu.vszili.survey.data.ParticipationTable.NO_LENGTH;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class SurveyServiceImplTest {
 
-    public static final String COMPLETED_STATUS = "Completed";
+    private static final StatusCodes CODES = new StatusCodes((byte) 0, (byte) 1, (byte) 2, (byte) 3);
 
     @Mock
     private SurveyRepository surveyRepository;
@@ -52,22 +61,17 @@ class SurveyServiceImplTest {
     void testGetMembersCompleted_SurveyExists_ReturnsMembersWithCompletedStatus() {
         // given
         Long surveyId = 1L;
-        Long completedStatusId = 1L;
+        byte completedStatus = CODES.getCompleted();
 
         when(surveyRepository.existsById(surveyId)).thenReturn(true);
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
+        when(statusRepository.getCodes()).thenReturn(CODES);
 
-        Participation participation1 = new Participation();
-        participation1.setMemberId(1L);
-        participation1.setSurveyId(surveyId);
-        participation1.setStatus(completedStatusId);
+        ParticipationTable participation = new ParticipationTable();
+        participation.add(1L, surveyId, completedStatus, NO_LENGTH);
+        participation.add(2L, surveyId, completedStatus, NO_LENGTH);
 
-        Participation participation2 = new Participation();
-        participation2.setMemberId(2L);
-        participation2.setSurveyId(surveyId);
-        participation2.setStatus(completedStatusId);
-
-        when(participationRepository.findAll()).thenReturn(Arrays.asList(participation1, participation2));
+        when(participationRepository.findBySurveyIdAndStatus(surveyId, completedStatus))
+                .thenReturn(participation);
 
         Member member1 = new Member();
         member1.setId(1L);
@@ -109,11 +113,12 @@ class SurveyServiceImplTest {
     void testGetMembersCompleted_NoCompletedParticipations_ReturnsEmptyList() {
         // given
         Long surveyId = 1L;
-        Long completedStatusId = 1L;
+        byte completedStatus = CODES.getCompleted();
 
         when(surveyRepository.existsById(surveyId)).thenReturn(true);
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-        when(participationRepository.findAll()).thenReturn(Collections.emptyList());
+        when(statusRepository.getCodes()).thenReturn(CODES);
+        when(participationRepository.findBySurveyIdAndStatus(surveyId, completedStatus))
+                .thenReturn(ParticipationRows.EMPTY);
 
         // when
         List<Member> members = surveyService.getMembersCompleted(surveyId);
@@ -129,23 +134,16 @@ class SurveyServiceImplTest {
     void testGetMembersCompleted_OnlyCompletedStatusIncluded() {
         // given
         Long surveyId = 1L;
-        Long completedStatusId = 1L;
-        Long rejectedStatusId = 3L;
+        byte completedStatus = CODES.getCompleted();
 
         when(surveyRepository.existsById(surveyId)).thenReturn(true);
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-
-        Participation completed = new Participation();
-        completed.setMemberId(1L);
-        completed.setSurveyId(surveyId);
-        completed.setStatus(completedStatusId);
+        when(statusRepository.getCodes()).thenReturn(CODES);
 
-        Participation rejected = new Participation();
-        rejected.setMemberId(2L);
-        rejected.setSurveyId(surveyId);
-        rejected.setStatus(rejectedStatusId);
+        ParticipationTable participation = new ParticipationTable();
+        participation.add(1L, surveyId, completedStatus, NO_LENGTH);
 
-        when(participationRepository.findAll()).thenReturn(Arrays.asList(completed, rejected));
+        when(participationRepository.findBySurveyIdAndStatus(surveyId, completedStatus))
+                .thenReturn(participation);
 
         Member member1 = new Member();
         member1.setId(1L);
@@ -168,17 +166,16 @@ class SurveyServiceImplTest {
     void testGetMembersCompleted_MemberNotFound_Ignored() {
         // given
         Long surveyId = 1L;
-        Long completedStatusId = 1L;
+        byte completedStatus = CODES.getCompleted();
 
         when(surveyRepository.existsById(surveyId)).thenReturn(true);
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
+        when(statusRepository.getCodes()).thenReturn(CODES);
 
-        Participation participation = new Participation();
-        participation.setMemberId(999L);
-        participation.setSurveyId(surveyId);
-        participation.setStatus(completedStatusId);
+        ParticipationTable participation = new ParticipationTable();
+        participation.add(999L, surveyId, completedStatus, NO_LENGTH);
 
-        when(participationRepository.findAll()).thenReturn(Collections.singletonList(participation));
+        when(participationRepository.findBySurveyIdAndStatus(surveyId, completedStatus))
+                .thenReturn(participation);
         when(memberRepository.findById(999L)).thenReturn(Optional.empty());
 
         // when
@@ -195,38 +192,15 @@ class SurveyServiceImplTest {
     void testGetEligibleMembers_ReturnsActiveMembersWithoutParticipation() {
         // given
         Long surveyId = 1L;
-        Long notAskedStatusId = 0L;
-
-        when(statusRepository.findIdByName("Not asked")).thenReturn(notAskedStatusId);
-
-        Member activeMember1 = new Member();
-        activeMember1.setId(1L);
-        activeMember1.setFullName("John Doe");
-        activeMember1.setActive(true);
 
         Member activeMember2 = new Member();
         activeMember2.setId(2L);
         activeMember2.setFullName("Jane Smith");
         activeMember2.setActive(true);
 
-        Member inactiveMember = new Member();
-        inactiveMember.setId(3L);
-        inactiveMember.setFullName("Bob Inactive");
-        inactiveMember.setActive(false);
-
-        Map<Long, Member> allMembers = new ConcurrentHashMap<>();
-        allMembers.put(1L, activeMember1);
-        allMembers.put(2L, activeMember2);
-        allMembers.put(3L, inactiveMember);
-
-        when(memberRepository.getMembers()).thenReturn(allMembers);
-
-        Participation participation = new Participation();
-        participation.setMemberId(1L);
-        participation.setSurveyId(surveyId);
-        participation.setStatus(1L);
-
-        when(participationRepository.findAll()).thenReturn(Collections.singletonList(participation));
+        when(memberRepository.getActiveMemberIds()).thenReturn(RoaringBitmap.bitmapOf(1, 2));
+        when(participationRepository.findAskedMemberIds(surveyId)).thenReturn(RoaringBitmap.bitmapOf(1));
+        when(memberRepository.findById(2L)).thenReturn(Optional.of(activeMember2));
 
         // when
         List<Member> eligibleMembers = surveyService.getEligibleMembers(surveyId);
@@ -243,26 +217,15 @@ class SurveyServiceImplTest {
     void testGetEligibleMembers_ExcludesInactiveMembers() {
         // given
         Long surveyId = 1L;
-        Long notAskedStatusId = 0L;
-
-        when(statusRepository.findIdByName("Not asked")).thenReturn(notAskedStatusId);
 
         Member activeMember = new Member();
         activeMember.setId(1L);
         activeMember.setFullName("John Doe");
         activeMember.setActive(true);
 
-        Member inactiveMember = new Member();
-        inactiveMember.setId(2L);
-        inactiveMember.setFullName("Bob Inactive");
-        inactiveMember.setActive(false);
-
-        Map<Long, Member> allMembers = new ConcurrentHashMap<>();
-        allMembers.put(1L, activeMember);
-        allMembers.put(2L, inactiveMember);
-
-        when(memberRepository.getMembers()).thenReturn(allMembers);
-        when(participationRepository.findAll()).thenReturn(Collections.emptyList());
+        when(memberRepository.getActiveMemberIds()).thenReturn(RoaringBitmap.bitmapOf(1));
+        when(participationRepository.findAskedMemberIds(surveyId)).thenReturn(new RoaringBitmap());
+        when(memberRepository.findById(1L)).thenReturn(Optional.of(activeMember));
 
         // when
         List<Member> eligibleMembers = surveyService.getEligibleMembers(surveyId);
@@ -279,26 +242,112 @@ class SurveyServiceImplTest {
     void testGetEligibleMembers_NoEligibleMembers_ReturnsEmptyList() {
         // given
         Long surveyId = 1L;
-        Long notAskedStatusId = 0L;
 
-        when(statusRepository.findIdByName("Not asked")).thenReturn(notAskedStatusId);
+        when(memberRepository.getActiveMemberIds()).thenReturn(RoaringBitmap.bitmapOf(1, 2));
+        when(participationRepository.findAskedMemberIds(surveyId)).thenReturn(RoaringBitmap.bitmapOf(1, 2));
+
+        // when
+        List<Member> eligibleMembers = surveyService.getEligibleMembers(surveyId);
 
-        Member inactiveMember = new Member();
-        inactiveMember.setId(1L);
-        inactiveMember.setFullName("Bob Inactive");
-        inactiveMember.setActive(false);
+        // then
+        Assertions.assertTrue(eligibleMembers.isEmpty());
+    }
 
-        Map<Long, Member> allMembers = new ConcurrentHashMap<>();
-        allMembers.put(1L, inactiveMember);
+    /**
+     * Pages through eligible members in member id order, resuming from the cursor.
+     */
+    @Test
+    void testGetEligibleMembersPage_ResumesFromCursor() {
+        // given
+        Long surveyId = 1L;
 
-        when(memberRepository.getMembers()).thenReturn(allMembers);
-        when(participationRepository.findAll()).thenReturn(Collections.emptyList());
+        when(memberRepository.getActiveMemberIds()).thenReturn(RoaringBitmap.bitmapOf(1, 2, 3, 4, 5));
+        when(participationRepository.findAskedMemberIds(surveyId)).thenReturn(RoaringBitmap.bitmapOf(2));
+        for (long id = 1; id <= 5; id++) {
+            Member member = new Member();
+            member.setId(id);
+            lenient().when(memberRepository.findById(id)).thenReturn(Optional.of(member));
+        }
 
         // when
-        List<Member> eligibleMembers = surveyService.getEligibleMembers(surveyId);
+        CursorPage<Member> first = surveyService.getEligibleMembers(surveyId, null, 2);
+        CursorPage<Member> second = surveyService.getEligibleMembers(surveyId, first.getNextCursor(), 2);
 
         // then
-        Assertions.assertTrue(eligibleMembers.isEmpty());
+        Assertions.assertEquals(List.of(1L, 3L), first.getItems().stream().map(Member::getId).toList());
+        Assertions.assertEquals(List.of(4L, 5L), second.getItems().stream().map(Member::getId).toList());
+        Assertions.assertNull(second.getNextCursor());
+    }
+
+    /**
+     * Ends the paging on a full page when every active member after it was already asked.
+     */
+    @Test
+    void testGetEligibleMembersPage_OnlyAskedMembersLeft_NoNextCursor() {
+        // given
+        Long surveyId = 1L;
+
+        when(memberRepository.getActiveMemberIds()).thenReturn(RoaringBitmap.bitmapOf(1, 3, 70_000, 70_001));
+        when(participationRepository.findAskedMemberIds(surveyId)).thenReturn(RoaringBitmap.bitmapOf(70_000, 70_001));
+        for (long id : new long[]{1, 3}) {
+            Member member = new Member();
+            member.setId(id);
+            when(memberRepository.findById(id)).thenReturn(Optional.of(member));
+        }
+
+        // when
+        CursorPage<Member> page = surveyService.getEligibleMembers(surveyId, null, 2);
+
+        // then
+        Assertions.assertEquals(List.of(1L, 3L), page.getItems().stream().map(Member::getId).toList());
+        Assertions.assertNull(page.getNextCursor());
+    }
+
+    /**
+     * Rejects a page size outside of the allowed range.
+     */
+    @Test
+    void testGetEligibleMembersPage_InvalidLimit_ThrowsException() {
+        // when-then
+        Assertions.assertThrows(InvalidPageRequestException.class,
+                () -> surveyService.getEligibleMembers(1L, null, 0));
+    }
+
+    /**
+     * Streams eligible members lazily, looking members up only when the stream is consumed.
+     */
+    @Test
+    void testStreamEligibleMembers_LooksUpMembersOnConsumption() {
+        // given
+        Long surveyId = 1L;
+
+        Member member = new Member();
+        member.setId(2L);
+
+        when(memberRepository.getActiveMemberIds()).thenReturn(RoaringBitmap.bitmapOf(1, 2, 3));
+        when(participationRepository.findAskedMemberIds(surveyId)).thenReturn(RoaringBitmap.bitmapOf(1, 3));
+        when(memberRepository.findById(2L)).thenReturn(Optional.of(member));
+
+        // when
+        Stream<Member> members = surveyService.streamEligibleMembers(surveyId);
+
+        // then
+        verify(memberRepository, never()).findById(any());
+        Assertions.assertEquals(List.of(member), members.toList());
+    }
+
+    /**
+     * Streaming completed members of an unknown survey fails before a stream is returned.
+     */
+    @Test
+    void testStreamMembersCompleted_SurveyNotFound_ThrowsException() {
+        // given
+        Long surveyId = 99L;
+
+        when(surveyRepository.existsById(surveyId)).thenReturn(false);
+
+        // when-then
+        Assertions.assertThrows(SurveyNotFoundException.class, () -> surveyService.streamMembersCompleted(surveyId));
     }
 
     /**
@@ -307,33 +356,18 @@ class SurveyServiceImplTest {
     @Test
     void testGetStatistics_ReturnsSurveyStatistics() {
         // given
-        Long completedStatusId = 1L;
-        Long filteredStatusId = 2L;
-        Long rejectedStatusId = 3L;
-
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-        when(statusRepository.findIdByName("Filtered")).thenReturn(filteredStatusId);
-        when(statusRepository.findIdByName("Rejected")).thenReturn(rejectedStatusId);
-
-        Participation p1 = new Participation();
-        p1.setMemberId(1L);
-        p1.setSurveyId(1L);
-        p1.setStatus(completedStatusId);
-        p1.setLength(10);
-
-        Participation p2 = new Participation();
-        p2.setMemberId(2L);
-        p2.setSurveyId(1L);
-        p2.setStatus(completedStatusId);
-        p2.setLength(20);
-
-        Participation p3 = new Participation();
-        p3.setMemberId(3L);
-        p3.setSurveyId(1L);
-        p3.setStatus(filteredStatusId);
-        p3.setLength(15);
-
-        when(participationRepository.findAll()).thenReturn(Arrays.asList(p1, p2, p3));
+        byte completedStatus = CODES.getCompleted();
+        byte filteredStatus = CODES.getFiltered();
+        byte rejectedStatus = CODES.getRejected();
+
+        when(statusRepository.getCodes()).thenReturn(CODES);
+
+        SurveyAggregate survey = new SurveyAggregate(1L);
+        survey.add(completedStatus, 10);
+        survey.add(completedStatus, 20);
+        survey.add(filteredStatus, 15);
+
+        when(participationRepository.findSurveyAggregates()).thenReturn(List.of(survey));
         when(surveyRepository.getNameById(1L)).thenReturn("Survey Name");
 
         // when
@@ -356,27 +390,19 @@ class SurveyServiceImplTest {
     @Test
     void testGetStatistics_MultipleSurveys() {
         // given
-        Long completedStatusId = 1L;
-        Long filteredStatusId = 2L;
-        Long rejectedStatusId = 3L;
-
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-        when(statusRepository.findIdByName("Filtered")).thenReturn(filteredStatusId);
-        when(statusRepository.findIdByName("Rejected")).thenReturn(rejectedStatusId);
-
-        Participation p1 = new Participation();
-        p1.setMemberId(1L);
-        p1.setSurveyId(1L);
-        p1.setStatus(completedStatusId);
-        p1.setLength(10);
-
-        Participation p2 = new Participation();
-        p2.setMemberId(1L);
-        p2.setSurveyId(2L);
-        p2.setStatus(filteredStatusId);
-        p2.setLength(5);
-
-        when(participationRepository.findAll()).thenReturn(Arrays.asList(p1, p2));
+        byte completedStatus = CODES.getCompleted();
+        byte filteredStatus = CODES.getFiltered();
+        byte rejectedStatus = CODES.getRejected();
+
+        when(statusRepository.getCodes()).thenReturn(CODES);
+
+        SurveyAggregate survey1 = new SurveyAggregate(1L);
+        survey1.add(completedStatus, 10);
+
+        SurveyAggregate survey2 = new SurveyAggregate(2L);
+        survey2.add(filteredStatus, 5);
+
+        when(participationRepository.findSurveyAggregates()).thenReturn(List.of(survey1, survey2));
         when(surveyRepository.getNameById(1L)).thenReturn("Survey 1");
         when(surveyRepository.getNameById(2L)).thenReturn("Survey 2");
 
@@ -393,14 +419,12 @@ class SurveyServiceImplTest {
     @Test
     void testGetStatistics_NoParticipation_ReturnsEmptyList() {
         // given
-        Long completedStatusId = 1L;
-        Long filteredStatusId = 2L;
-        Long rejectedStatusId = 3L;
+        byte completedStatus = CODES.getCompleted();
+        byte filteredStatus = CODES.getFiltered();
+        byte rejectedStatus = CODES.getRejected();
 
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-        when(statusRepository.findIdByName("Filtered")).thenReturn(filteredStatusId);
-        when(statusRepository.findIdByName("Rejected")).thenReturn(rejectedStatusId);
-        when(participationRepository.findAll()).thenReturn(Collections.emptyList());
+        when(statusRepository.getCodes()).thenReturn(CODES);
+        when(participationRepository.findSurveyAggregates()).thenReturn(List.of());
 
         // when
         List<SurveyStatistic> statistics = surveyService.getStatistics();
@@ -415,27 +439,17 @@ class SurveyServiceImplTest {
     @Test
     void testGetStatistics_NullLengthIgnored() {
         // given
-        Long completedStatusId = 1L;
-        Long filteredStatusId = 2L;
-        Long rejectedStatusId = 3L;
-
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-        when(statusRepository.findIdByName("Filtered")).thenReturn(filteredStatusId);
-        when(statusRepository.findIdByName("Rejected")).thenReturn(rejectedStatusId);
-
-        Participation p1 = new Participation();
-        p1.setMemberId(1L);
-        p1.setSurveyId(1L);
-        p1.setStatus(completedStatusId);
-        p1.setLength(10);
-
-        Participation p2 = new Participation();
-        p2.setMemberId(2L);
-        p2.setSurveyId(1L);
-        p2.setStatus(completedStatusId);
-        p2.setLength(null);
-
-        when(participationRepository.findAll()).thenReturn(Arrays.asList(p1, p2));
+        byte completedStatus = CODES.getCompleted();
+        byte filteredStatus = CODES.getFiltered();
+        byte rejectedStatus = CODES.getRejected();
+
+        when(statusRepository.getCodes()).thenReturn(CODES);
+
+        SurveyAggregate survey = new SurveyAggregate(1L);
+        survey.add(completedStatus, 10);
+        survey.add(completedStatus, NO_LENGTH);
+
+        when(participationRepository.findSurveyAggregates()).thenReturn(List.of(survey));
         when(surveyRepository.getNameById(1L)).thenReturn("Survey Name");
 
         // when
@@ -445,6 +459,37 @@ class SurveyServiceImplTest {
         Assertions.assertEquals(1, statistics.size());
         SurveyStatistic stat = statistics.getFirst();
         Assertions.assertEquals(10.0, stat.getAverageLength());
+        Assertions.assertEquals(10.0, stat.getP50Length(), 10.0 * LengthSketch.RELATIVE_ACCURACY);
+        Assertions.assertEquals(10.0, stat.getP99Length(), 10.0 * LengthSketch.RELATIVE_ACCURACY);
+    }
+
+    /**
+     * Retrieves survey statistics for a given survey.
+     */
+    @Test
+    void testGetStatistics_LengthPercentilesWithinRelativeAccuracy() {
+        // given
+        byte completedStatus = CODES.getCompleted();
+
+        when(statusRepository.getCodes()).thenReturn(CODES);
+
+        SurveyAggregate survey = new SurveyAggregate(1L);
+        for (int length = 100; length >= 1; length--) {
+            survey.add(completedStatus, length);
+        }
+
+        when(participationRepository.findSurveyAggregates()).thenReturn(List.of(survey));
+        when(surveyRepository.getNameById(1L)).thenReturn("Survey Name");
+
+        // when
+        List<SurveyStatistic> statistics = surveyService.getStatistics();
+
+        // then
+        SurveyStatistic stat = statistics.getFirst();
+        Assertions.assertEquals(50.5, stat.getAverageLength());
+        Assertions.assertEquals(50.0, stat.getP50Length(), 50.0 * LengthSketch.RELATIVE_ACCURACY);
+        Assertions.assertEquals(90.0, stat.getP90Length(), 90.0 * LengthSketch.RELATIVE_ACCURACY);
+        Assertions.assertEquals(99.0, stat.getP99Length(), 99.0 * LengthSketch.RELATIVE_ACCURACY);
     }
 
     /**
@@ -453,21 +498,16 @@ class SurveyServiceImplTest {
     @Test
     void testGetStatistics_AllNullLengths_AverageIsZero() {
         // given
-        Long completedStatusId = 1L;
-        Long filteredStatusId = 2L;
-        Long rejectedStatusId = 3L;
+        byte completedStatus = CODES.getCompleted();
+        byte filteredStatus = CODES.getFiltered();
+        byte rejectedStatus = CODES.getRejected();
 
-        when(statusRepository.findIdByName(COMPLETED_STATUS)).thenReturn(completedStatusId);
-        when(statusRepository.findIdByName("Filtered")).thenReturn(filteredStatusId);
-        when(statusRepository.findIdByName("Rejected")).thenReturn(rejectedStatusId);
+        when(statusRepository.getCodes()).thenReturn(CODES);
 
-        Participation p1 = new Participation();
-        p1.setMemberId(1L);
-        p1.setSurveyId(1L);
-        p1.setStatus(completedStatusId);
-        p1.setLength(null);
+        SurveyAggregate survey = new SurveyAggregate(1L);
+        survey.add(completedStatus, NO_LENGTH);
 
-        when(participationRepository.findAll()).thenReturn(Collections.singletonList(p1));
+        when(participationRepository.findSurveyAggregates()).thenReturn(List.of(survey));
         when(surveyRepository.getNameById(1L)).thenReturn("Survey Name");
 
         // when
@@ -477,5 +517,6 @@ class SurveyServiceImplTest {
         Assertions.assertEquals(1, statistics.size());
         SurveyStatistic stat = statistics.getFirst();
         Assertions.assertEquals(0.0, stat.getAverageLength());
+        Assertions.assertEquals(0.0, stat.getP50Length());
     }
 }
@@ -0,0 +1,149 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.LengthSketch;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.SurveyAggregate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+class DatasetSnapshotTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private Dataset dataset;
+
+    private List<DatasetSnapshot.Source> sources;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path members = this.write("Members.csv", "Member Id,Full name,E-mail address,Is Active\n"
+                + "1,Jane Doe,jane@doe.com,1\n2,\"Doe, John\",john@doe.com,0\n3,Józsi Kovács,,1\n");
+        Path statuses = this.write("Statuses.csv", "Status Id,Name\n1,Not asked\n2,Rejected\n3,Filtered\n4,Completed\n");
+        Path surveys = this.write("Surveys.csv", "Survey Id,Name,Expected completes,Completion points,Filtered points\n"
+                + "1,Survey 01,30,5,2\n2,Survey 02,,7,\n");
+        Path participation = this.write("Participation.csv", "Member Id,Survey Id,Status,Length\n"
+                + "1,1,4,10\n2,1,3,\n3,1,1,\n1,2,4,20\n3,2,2,5\n");
+
+        StatusStore statusStore = StatusStore.read(statuses);
+        SurveyStore surveyStore = SurveyStore.read(surveys);
+        ParticipationShards participationShards = ParticipationShards.read(participation, statusStore, 1, 1);
+        participationShards.buildDerivedIndexes(statusStore, surveyStore);
+        dataset = new Dataset(1L, MemberStore.read(members), statusStore, surveyStore, participationShards, null);
+        sources = new ArrayList<>();
+        for (Path file : List.of(members, statuses, surveys, participation)) {
+            sources.add(DatasetSnapshot.Source.of(file));
+        }
+    }
+
+    @Test
+    void testRead_WrittenSnapshot_RestoresStoresAndIndexes() throws IOException {
+        // given
+        Path file = tempDir.resolve("dataset.snapshot");
+        DatasetSnapshot.write(dataset, sources, file);
+
+        // when
+        Optional<DatasetSnapshot> snapshot = DatasetSnapshot.read(file, sources);
+
+        // then
+        Assertions.assertTrue(snapshot.isPresent());
+        MemberStore members = snapshot.get().getMembers();
+        Assertions.assertEquals(3, members.size());
+        Assertions.assertEquals("Doe, John", members.findById(2L).orElseThrow().getFullName());
+        Assertions.assertEquals("Józsi Kovács", members.findById(3L).orElseThrow().getFullName());
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(1, 3), members.getActiveMemberIds());
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(1, 2, 3), members.getMemberIds());
+        Assertions.assertEquals(3, snapshot.get().getStatuses().getCodes().getCompleted());
+        Assertions.assertEquals(3, snapshot.get().getStatuses().codeOf(4L));
+        Assertions.assertNull(snapshot.get().getSurveys().findById(2L).orElseThrow().getExpectedCompletes());
+        Assertions.assertEquals(7, snapshot.get().getSurveys().getPoints(2L, true));
+
+        ParticipationShards participation = snapshot.get().getParticipation();
+        Assertions.assertEquals(5, participation.size());
+        ParticipationRows memberRows = participation.findByMemberId(3L);
+        Assertions.assertEquals(2, memberRows.size());
+        Assertions.assertFalse(memberRows.hasLength(0));
+        Assertions.assertEquals(5, memberRows.length(1));
+        Assertions.assertEquals(1L, participation.findBySurveyIdAndStatus(1L, (byte) 3).memberId(0));
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(1, 2), participation.findAskedMemberIds(1L));
+        Assertions.assertEquals(12, participation.findPointsByMemberId(1L));
+        Assertions.assertEquals(2, participation.findPointsByMemberId(2L));
+        SurveyAggregate aggregate = participation.findSurveyAggregates().iterator().next();
+        Assertions.assertEquals(1L, aggregate.getSurveyId());
+        Assertions.assertEquals(1L, aggregate.count((byte) 2));
+        Assertions.assertEquals(10.0, aggregate.averageLength());
+        LengthSketch lengths = dataset.getParticipation().findSurveyAggregates().iterator().next().getLengths();
+        Assertions.assertEquals(lengths.getOffset(), aggregate.getLengths().getOffset());
+        Assertions.assertArrayEquals(lengths.getCounts(), aggregate.getLengths().getCounts());
+        Assertions.assertEquals(lengths.quantile(0.5), aggregate.lengthQuantile(0.5));
+    }
+
+    @Test
+    void testRead_SourceChanged_ReturnsEmpty() throws IOException {
+        // given
+        Path file = tempDir.resolve("dataset.snapshot");
+        DatasetSnapshot.write(dataset, sources, file);
+        List<DatasetSnapshot.Source> changed = new ArrayList<>(sources);
+        DatasetSnapshot.Source participation = changed.get(3);
+        changed.set(3, new DatasetSnapshot.Source(participation.fileName(), participation.size() + 1,
+                participation.lastModifiedMillis()));
+
+        // when-then
+        Assertions.assertTrue(DatasetSnapshot.read(file, changed).isEmpty());
+    }
+
+    @Test
+    void testRead_MissingSnapshot_ReturnsEmpty() throws IOException {
+        // when-then
+        Assertions.assertTrue(DatasetSnapshot.read(tempDir.resolve("missing.snapshot"), sources).isEmpty());
+    }
+
+    @Test
+    void testRead_NotASnapshot_ThrowsException() throws IOException {
+        // given
+        Path file = this.write("dataset.snapshot", "Member Id,Survey Id,Status,Length\n");
+
+        // when-then
+        Assertions.assertThrows(IOException.class, () -> DatasetSnapshot.read(file, sources));
+    }
+
+    @Test
+    void testReadInts_ColumnCrossingMappedWindows() throws IOException {
+        // given
+        Path file = tempDir.resolve("columns.bin");
+        try (SnapshotWriter out = new SnapshotWriter(file)) {
+            out.writeString("header");
+            out.writeInts(1000, i -> i * 3);
+            out.writeLong(42L);
+        }
+
+        // when-then
+        try (SnapshotReader in = SnapshotReader.open(file, 64)) {
+            Assertions.assertEquals("header", in.readString());
+            int[] values = in.readInts(1000);
+            for (int i = 0; i < values.length; i++) {
+                Assertions.assertEquals(i * 3, values[i]);
+            }
+            Assertions.assertEquals(42L, in.readLong());
+            Assertions.assertTrue(in.isAtEnd());
+        }
+    }
+
+    private Path write(String fileName, String content) throws IOException {
+        Path file = tempDir.resolve(fileName);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+}
@@ -0,0 +1,71 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.Member;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MemberTableTest {
+
+    @Test
+    void testSeal_UnsortedIds_LookupsFindEveryMember() {
+        // given
+        MemberTable table = new MemberTable();
+        table.add(30L, "Kovács Józsi", "jozsi@example.hu", true);
+        table.add(10L, "Jane Doe", "jane@doe.com", false);
+        table.add(20L, "", "", true);
+
+        // when
+        table.seal();
+
+        // then
+        Assertions.assertEquals(3, table.size());
+        Assertions.assertArrayEquals(new int[]{10, 20, 30}, table.ids());
+        Member member = table.get(table.indexOf(30L));
+        Assertions.assertEquals(30L, member.getId());
+        Assertions.assertEquals("Kovács Józsi", member.getFullName());
+        Assertions.assertEquals("jozsi@example.hu", member.getEmail());
+        Assertions.assertTrue(member.getActive());
+        Assertions.assertFalse(table.get(table.indexOf(10L)).getActive());
+        Assertions.assertEquals("", table.get(table.indexOf(20L)).getFullName());
+        Assertions.assertEquals(-1, table.indexOf(15L));
+        Assertions.assertEquals(-1, table.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testSeal_RepeatedId_LastRowWins() {
+        // given
+        MemberTable table = new MemberTable();
+        table.add(1L, "First", "first@example.com", true);
+        table.add(2L, "Other", "other@example.com", true);
+        table.add(1L, "Second", "second@example.com", false);
+
+        // when
+        table.seal();
+
+        // then
+        Assertions.assertEquals(2, table.size());
+        Member member = table.get(table.indexOf(1L));
+        Assertions.assertEquals("Second", member.getFullName());
+        Assertions.assertEquals("second@example.com", member.getEmail());
+        Assertions.assertFalse(member.getActive());
+        Assertions.assertEquals("Other", table.get(table.indexOf(2L)).getFullName());
+    }
+
+    @Test
+    void testAdd_BeyondInitialCapacity_KeepsAllMembers() {
+        // given
+        MemberTable table = new MemberTable();
+        for (int id = 1; id <= 5000; id++) {
+            table.add(id, "Member " + id, "member" + id + "@example.com", id % 2 == 0);
+        }
+
+        // when
+        table.seal();
+
+        // then
+        Assertions.assertEquals(5000, table.size());
+        Assertions.assertEquals("member4999@example.com", table.get(table.indexOf(4999L)).getEmail());
+        Assertions.assertTrue(table.isActive(table.indexOf(5000L)));
+    }
+
+}
@@ -0,0 +1,263 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.SurveyAggregate;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class ParticipationShardsTest {
+
+    private static final String HEADER = "Member Id,Survey Id,Status,Length\n";
+    private static final int MEMBERS = 12;
+    private static final int SURVEYS = 3;
+    private static final int SHARDS = 3;
+
+    @TempDir
+    private Path tempDir;
+
+    private StatusStore statuses;
+
+    private SurveyStore surveys;
+
+    private String loaded;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        statuses = StatusStore.read(this.write("Statuses.csv",
+                "Status Id,Name\n1,Not asked\n2,Rejected\n3,Filtered\n4,Completed\n"));
+        surveys = SurveyStore.read(this.write("Surveys.csv",
+                "Survey Id,Name,Expected completes,Completion points,Filtered points\n"
+                        + "1,Survey 01,30,5,2\n2,Survey 02,,7,\n3,Survey 03,10,3,1\n"));
+        StringBuilder rows = new StringBuilder();
+        for (int member = 1; member <= MEMBERS; member++) {
+            for (int survey = 1; survey <= SURVEYS; survey++) {
+                // survey 2 has no filtered points, so its rows are never filtered
+                int status = survey == 2 && (member + survey) % 4 == 2 ? 4 : (member + survey) % 4 + 1;
+                rows.append(member).append(',').append(survey).append(',').append(status).append(',')
+                        .append(member * survey % 7 == 0 ? "" : member + survey).append('\n');
+            }
+        }
+        loaded = rows.toString();
+    }
+
+    @Test
+    void testRead_SplitsMembersAcrossShards() throws IOException {
+        // when
+        ParticipationShards shards = this.read(loaded, SHARDS);
+
+        // then
+        Assertions.assertEquals(SHARDS, shards.count());
+        Assertions.assertEquals(MEMBERS * SURVEYS, shards.size());
+        for (long member = 1; member <= MEMBERS; member++) {
+            Assertions.assertEquals(SURVEYS, shards.countByMemberId(member));
+        }
+    }
+
+    @Test
+    void testRead_SameAnswersAsOneShard() throws IOException {
+        // when
+        ParticipationShards expected = this.read(loaded, 1);
+        ParticipationShards actual = this.read(loaded, SHARDS);
+
+        // then
+        this.assertSameContent(expected, actual);
+    }
+
+    @Test
+    void testFindBySurveyIdAndStatus_PagesReturnEveryRowOnce() throws IOException {
+        // given
+        ParticipationShards shards = this.read(loaded, SHARDS);
+
+        for (long survey = 1; survey <= SURVEYS; survey++) {
+            for (byte status = 0; status < statuses.size(); status++) {
+                // when
+                List<String> paged = new ArrayList<>();
+                int scanned = 0;
+                long from = 0;
+                do {
+                    ParticipationPage page = shards.findBySurveyIdAndStatus(survey, status, from, 2);
+                    paged.addAll(this.describe(page.getRows()));
+                    scanned += page.getScannedRows();
+                    from = page.getNextPosition();
+                } while (from != ParticipationPage.END);
+
+                // then
+                Assertions.assertEquals(this.describe(shards.findBySurveyIdAndStatus(survey, status)), paged);
+                Assertions.assertEquals(shards.countBySurveyId(survey), scanned);
+            }
+        }
+    }
+
+    @Test
+    void testFindBySurveyIdAndStatus_PositionPastIntRange_ReturnsLastPage() throws IOException {
+        // given
+        ParticipationShards shards = this.read(loaded, SHARDS);
+        long from = (long) Integer.MAX_VALUE * SHARDS + SHARDS - 1;
+
+        // when
+        ParticipationPage page = shards.findBySurveyIdAndStatus(1L, (byte) 3, from, 2);
+
+        // then
+        Assertions.assertEquals(0, page.getRows().size());
+        Assertions.assertEquals(ParticipationPage.END, page.getNextPosition());
+    }
+
+    @Test
+    void testAppend_SameAsReadingLastRowOfEachPair() throws IOException {
+        // given
+        ParticipationShards shards = this.read(loaded, SHARDS);
+
+        // when
+        ParticipationShards appended = shards
+                .append(List.of(this.participation(2L, 1L, 4L, 15), this.participation(7L, 3L, 3L, null)),
+                        statuses, surveys)
+                .append(List.of(this.participation(11L, 3L, 4L, 8), this.participation(2L, 2L, 2L, 12)),
+                        statuses, surveys);
+
+        // then
+        ParticipationShards expected = this.read(
+                lastRowOfEachPair(loaded + "2,1,4,15\n7,3,3,\n11,3,4,8\n2,2,2,12\n"), SHARDS);
+        this.assertSameContent(expected, appended);
+        for (long survey = 1; survey <= SURVEYS; survey++) {
+            Assertions.assertEquals(this.describe(expected.findBySurveyId(survey)),
+                    this.describe(appended.findBySurveyId(survey)));
+        }
+        Assertions.assertEquals(MEMBERS * SURVEYS, shards.size());
+        Assertions.assertEquals(MEMBERS * SURVEYS, appended.size());
+    }
+
+    @Test
+    void testAppend_UnknownStatus_LeavesShardsUnchanged() throws IOException {
+        // given
+        ParticipationShards shards = this.read(loaded, SHARDS);
+
+        // when-then
+        InvalidParticipationException exception = Assertions.assertThrows(InvalidParticipationException.class,
+                () -> shards.append(List.of(this.participation(1L, 1L, 4L, null), this.participation(2L, 1L, 9L, null)),
+                        statuses, surveys));
+        Assertions.assertEquals("Unknown status id 9", exception.getMessage());
+        this.assertSameContent(this.read(loaded, SHARDS),
+                shards.append(List.of(), statuses, surveys));
+    }
+
+    /**
+     * Compares the answers of two shardings of the same rows. Survey-keyed rows are gathered in shard order, so
+     * they are compared in sorted order.
+     */
+    private void assertSameContent(ParticipationShards expected, ParticipationShards actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        Assertions.assertEquals(this.sorted(expected.findAll()), this.sorted(actual.findAll()));
+        for (long id = 1; id <= MEMBERS; id++) {
+            Assertions.assertEquals(this.describe(expected.findByMemberId(id)), this.describe(actual.findByMemberId(id)));
+            Assertions.assertEquals(expected.countByMemberId(id), actual.countByMemberId(id));
+            Assertions.assertEquals(expected.findPointsByMemberId(id), actual.findPointsByMemberId(id));
+            for (byte status = 0; status < statuses.size(); status++) {
+                Assertions.assertEquals(this.describe(expected.findByMemberIdAndStatus(id, status)),
+                        this.describe(actual.findByMemberIdAndStatus(id, status)));
+                Assertions.assertEquals(this.pages(expected, id, status), this.pages(actual, id, status));
+            }
+        }
+        for (long id = 1; id <= SURVEYS; id++) {
+            Assertions.assertEquals(this.sorted(expected.findBySurveyId(id)), this.sorted(actual.findBySurveyId(id)));
+            Assertions.assertEquals(expected.countBySurveyId(id), actual.countBySurveyId(id));
+            Assertions.assertEquals(expected.findAskedMemberIds(id), actual.findAskedMemberIds(id));
+            for (byte status = 0; status < statuses.size(); status++) {
+                Assertions.assertEquals(this.sorted(expected.findBySurveyIdAndStatus(id, status)),
+                        this.sorted(actual.findBySurveyIdAndStatus(id, status)));
+            }
+        }
+        Assertions.assertEquals(this.sorted(expected.findSurveyAggregates()),
+                this.sorted(actual.findSurveyAggregates()));
+    }
+
+    /**
+     * Pages through the rows of a member with a status. Replaced rows keep their positions, so only the rows of the
+     * pages are compared, not their positions.
+     */
+    private List<List<String>> pages(ParticipationShards shards, long memberId, byte status) {
+        List<List<String>> pages = new ArrayList<>();
+        long from = 0;
+        do {
+            ParticipationPage page = shards.findByMemberIdAndStatus(memberId, status, from, 1);
+            if (page.getRows().size() > 0) {
+                pages.add(this.describe(page.getRows()));
+            }
+            from = page.getNextPosition();
+        } while (from != ParticipationPage.END);
+        return pages;
+    }
+
+    /**
+     * Keeps the last row of each member and survey, after the rows of the pairs that have only one.
+     */
+    private static String lastRowOfEachPair(String rows) {
+        Map<String, String> lastRows = new LinkedHashMap<>();
+        for (String row : rows.split("\n")) {
+            String pair = row.substring(0, row.indexOf(',', row.indexOf(',') + 1));
+            lastRows.remove(pair);
+            lastRows.put(pair, row);
+        }
+        return String.join("\n", lastRows.values()) + "\n";
+    }
+
+    private List<String> describe(ParticipationRows rows) {
+        List<String> described = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            described.add(rows.memberId(i) + "," + rows.surveyId(i) + "," + rows.status(i) + ","
+                    + (rows.hasLength(i) ? rows.length(i) : ""));
+        }
+        return described;
+    }
+
+    private List<String> sorted(ParticipationRows rows) {
+        return this.describe(rows).stream().sorted().toList();
+    }
+
+    private List<String> sorted(Iterable<SurveyAggregate> aggregates) {
+        List<String> described = new ArrayList<>();
+        for (SurveyAggregate aggregate : aggregates) {
+            described.add(aggregate.getSurveyId() + "," + Arrays.toString(aggregate.getCountsByStatus()) + ","
+                    + aggregate.averageLength() + "," + aggregate.lengthQuantile(0.5) + ","
+                    + aggregate.lengthQuantile(0.9));
+        }
+        return described.stream().sorted().toList();
+    }
+
+    private Participation participation(Long memberId, Long surveyId, Long status, Integer length) {
+        Participation participation = new Participation();
+        participation.setMemberId(memberId);
+        participation.setSurveyId(surveyId);
+        participation.setStatus(status);
+        participation.setLength(length);
+        return participation;
+    }
+
+    private ParticipationShards read(String rows, int count) throws IOException {
+        ParticipationShards shards = ParticipationShards.read(
+                this.write("Participation.csv", HEADER + rows), statuses, 1, count);
+        shards.buildDerivedIndexes(statuses, surveys);
+        return shards;
+    }
+
+    private Path write(String fileName, String content) throws IOException {
+        Path file = tempDir.resolve(fileName);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+}
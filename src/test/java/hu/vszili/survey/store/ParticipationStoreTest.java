@@ -0,0 +1,277 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.Participation;
+import hu.vszili.survey.data.ParticipationPage;
+import hu.vszili.survey.data.ParticipationRows;
+import hu.vszili.survey.data.SurveyAggregate;
+import hu.vszili.survey.exception.CsvReadingException;
+import hu.vszili.survey.exception.InvalidParticipationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class ParticipationStoreTest {
+
+    private static final String HEADER = "Member Id,Survey Id,Status,Length\n";
+    private static final String LOADED = "1,1,4,10\n2,1,3,\n3,1,1,\n1,2,4,20\n3,2,2,5\n";
+
+    @TempDir
+    private Path tempDir;
+
+    private StatusStore statuses;
+
+    private SurveyStore surveys;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        statuses = StatusStore.read(this.write("Statuses.csv",
+                "Status Id,Name\n1,Not asked\n2,Rejected\n3,Filtered\n4,Completed\n"));
+        surveys = SurveyStore.read(this.write("Surveys.csv",
+                "Survey Id,Name,Expected completes,Completion points,Filtered points\n"
+                        + "1,Survey 01,30,5,2\n2,Survey 02,,7,\n3,Survey 03,10,3,1\n"));
+    }
+
+    @Test
+    void testAppend_SameAsLoadingLastRowOfEachPair() throws IOException {
+        // given
+        ParticipationStore store = this.read(LOADED);
+
+        // when
+        ParticipationStore appended = store
+                .append(List.of(this.participation(2L, 1L, 4L, 15), this.participation(3L, 3L, 3L, null)),
+                        statuses, surveys)
+                .append(List.of(this.participation(1L, 3L, 4L, 8), this.participation(3L, 1L, 4L, 12)),
+                        statuses, surveys);
+
+        // then
+        this.assertSameContent(this.read(lastRowOfEachPair(LOADED + "2,1,4,15\n3,3,3,\n1,3,4,8\n3,1,4,12\n")), appended);
+        Assertions.assertEquals(7, appended.size());
+    }
+
+    @Test
+    void testAppend_SameMemberAndSurvey_ReplacesStatus() throws IOException {
+        // given
+        ParticipationStore store = this.read(LOADED);
+
+        // when
+        ParticipationStore notAsked = store.append(List.of(this.participation(1L, 1L, 1L, null)), statuses, surveys);
+        ParticipationStore completed = notAsked.append(
+                List.of(this.participation(3L, 1L, 2L, null), this.participation(3L, 1L, 4L, 6)), statuses, surveys);
+
+        // then
+        Assertions.assertEquals(5, notAsked.size());
+        Assertions.assertEquals(3, notAsked.countBySurveyId(1L));
+        Assertions.assertEquals(7, notAsked.findPointsByMemberId(1L));
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(2), notAsked.findAskedMemberIds(1L));
+        Assertions.assertEquals(0, notAsked.findBySurveyIdAndStatus(1L, (byte) 3).size());
+        Assertions.assertEquals(List.of("1,1,0,"), this.describe(notAsked.findByMemberIdAndStatus(1L, (byte) 0)));
+        Assertions.assertEquals(5, completed.size());
+        Assertions.assertEquals(5, completed.findPointsByMemberId(3L));
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(2, 3), completed.findAskedMemberIds(1L));
+        Assertions.assertEquals(List.of("3,1,3,6"), this.describe(completed.findBySurveyIdAndStatus(1L, (byte) 3)));
+        Assertions.assertEquals(List.of(1L, 0L, 1L, 1L), this.countsBySurvey(completed).get(0));
+        this.assertSameContent(this.read(LOADED), store);
+    }
+
+    @Test
+    void testAppend_PreviousStoreUnchanged() throws IOException {
+        // given
+        ParticipationStore store = this.read(LOADED);
+        ParticipationStore first = store.append(List.of(this.participation(2L, 1L, 4L, 15)), statuses, surveys);
+
+        // when
+        first.append(List.of(this.participation(2L, 2L, 4L, null)), statuses, surveys);
+
+        // then
+        this.assertSameContent(this.read(LOADED), store);
+        this.assertSameContent(this.read(lastRowOfEachPair(LOADED + "2,1,4,15\n")), first);
+    }
+
+    @Test
+    void testAppend_CopiesOnlyTouchedSurveys() throws IOException {
+        // given
+        ParticipationStore store = this.read(LOADED);
+
+        // when
+        ParticipationStore appended = store.append(List.of(this.participation(2L, 1L, 4L, 15)), statuses, surveys);
+
+        // then
+        Assertions.assertSame(store.findAskedMemberIds(2L), appended.findAskedMemberIds(2L));
+        Assertions.assertNotSame(store.findAskedMemberIds(1L), appended.findAskedMemberIds(1L));
+        Assertions.assertSame(appended.findAskedMemberIds(1L), appended.findAskedMemberIds(1L));
+        List<SurveyAggregate> loaded = new ArrayList<>(store.findSurveyAggregates());
+        List<SurveyAggregate> aggregates = new ArrayList<>(appended.findSurveyAggregates());
+        Assertions.assertNotSame(loaded.get(0), aggregates.get(0));
+        Assertions.assertSame(loaded.get(1), aggregates.get(1));
+    }
+
+    @Test
+    void testAppend_PastCompactionThreshold_SameAsLoadingLastRowOfEachPair() throws IOException {
+        // given
+        ParticipationStore store = this.read(LOADED);
+        List<Participation> participations = new ArrayList<>();
+        StringBuilder csv = new StringBuilder(LOADED);
+        for (int i = 0; i <= ParticipationStore.MIN_COMPACT_ROWS; i++) {
+            long memberId = i % 3 + 1;
+            long surveyId = i % 2 * 2 + 1;
+            long status = i % 4 + 1;
+            participations.add(this.participation(memberId, surveyId, status, i % 5));
+            csv.append(memberId).append(',').append(surveyId).append(',').append(status).append(',').append(i % 5)
+                    .append('\n');
+        }
+
+        // when
+        ParticipationStore appended = store.append(participations, statuses, surveys);
+
+        // then
+        this.assertSameContent(this.read(lastRowOfEachPair(csv.toString())), appended);
+    }
+
+    @Test
+    void testAppend_UnknownStatus_ThrowsException() throws IOException {
+        // given
+        ParticipationStore store = this.read(LOADED);
+
+        // when-then
+        InvalidParticipationException exception = Assertions.assertThrows(InvalidParticipationException.class,
+                () -> store.append(List.of(this.participation(1L, 1L, 9L, null)), statuses, surveys));
+        Assertions.assertEquals("Unknown status id 9", exception.getMessage());
+    }
+
+    @Test
+    void testRead_MemberIdOutOfIntRange_ThrowsCsvReadingException() throws IOException {
+        // given
+        Path file = this.write("Participation.csv", HEADER + LOADED + "3000000000,1,4,10\n");
+
+        // when-then
+        CsvReadingException exception = Assertions.assertThrows(CsvReadingException.class,
+                () -> ParticipationStore.read(file, statuses, 1));
+        Assertions.assertEquals("Participation.csv line 7: '3000000000' in column 'Member Id' is not a valid int",
+                exception.getMessage());
+    }
+
+    @Test
+    void testRead_NegativeLength_ThrowsCsvReadingException() throws IOException {
+        // given
+        Path file = this.write("Participation.csv", HEADER + LOADED + "2,2,4,-7\n");
+
+        // when-then
+        CsvReadingException exception = Assertions.assertThrows(CsvReadingException.class,
+                () -> ParticipationStore.read(file, statuses, 1));
+        Assertions.assertEquals("Participation.csv line 7: '-7' in column 'Length' is not a valid non-negative int",
+                exception.getMessage());
+    }
+
+    private void assertSameContent(ParticipationStore expected, ParticipationStore actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        Assertions.assertEquals(this.describe(expected.findAll()), this.describe(actual.findAll()));
+        for (long id = 1; id <= 3; id++) {
+            Assertions.assertEquals(this.describe(expected.findByMemberId(id)), this.describe(actual.findByMemberId(id)));
+            Assertions.assertEquals(this.describe(expected.findBySurveyId(id)), this.describe(actual.findBySurveyId(id)));
+            Assertions.assertEquals(expected.countByMemberId(id), actual.countByMemberId(id));
+            Assertions.assertEquals(expected.countBySurveyId(id), actual.countBySurveyId(id));
+            for (byte status = 0; status < statuses.size(); status++) {
+                Assertions.assertEquals(this.describe(expected.findByMemberIdAndStatus(id, status)),
+                        this.describe(actual.findByMemberIdAndStatus(id, status)));
+                Assertions.assertEquals(this.describe(expected.findBySurveyIdAndStatus(id, status)),
+                        this.describe(actual.findBySurveyIdAndStatus(id, status)));
+                Assertions.assertEquals(this.pages(expected, id, status), this.pages(actual, id, status));
+            }
+            Assertions.assertEquals(expected.findAskedMemberIds(id), actual.findAskedMemberIds(id));
+            Assertions.assertEquals(expected.findPointsByMemberId(id), actual.findPointsByMemberId(id));
+        }
+        Assertions.assertEquals(this.describe(expected.findSurveyAggregates()),
+                this.describe(actual.findSurveyAggregates()));
+    }
+
+    /**
+     * Pages through the rows of a survey with a status. Replaced rows keep their positions, so only the rows of the
+     * pages are compared, not their positions.
+     */
+    private List<List<String>> pages(ParticipationStore store, long surveyId, byte status) {
+        List<List<String>> pages = new ArrayList<>();
+        long from = 0;
+        do {
+            ParticipationPage page = store.findBySurveyIdAndStatus(surveyId, status, from, 2);
+            if (page.getRows().size() > 0) {
+                pages.add(this.describe(page.getRows()));
+            }
+            from = page.getNextPosition();
+        } while (from != ParticipationPage.END);
+        return pages;
+    }
+
+    /**
+     * Keeps the last row of each member and survey, after the rows of the pairs that have only one.
+     */
+    private static String lastRowOfEachPair(String rows) {
+        Map<String, String> lastRows = new LinkedHashMap<>();
+        for (String row : rows.split("\n")) {
+            String pair = row.substring(0, row.indexOf(',', row.indexOf(',') + 1));
+            lastRows.remove(pair);
+            lastRows.put(pair, row);
+        }
+        return String.join("\n", lastRows.values()) + "\n";
+    }
+
+    private List<List<Long>> countsBySurvey(ParticipationStore store) {
+        List<List<Long>> counts = new ArrayList<>();
+        for (SurveyAggregate aggregate : store.findSurveyAggregates()) {
+            counts.add(Arrays.stream(aggregate.getCountsByStatus(), 0, statuses.size()).boxed().toList());
+        }
+        return counts;
+    }
+
+    private List<String> describe(ParticipationRows rows) {
+        List<String> described = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            described.add(rows.memberId(i) + "," + rows.surveyId(i) + "," + rows.status(i) + ","
+                    + (rows.hasLength(i) ? rows.length(i) : ""));
+        }
+        return described;
+    }
+
+    private List<String> describe(Iterable<SurveyAggregate> aggregates) {
+        List<String> described = new ArrayList<>();
+        for (SurveyAggregate aggregate : aggregates) {
+            described.add(aggregate.getSurveyId() + "," + Arrays.toString(aggregate.getCountsByStatus()) + ","
+                    + aggregate.averageLength() + "," + aggregate.lengthQuantile(0.5) + ","
+                    + aggregate.lengthQuantile(0.9));
+        }
+        return described;
+    }
+
+    private Participation participation(Long memberId, Long surveyId, Long status, Integer length) {
+        Participation participation = new Participation();
+        participation.setMemberId(memberId);
+        participation.setSurveyId(surveyId);
+        participation.setStatus(status);
+        participation.setLength(length);
+        return participation;
+    }
+
+    private ParticipationStore read(String rows) throws IOException {
+        ParticipationStore store = ParticipationStore.read(this.write("Participation.csv", HEADER + rows), statuses, 1);
+        store.buildDerivedIndexes(statuses, surveys);
+        return store;
+    }
+
+    private Path write(String fileName, String content) throws IOException {
+        Path file = tempDir.resolve(fileName);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+}
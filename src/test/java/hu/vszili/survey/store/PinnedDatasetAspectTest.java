@@ -0,0 +1,84 @@
+package hu.vszili.survey.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+
+class PinnedDatasetAspectTest {
+
+    private DatasetHolder datasetHolder;
+
+    private Reader reader;
+
+    @BeforeEach
+    void setUp() {
+        datasetHolder = new DatasetHolder();
+        datasetHolder.swap(this.dataset(1L));
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Reader(datasetHolder));
+        factory.addAspect(new PinnedDatasetAspect(datasetHolder));
+        reader = factory.getProxy();
+    }
+
+    @Test
+    void testPin_SwapDuringCall_ReadsSameDatasetThroughout() {
+        // when
+        List<Long> versions = reader.readAcrossSwap(this.dataset(2L));
+
+        // then
+        Assertions.assertEquals(List.of(1L, 1L, 1L), versions);
+        Assertions.assertEquals(2L, datasetHolder.get().getVersion());
+    }
+
+    @Test
+    void testPin_FailingCall_ReleasesPin() {
+        // when-then
+        Assertions.assertThrows(IllegalStateException.class, () -> reader.failAfterSwap(this.dataset(2L)));
+        Assertions.assertEquals(2L, datasetHolder.get().getVersion());
+    }
+
+    @Test
+    void testPin_NoDatasetLoaded_GetStillFails() {
+        // given
+        DatasetHolder empty = new DatasetHolder();
+
+        // when-then
+        try (DatasetHolder.Pin ignored = empty.pin()) {
+            Assertions.assertThrows(IllegalStateException.class, empty::get);
+        }
+    }
+
+    private Dataset dataset(long version) {
+        return new Dataset(version, null, null, null, null, null);
+    }
+
+    @PinnedDataset
+    static class Reader {
+
+        private final DatasetHolder datasetHolder;
+
+        Reader(DatasetHolder datasetHolder) {
+            this.datasetHolder = datasetHolder;
+        }
+
+        public List<Long> readAcrossSwap(Dataset next) {
+            long before = datasetHolder.get().getVersion();
+            datasetHolder.swap(next);
+            long after = datasetHolder.get().getVersion();
+            long nested;
+            try (DatasetHolder.Pin ignored = datasetHolder.pin()) {
+                nested = datasetHolder.get().getVersion();
+            }
+            return List.of(before, after, nested);
+        }
+
+        public void failAfterSwap(Dataset next) {
+            datasetHolder.swap(next);
+            throw new IllegalStateException("failed");
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package hu.vszili.survey.store;
+
+import hu.vszili.survey.data.StatusCodes;
+import hu.vszili.survey.exception.CsvReadingException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class StatusStoreTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void testRead_AssignsCodesInFileOrder() throws IOException {
+        // given
+        Path file = this.write("Status Id,Name\n40,Completed\n10,Not asked\n30,Filtered\n20,Rejected\n");
+
+        // when
+        StatusStore statuses = StatusStore.read(file);
+
+        // then
+        Assertions.assertEquals(4, statuses.size());
+        Assertions.assertEquals(0, statuses.codeOf(40L));
+        Assertions.assertEquals(3, statuses.codeOf(20L));
+        Assertions.assertEquals(StatusCodes.NO_CODE, statuses.codeOf(15L));
+        Assertions.assertEquals(StatusCodes.NO_CODE, statuses.codeOf(1000L));
+        StatusCodes codes = statuses.getCodes();
+        Assertions.assertEquals(1, codes.getNotAsked());
+        Assertions.assertEquals(3, codes.getRejected());
+        Assertions.assertEquals(2, codes.getFiltered());
+        Assertions.assertEquals(0, codes.getCompleted());
+    }
+
+    @Test
+    void testRead_WellKnownStatusMissing_HasNoCode() throws IOException {
+        // given
+        Path file = this.write("Status Id,Name\n1,Not asked\n4,Completed\n");
+
+        // when
+        StatusCodes codes = StatusStore.read(file).getCodes();
+
+        // then
+        Assertions.assertEquals(1, codes.getCompleted());
+        Assertions.assertEquals(StatusCodes.NO_CODE, codes.getFiltered());
+        Assertions.assertEquals(StatusCodes.NO_CODE, codes.getRejected());
+    }
+
+    @Test
+    void testRead_IdOutOfRange_ThrowsException() throws IOException {
+        // given
+        Path file = this.write("Status Id,Name\n1,Not asked\n70000,Completed\n");
+
+        // when-then
+        Assertions.assertThrows(CsvReadingException.class, () -> StatusStore.read(file));
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("Statuses.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+}